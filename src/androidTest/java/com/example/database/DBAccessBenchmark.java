@@ -0,0 +1,485 @@
+package com.example.database;
+
+import android.content.Context;
+import android.test.AndroidTestCase;
+import android.test.RenamingDelegatingContext;
+import android.util.Log;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.DatabaseBackup;
+import com.example.database.database.SlowQuery;
+import com.example.database.database.core.DBWords;
+import com.example.database.database.core.NamesTable;
+import com.example.database.database.core.Row;
+import com.example.database.database.util.CsvImporter;
+import com.example.database.database.util.TableExporter;
+import com.example.database.domain.Name;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * measures the latency of the {@code DBAccess} operations against a populated
+ *   {@code Names} table. results are written to logcat under the {@code
+ *   DBAccessBenchmark} tag.
+ */
+public class DBAccessBenchmark extends AndroidTestCase
+{
+    public static final String TAG = DBAccessBenchmark.class.getSimpleName();
+
+    /** number of rows in the table before any operations are measured. */
+    private static final int TABLE_SIZE = 10000;
+
+    /** number of rows in the table used to measure decoding. */
+    private static final int LARGE_TABLE_SIZE = 100000;
+
+    /** number of times each measured operation is repeated. */
+    private static final int ITERATIONS = 200;
+
+    /** number of times the full table is loaded. */
+    private static final int LOAD_ITERATIONS = 5;
+
+    /** number of threads loading the table at once. */
+    private static final int READER_THREADS = 4;
+
+    /**
+     * context that prefixes the database file name so that the benchmark
+     *   doesn't touch the application's data.
+     */
+    private Context mContext;
+
+    /** ids of the rows inserted while seeding the table. */
+    private long[] mSeededIds;
+
+    @Override
+    protected void setUp() throws Exception
+    {
+        super.setUp();
+        mContext = new RenamingDelegatingContext(getContext(), "benchmark_");
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+
+        mSeededIds = DBAccess.insertNames(mContext, makeNames("Seeded", TABLE_SIZE));
+    }
+
+    @Override
+    protected void tearDown() throws Exception
+    {
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+        super.tearDown();
+    }
+
+    /**
+     * every operation uses the shared connection that {@code DBAccess} keeps
+     *   open.
+     */
+    public void testSharedConnection()
+    {
+        runOperations("shared connection", false);
+    }
+
+    /**
+     * closes the connection after every operation; this is how {@code
+     *   DBAccess} used to behave.
+     */
+    public void testReopenPerCall()
+    {
+        runOperations("reopen per call", true);
+    }
+
+    /**
+     * compares inserting names one at a time against inserting them in a
+     *   single batch.
+     */
+    public void testBatchInsert()
+    {
+        List<Name> names = makeNames("Batched", TABLE_SIZE);
+
+        long start = System.nanoTime();
+        for(Name name : names)
+        {
+            DBAccess.insertName(mContext, name);
+        }
+        reportThroughput("insertName", System.nanoTime()-start, TABLE_SIZE);
+
+        start = System.nanoTime();
+        DBAccess.insertNames(mContext, names);
+        reportThroughput("insertNames", System.nanoTime()-start, TABLE_SIZE);
+    }
+
+    /**
+     * deletes the whole table in one call; more ids than SQLite allows host
+     *   parameters in a single statement.
+     */
+    public void testBulkDelete()
+    {
+        long start = System.nanoTime();
+        int rowsAffected = DBAccess.deleteNames(mContext, mSeededIds);
+        reportThroughput("deleteNames", System.nanoTime()-start, TABLE_SIZE);
+        assertEquals(TABLE_SIZE, rowsAffected);
+    }
+
+    /**
+     * measures the per-row cost of parsing a large table out of a cursor.
+     */
+    public void testDecodeLargeTable()
+    {
+        DBAccess.insertNames(mContext, makeNames("Large", LARGE_TABLE_SIZE-TABLE_SIZE));
+
+        // the first load compiles the decode plan; only later loads are timed
+        DBAccess.getAllNames(mContext, null);
+
+        long start = System.nanoTime();
+        for(int i = 0; i < LOAD_ITERATIONS; ++i)
+        {
+            DBAccess.getAllNames(mContext, null);
+        }
+        long elapsedNanos = System.nanoTime()-start;
+        Log.i(TAG, "getAllNames: "+(elapsedNanos/LOAD_ITERATIONS/LARGE_TABLE_SIZE)
+                +" ns/row over "+LARGE_TABLE_SIZE+" rows");
+    }
+
+    /**
+     * compares time-to-first-row and peak heap use of loading a large table
+     *   through the streaming path and through the materialized path.
+     */
+    public void testStreamingLoad()
+    {
+        DBAccess.insertNames(mContext, makeNames("Large", LARGE_TABLE_SIZE-TABLE_SIZE));
+        DBAccess.getAllNames(mContext, null);
+
+        LoadProbe probe = new LoadProbe();
+        DBAccess.getAllNames(mContext, probe);
+        probe.report("getAllNames (streamed)");
+
+        probe = new LoadProbe();
+        DBAccess.getNamesPage(mContext, null, LARGE_TABLE_SIZE, DBWords.Query.ASC, probe);
+        probe.report("getNamesPage (materialized)");
+    }
+
+    /**
+     * measures the throughput of importing a large CSV stream.
+     */
+    public void testCsvImport() throws IOException
+    {
+        StringBuilder csv = new StringBuilder(LARGE_TABLE_SIZE*24);
+        csv.append(NamesTable.Entry.FIRST_NAME).append(',')
+                .append(NamesTable.Entry.LAST_NAME).append('\n');
+        for(int i = 0; i < LARGE_TABLE_SIZE; ++i)
+        {
+            csv.append("Imported,Last").append(i).append('\n');
+        }
+        InputStream in = new ByteArrayInputStream(csv.toString().getBytes("UTF-8"));
+
+        long start = System.nanoTime();
+        long rowCount = new CsvImporter(mContext, NamesTable.sInstance).importFrom(in);
+        reportThroughput("CsvImporter", System.nanoTime()-start, (int) rowCount);
+        assertEquals(LARGE_TABLE_SIZE, rowCount);
+        assertEquals(TABLE_SIZE+LARGE_TABLE_SIZE, DBAccess.countNames(mContext));
+    }
+
+    /**
+     * measures the throughput of exporting a large table in each format.
+     */
+    public void testExport() throws IOException
+    {
+        DBAccess.insertNames(mContext, makeNames("Large", LARGE_TABLE_SIZE-TABLE_SIZE));
+
+        for(TableExporter.Format format : TableExporter.Format.values())
+        {
+            File file = new File(getContext().getCacheDir(), "benchmark_export");
+            long start = System.nanoTime();
+            long bytesWritten = new TableExporter(mContext, NamesTable.sInstance, format)
+                    .exportTo(file);
+            long elapsedNanos = System.nanoTime()-start;
+            Log.i(TAG, "TableExporter ("+format+"): "
+                    +(bytesWritten*1000000000L/elapsedNanos)+" bytes/s, "
+                    +bytesWritten+" bytes over "+LARGE_TABLE_SIZE+" rows");
+            assertEquals(file.length(), bytesWritten);
+            file.delete();
+        }
+    }
+
+    /**
+     * measures how long writers are paused by an online backup, and how long
+     *   the database is unavailable while it is restored.
+     */
+    public void testBackupAndRestore() throws IOException
+    {
+        DBAccess.insertNames(mContext, makeNames("Large", LARGE_TABLE_SIZE-TABLE_SIZE));
+        File file = new File(getContext().getCacheDir(), "benchmark_backup.db");
+
+        DatabaseBackup backup = DBAccess.backup(mContext, file);
+        Log.i(TAG, "backup: "+backup.getBytesPerSecond()+" bytes/s, "
+                +backup.getSize()+" bytes, writers paused for "
+                +backup.getPauseNanos()/1000000+" ms");
+        assertEquals(LARGE_TABLE_SIZE, backup.getRowCount());
+
+        DBAccess.deleteNames(mContext, mSeededIds);
+        long pauseNanos = DBAccess.restore(mContext, file);
+        Log.i(TAG, "restore: database unavailable for "+pauseNanos/1000000+" ms");
+        assertEquals(LARGE_TABLE_SIZE, DBAccess.countNames(mContext));
+        assertEquals(1, DBAccess.searchNames(mContext, "Last"+(LARGE_TABLE_SIZE-TABLE_SIZE-1),
+                20, null).length);
+        file.delete();
+    }
+
+    /**
+     * compares loading the table from one thread against loading it from
+     *   several threads at once, which {@code SQLiteDatabase} runs in
+     *   parallel on its own pool of read-only connections since the database
+     *   is in write-ahead logging mode. each thread makes the same number of
+     *   loads, so the time per load drops as far as the loads run in parallel.
+     */
+    public void testConcurrentReads() throws InterruptedException
+    {
+        DBAccess.setQueryCacheSize(0);
+        try
+        {
+            for(int threadCount : new int[]{1, READER_THREADS})
+            {
+                Thread[] threads = new Thread[threadCount];
+                for(int i = 0; i < threads.length; ++i)
+                {
+                    threads[i] = new Thread(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            for(int j = 0; j < LOAD_ITERATIONS; ++j)
+                            {
+                                DBAccess.getAllNames(mContext, null);
+                            }
+                        }
+                    });
+                }
+
+                long start = System.nanoTime();
+                for(Thread thread : threads)
+                {
+                    thread.start();
+                }
+                for(Thread thread : threads)
+                {
+                    thread.join();
+                }
+                report(threadCount+" threads", "getAllNames",
+                        System.nanoTime()-start, threadCount*LOAD_ITERATIONS);
+            }
+        }
+        finally
+        {
+            DBAccess.setQueryCacheSize(DBAccess.DEFAULT_QUERY_CACHE_SIZE);
+        }
+    }
+
+    /**
+     * compares loading pages with and without recording metrics, then logs
+     *   the recorded metrics.
+     */
+    public void testMetricsOverhead()
+    {
+        DBAccess.setQueryCacheSize(0);
+        try
+        {
+            for(boolean enabled : new boolean[]{false, true})
+            {
+                DBAccess.setMetricsEnabled(enabled);
+                long start = System.nanoTime();
+                for(int i = 0; i < ITERATIONS; ++i)
+                {
+                    DBAccess.getNamesPage(mContext, null, 100, DBWords.Query.ASC, null);
+                }
+                report("metrics "+((enabled) ? "enabled" : "disabled"), "getNamesPage",
+                        System.nanoTime()-start, ITERATIONS);
+            }
+            DBAccess.getMetrics().log(TAG);
+        }
+        finally
+        {
+            DBAccess.setMetricsEnabled(true);
+            DBAccess.setQueryCacheSize(DBAccess.DEFAULT_QUERY_CACHE_SIZE);
+        }
+    }
+
+    /**
+     * logs every query for a moment, and checks that loading the whole table
+     *   is recognized as a full-table scan.
+     */
+    public void testSlowQueryLog()
+    {
+        DBAccess.setQueryCacheSize(0);
+        DBAccess.setSlowQueryThreshold(0);
+        try
+        {
+            DBAccess.clearSlowQueries();
+            DBAccess.getAllNames(mContext, null);
+            DBAccess.searchNames(mContext, "Last1", 20, null);
+
+            boolean foundScan = false;
+            for(SlowQuery query : DBAccess.getSlowQueries())
+            {
+                Log.i(TAG, "logged query: "+query);
+                foundScan |= query.isFullScan();
+            }
+            assertTrue(foundScan);
+        }
+        finally
+        {
+            DBAccess.setSlowQueryThreshold(DBAccess.DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS);
+            DBAccess.clearSlowQueries();
+            DBAccess.setQueryCacheSize(DBAccess.DEFAULT_QUERY_CACHE_SIZE);
+        }
+    }
+
+    /**
+     * measures the latency of type-ahead searches as the table grows.
+     */
+    public void testSearchLatency()
+    {
+        int tableSize = TABLE_SIZE;
+        for(int targetSize : new int[]{TABLE_SIZE, 3*TABLE_SIZE, LARGE_TABLE_SIZE})
+        {
+            DBAccess.insertNames(mContext, makeNames("Search", targetSize-tableSize));
+            tableSize = targetSize;
+
+            // a different prefix every time, so the result cache is never hit
+            long start = System.nanoTime();
+            for(int i = 0; i < ITERATIONS; ++i)
+            {
+                DBAccess.searchNames(mContext, "Last"+(i*37%tableSize), 20, null);
+            }
+            long elapsedNanos = System.nanoTime()-start;
+            Log.i(TAG, "searchNames: "+(elapsedNanos/ITERATIONS/1000)+" us/search over "
+                    +tableSize+" rows");
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private void runOperations(String label, boolean reopen)
+    {
+        long start;
+
+        start = System.nanoTime();
+        for(int i = 0; i < LOAD_ITERATIONS; ++i)
+        {
+            DBAccess.getAllNames(mContext, null);
+            if(reopen) DBAccess.shutdown();
+        }
+        report(label, "getAllNames", System.nanoTime()-start, LOAD_ITERATIONS);
+
+        long[] insertedIds = new long[ITERATIONS];
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; ++i)
+        {
+            insertedIds[i] = DBAccess.insertName(mContext,
+                    new Name("Inserted"+i, "Name"+i));
+            if(reopen) DBAccess.shutdown();
+        }
+        report(label, "insertName", System.nanoTime()-start, ITERATIONS);
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; ++i)
+        {
+            DBAccess.updateName(mContext, makeName(mSeededIds[i], "Updated"+i));
+            if(reopen) DBAccess.shutdown();
+        }
+        report(label, "updateName", System.nanoTime()-start, ITERATIONS);
+
+        start = System.nanoTime();
+        for(int i = 0; i < ITERATIONS; ++i)
+        {
+            DBAccess.deleteNames(mContext, insertedIds[i]);
+            if(reopen) DBAccess.shutdown();
+        }
+        report(label, "deleteNames", System.nanoTime()-start, ITERATIONS);
+    }
+
+    private static Name makeName(long id, String firstName)
+    {
+        Row row = NamesTable.sInstance.makeRow();
+        row.setId(id);
+        row.getColumn(NamesTable.Entry.FIRST_NAME).setValue(firstName);
+        row.getColumn(NamesTable.Entry.LAST_NAME).setValue("Name");
+        return new Name(row);
+    }
+
+    /**
+     * records the time of the first loaded row, and samples heap use while
+     *   rows are being loaded.
+     */
+    private static class LoadProbe implements DBAccess.OnRowLoadedListener
+    {
+        private final long mStart;
+        private final long mHeapAtStart;
+        private long mFirstRowNanos = -1;
+        private long mPeakHeap;
+        private int mRowCount;
+
+        LoadProbe()
+        {
+            Runtime.getRuntime().gc();
+            mHeapAtStart = usedHeap();
+            mStart = System.nanoTime();
+        }
+
+        @Override
+        public void onRowLoaded(Row r)
+        {
+            if(mFirstRowNanos < 0)
+            {
+                mFirstRowNanos = System.nanoTime()-mStart;
+            }
+            if(++mRowCount%1000 == 0)
+            {
+                mPeakHeap = Math.max(mPeakHeap, usedHeap());
+            }
+        }
+
+        void report(String label)
+        {
+            long elapsedNanos = System.nanoTime()-mStart;
+            Log.i(TAG, label+": first row after "+(mFirstRowNanos/1000)+" us, "
+                    +mRowCount+" rows in "+(elapsedNanos/1000000)+" ms, peak heap +"
+                    +((mPeakHeap-mHeapAtStart)/1024)+" KiB");
+        }
+
+        private static long usedHeap()
+        {
+            Runtime runtime = Runtime.getRuntime();
+            return runtime.totalMemory()-runtime.freeMemory();
+        }
+    }
+
+    private static List<Name> makeNames(String firstName, int count)
+    {
+        List<Name> names = new ArrayList<>(count);
+        for(int i = 0; i < count; ++i)
+        {
+            names.add(new Name(firstName+i, "Last"+i));
+        }
+        return names;
+    }
+
+    private static void reportThroughput(String operation, long elapsedNanos,
+                                         int count)
+    {
+        Log.i(TAG, operation+": "+(count*1000000000L/elapsedNanos)
+                +" rows/s over "+count+" rows");
+    }
+
+    private static void report(String label, String operation, long elapsedNanos,
+                               int count)
+    {
+        Log.i(TAG, label+": "+operation+": "+(elapsedNanos/count/1000)
+                +" us/op over "+count+" ops, "+TABLE_SIZE+" rows");
+    }
+}
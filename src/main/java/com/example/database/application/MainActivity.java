@@ -23,15 +23,20 @@ import java.util.Set;
 
 import com.example.database.R;
 import com.example.database.database.DBAccess;
+import com.example.database.database.core.DBWords;
 import com.example.database.database.core.NamesTable;
 import com.example.database.database.core.Row;
 import com.example.database.database.util.DBAdapter;
 import com.example.database.database.util.PipeRowLoader;
+import com.example.database.database.util.WriteBehindQueue;
 import com.example.database.domain.Name;
 
 public class MainActivity extends ActionBarActivity
 {
 
+    /** number of names loaded from the database per query */
+    private static final int PAGE_SIZE = 200;
+
     ////////////////////
     // GUI references //
     ////////////////////
@@ -76,6 +81,12 @@ public class MainActivity extends ActionBarActivity
     /** ModeCallback object used to handle mode and multiselect callbacks */
     private ModeCallback mModeCallback;
 
+    /** queue used to write names to the database off the main thread */
+    private WriteBehindQueue mWriteQueue;
+
+    /** tells the user when a queued write could not be committed */
+    private WriteBehindQueue.OnWriteCompleteListener mOnWriteComplete;
+
     ////////////////////////
     // activity callbacks //
     ////////////////////////
@@ -90,6 +101,25 @@ public class MainActivity extends ActionBarActivity
         configureGUI();
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mDBAdapter.stopObservingTable();
+
+        // this is the application's only activity; once it finishes, nothing
+        // else needs the shared database connection. it is shut down on the
+        // writer thread once the queued writes are committed, so that the
+        // main thread doesn't wait for them.
+        mWriteQueue.close(!isFinishing() ? null : new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                DBAccess.shutdown();
+            }
+        });
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
@@ -115,33 +145,37 @@ public class MainActivity extends ActionBarActivity
     ///////////////////////
 
     public void insertName(Name name) {
-        DBAccess.insertName(this, name);
-        mDBAdapter.notifyDataSetChanged();
+        mWriteQueue.insert(name.toRow(), mOnWriteComplete);
     }
 
     public void updateName() {
-        DBAccess.updateName(this, nameToEdit);
-        mDBAdapter.notifyDataSetChanged();
+        mWriteQueue.update(nameToEdit.toRow(), mOnWriteComplete);
     }
 
-    public void deleteNames(Set<Row> rows) {
-        DBAccess.deleteNames(this, rows.toArray(new Row[rows.size()]));
-        mDBAdapter.notifyDataSetChanged();
+    public void deleteNames(Set<Long> ids) {
+        long[] idArray = new long[ids.size()];
+        int i = 0;
+        for(Long id : ids) {
+            idArray[i++] = id;
+        }
+        mWriteQueue.delete(idArray, mOnWriteComplete);
     }
 
     /////////////////////
     // support methods //
     /////////////////////
     private void initializeInstanceData() {
-        PipeRowLoader.Queryable querable = new PipeRowLoader.Queryable()
+        PipeRowLoader.PagedQueryable querable = new PipeRowLoader.PagedQueryable()
         {
             @Override
-            public void query(DBAccess.OnRowLoadedListener listener)
+            public Row[] queryPage(Row after, int limit,
+                                   DBAccess.OnRowLoadedListener listener)
             {
-                DBAccess.getAllNames(MainActivity.this, listener);
+                return DBAccess.getNamesPage(MainActivity.this, after, limit,
+                        DBWords.Query.ASC, listener);
             }
         };
-        mDBAdapter = new DBAdapter(this, querable)
+        mDBAdapter = new DBAdapter(this, querable, PAGE_SIZE)
         {
             @Override
             public View getView(int position, View convertView, ViewGroup parent)
@@ -159,7 +193,29 @@ public class MainActivity extends ActionBarActivity
                 return convertView;
             }
         };
+        mDBAdapter.setCountable(new PipeRowLoader.Countable()
+        {
+            @Override
+            public long count()
+            {
+                return DBAccess.countNames(MainActivity.this);
+            }
+        });
         mModeCallback = new ModeCallback(this);
+        mWriteQueue = new WriteBehindQueue(this, NamesTable.sInstance);
+        mOnWriteComplete = new WriteBehindQueue.OnWriteCompleteListener()
+        {
+            @Override
+            public void onWriteComplete(boolean committed)
+            {
+                // committed changes reach the adapter as change events
+                if(!committed)
+                {
+                    Toast.makeText(MainActivity.this, "Failed to save changes",
+                            Toast.LENGTH_SHORT).show();
+                }
+            }
+        };
     }
 
     private void initializeGUIReferences() {
@@ -188,6 +244,7 @@ public class MainActivity extends ActionBarActivity
         mListView.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE_MODAL);
         mListView.setMultiChoiceModeListener(mModeCallback);
         mListView.setOnItemClickListener(new MyOnItemClickListener());
+        mDBAdapter.observeTable(NamesTable.sInstance);
         mDBAdapter.notifyDataSetChanged();
 
     }
@@ -284,8 +341,8 @@ public class MainActivity extends ActionBarActivity
 
     private class ModeCallback implements ListView.MultiChoiceModeListener {
 
-        /** array list of names that are currently selected */
-        Set<Row> selectedNames = new LinkedHashSet<>();
+        /** ids of the names that are currently selected */
+        Set<Long> selectedIds = new LinkedHashSet<>();
 
         /** reference to application context */
         private Context appContext;
@@ -311,7 +368,7 @@ public class MainActivity extends ActionBarActivity
         public boolean onActionItemClicked(ActionMode mode, MenuItem item) {
             switch (item.getItemId()) {
                 case R.id.action_delete:
-                    deleteNames(selectedNames);
+                    deleteNames(selectedIds);
                     mode.finish();
                     break;
                 default:
@@ -324,16 +381,16 @@ public class MainActivity extends ActionBarActivity
 
         @Override
         public void onDestroyActionMode(ActionMode mode) {
-            selectedNames.clear();
+            selectedIds.clear();
         }
 
         @Override
         public void onItemCheckedStateChanged(ActionMode mode,
                 int position, long id, boolean checked) {
             if (checked) {
-                selectedNames.add(mDBAdapter.getItem(position));
+                selectedIds.add(mDBAdapter.getItemId(position));
             } else {
-                selectedNames.remove(mDBAdapter.getItem(position));
+                selectedIds.remove(mDBAdapter.getItemId(position));
             }
             final int checkedCount = mListView.getCheckedItemCount();
             switch (checkedCount) {
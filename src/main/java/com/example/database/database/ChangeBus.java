@@ -0,0 +1,187 @@
+package com.example.database.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * publishes the changes made to tables to registered {@code
+ *   OnTableChangedListener} instances. changes made inside a transaction are
+ *   held back until the outermost transaction commits, and are dropped if it
+ *   rolls back, so listeners only ever see committed changes.
+ */
+final class ChangeBus
+{
+    /**
+     * registered listeners.
+     */
+    private final List<DBAccess.OnTableChangedListener> mListeners =
+            new CopyOnWriteArrayList<>();
+
+    /**
+     * changes made inside the current thread's transaction, waiting for it to
+     *   commit. transactions are bound to the thread that started them.
+     */
+    private final ThreadLocal<List<Change>> mPending = new ThreadLocal<List<Change>>()
+    {
+        @Override
+        protected List<Change> initialValue()
+        {
+            return new ArrayList<>();
+        }
+    };
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    void addListener(DBAccess.OnTableChangedListener listener)
+    {
+        mListeners.add(listener);
+    }
+
+    void removeListener(DBAccess.OnTableChangedListener listener)
+    {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * publishes that {@code rows} were inserted into {@code table}.
+     */
+    void publishInserted(SQLiteDatabase db, Table table, Row[] rows)
+    {
+        publish(db, new Change(Change.INSERTED, table, rows, null));
+    }
+
+    /**
+     * publishes that {@code rows} of {@code table} were updated. the columns of
+     *   the {@code rows} are no longer dirty once the change is published,
+     *   after the listeners have seen it; they stay dirty if the transaction
+     *   rolls back, so the rows can be written again.
+     */
+    void publishUpdated(SQLiteDatabase db, Table table, Row[] rows)
+    {
+        publish(db, new Change(Change.UPDATED, table, rows, null));
+    }
+
+    /**
+     * publishes that the rows with the passed {@code ids} were deleted from
+     *   {@code table}.
+     */
+    void publishDeleted(SQLiteDatabase db, Table table, long[] ids)
+    {
+        publish(db, new Change(Change.DELETED, table, null, ids));
+    }
+
+    /**
+     * publishes that {@code table} changed in a way that can't be described by
+     *   row changes, e.g. its schema changed, or its data was replaced.
+     *   listeners should reload everything they know about {@code table}.
+     */
+    void publishInvalidated(Table table)
+    {
+        dispatch(new Change(Change.INVALIDATED, table, null, null));
+    }
+
+    /**
+     * publishes the changes held back by the current thread's transaction; must
+     *   be called once the outermost transaction has committed.
+     */
+    void commitPending()
+    {
+        List<Change> pending = mPending.get();
+        for(Change change : pending)
+        {
+            dispatch(change);
+        }
+        pending.clear();
+    }
+
+    /**
+     * drops the changes held back by the current thread's transaction; must
+     *   be called once the outermost transaction has rolled back.
+     */
+    void discardPending()
+    {
+        mPending.get().clear();
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private void publish(SQLiteDatabase db, Change change)
+    {
+        if(db.inTransaction())
+        {
+            mPending.get().add(change);
+        }
+        else
+        {
+            dispatch(change);
+        }
+    }
+
+    private void dispatch(Change change)
+    {
+        for(DBAccess.OnTableChangedListener listener : mListeners)
+        {
+            switch(change.mType)
+            {
+
+                case Change.INSERTED:
+                    listener.onRowsInserted(change.mTable, change.mRows);
+                    break;
+
+                case Change.UPDATED:
+                    listener.onRowsUpdated(change.mTable, change.mRows);
+                    break;
+
+                case Change.DELETED:
+                    listener.onRowsDeleted(change.mTable, change.mIds);
+                    break;
+
+                case Change.INVALIDATED:
+                    listener.onTableInvalidated(change.mTable);
+                    break;
+            }
+        }
+
+        if(change.mType == Change.UPDATED)
+        {
+            for(Row row : change.mRows)
+            {
+                row.clearDirty();
+            }
+        }
+    }
+
+    /**
+     * a single change made to a table.
+     */
+    private static class Change
+    {
+        static final int INSERTED = 0;
+        static final int UPDATED = 1;
+        static final int DELETED = 2;
+        static final int INVALIDATED = 3;
+
+        final int mType;
+        final Table mTable;
+        final Row[] mRows;
+        final long[] mIds;
+
+        Change(int type, Table table, Row[] rows, long[] ids)
+        {
+            mType = type;
+            mTable = table;
+            mRows = rows;
+            mIds = ids;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.database.database;
+
+/**
+ * counts the calls in flight on a database connection, so that the connection
+ *   is only closed once every call has returned. every call made through a
+ *   {@code Dao} enters the gate before it touches the connection, and exits it
+ *   once it no longer does; {@link #close()} waits for the calls that have
+ *   entered to exit, and from then on turns new calls away.
+ *
+ * the state of the gate is guarded by the lock passed to its constructor,
+ *   which {@link #close()} releases while it waits; a thread closing the gate
+ *   while holding the lock doesn't keep the calls in flight from taking it.
+ */
+final class ConnectionGate
+{
+    /**
+     * lock that guards the state of the gate, and that {@link #close()} waits
+     *   on.
+     */
+    private final Object mLock;
+
+    /**
+     * number of calls that the current thread has entered and not exited yet;
+     *   calls nest, e.g. the writes made by {@link Dao#runInTransaction}.
+     */
+    private final ThreadLocal<int[]> mDepth = new ThreadLocal<int[]>()
+    {
+        @Override
+        protected int[] initialValue()
+        {
+            return new int[1];
+        }
+    };
+
+    /**
+     * number of calls that have entered and not exited yet, on every thread.
+     */
+    private int mCalls;
+
+    /**
+     * whether the gate has been closed; new calls are turned away.
+     */
+    private boolean mClosed;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates an open {@code ConnectionGate}.
+     *
+     * @param  lock lock that guards the state of the gate.
+     */
+    ConnectionGate(Object lock)
+    {
+        mLock = lock;
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * enters a call; it must be followed by {@link #exit()} on the same
+     *   thread. calls nested inside a call that has already entered are let in
+     *   even once the gate is closing, so that the outer call can complete.
+     *
+     * @throws IllegalStateException if the gate has been closed.
+     */
+    void enter()
+    {
+        int[] depth = mDepth.get();
+        synchronized(mLock)
+        {
+            if(mClosed && depth[0] == 0)
+            {
+                throw new IllegalStateException("the database has been shut down; "
+                        +"get a new Dao from DBAccess.getDao");
+            }
+            ++mCalls;
+        }
+        ++depth[0];
+    }
+
+    /**
+     * exits a call entered by {@link #enter()}.
+     */
+    void exit()
+    {
+        --mDepth.get()[0];
+        synchronized(mLock)
+        {
+            if(--mCalls == 0 && mClosed)
+            {
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * returns true if the current thread is inside a call that has entered the
+     *   gate and not exited it yet.
+     */
+    boolean isEntered()
+    {
+        return mDepth.get()[0] > 0;
+    }
+
+    /**
+     * closes the gate, and waits for every call that has entered it to exit.
+     *   the caller must hold the lock of the gate.
+     *
+     * @throws IllegalStateException if the current thread is inside a call,
+     *   which would never exit.
+     */
+    void close()
+    {
+        if(isEntered())
+        {
+            throw new IllegalStateException("the database can't be shut down from "
+                    +"inside a call to it");
+        }
+
+        mClosed = true;
+        boolean interrupted = false;
+        while(mCalls > 0)
+        {
+            try
+            {
+                mLock.wait();
+            }
+            catch(InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
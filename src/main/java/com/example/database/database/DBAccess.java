@@ -1,23 +1,39 @@
 package com.example.database.database;
 
 import android.content.ContentResolver;
-import android.content.ContentValues;
 import android.content.Context;
-import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.provider.BaseColumns;
 import android.util.Log;
 
 import com.example.database.database.core.Column;
-import com.example.database.database.core.ColumnFactory;
 import com.example.database.database.core.NamesTable;
-import com.example.database.database.core.DBWords.JavaType;
+import com.example.database.database.core.DBWords.Query;
 import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+import com.example.database.database.metrics.Metrics;
+import com.example.database.database.metrics.MetricsSnapshot;
+import com.example.database.database.migration.MigrationRegistry;
+import com.example.database.database.migration.Migrations;
 import com.example.database.domain.Name;
 
-import java.util.LinkedHashMap;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * DBAccess is used to get information from the database.
@@ -27,25 +43,96 @@ public class DBAccess extends SQLiteOpenHelper
     public static final String TAG = DBAccess.class.getSimpleName();
 
     /**
-     * if DB schema changes, you must implement an onUpgrade, and change the db
-     *   version. DB version >= 1.
+     * if DB schema changes, you must register a migration to the new version
+     *   in {@link #sMigrations}, and change the db version. DB version >= 1.
      */
-    public static final int DATABASE_VERSION = 1;
+    public static final int DATABASE_VERSION = 3;
 
     /** name of file used to save the database data */
     public static final String DATABASE_NAME = "EverythingDatabase.db";
 
+    /**
+     * default maximum estimated size of the query result cache, in bytes.
+     */
+    public static final int DEFAULT_QUERY_CACHE_SIZE = 1024*1024;
+
+    /**
+     * default time a query must take to be logged as a slow query, in
+     *   milliseconds.
+     */
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 100;
+
+    /**
+     * cache of query results shared by the {@code Dao} of every table.
+     */
+    private static final QueryCache sResultCache =
+            new QueryCache(DEFAULT_QUERY_CACHE_SIZE);
+
+    /**
+     * bus that the changes made by the {@code Dao} of every table are
+     *   published to.
+     */
+    private static final ChangeBus sChangeBus = new ChangeBus();
+
+    /**
+     * latencies, throughput and errors of the operations of the {@code Dao}
+     *   of every table.
+     */
+    private static final Metrics sMetrics = new Metrics();
+
+    /**
+     * queries of the {@code Dao} of every table that took too long.
+     */
+    private static final SlowQueryLog sSlowQueries =
+            new SlowQueryLog(DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS);
+
+    /**
+     * steps that upgrade the schema of the database from one version to the
+     *   next without losing its rows.
+     */
+    private static final MigrationRegistry sMigrations = new MigrationRegistry()
+            // version 2 added the indexes of the names table
+            .register(Migrations.createIndexes(2, NamesTable.sInstance))
+            // version 3 added the full-text search table of the names table
+            .register(Migrations.createSearchTable(3, NamesTable.sInstance));
+
     /**
      * singleton instance of the database.
      */
     private static DBAccess sInstance;
 
+    /**
+     * number of shutdowns and restores in progress; while there are any,
+     *   {@link #getInstance} waits for them to complete instead of handing out
+     *   the instance being shut down. guarded by the class lock.
+     */
+    private static int sPauses;
+
+    /**
+     * {@code Dao} instances created for each table; they are bound to the
+     *   connection of this instance.
+     */
+    private final Map<Table, Dao<?>> mDaos;
+
+    /**
+     * gate that the calls made on the connection of this instance go through;
+     *   closed by {@link #shutdown()} once they have all returned. guarded by
+     *   the class lock.
+     */
+    private final ConnectionGate mGate;
+
     //////////////////
     // constructors //
     //////////////////
 
     private DBAccess(Context c) {
         super(c, DATABASE_NAME, null, DATABASE_VERSION);
+        mDaos = new HashMap<>();
+        mGate = new ConnectionGate(DBAccess.class);
+
+        // readers and the writer can work on the shared connection at the same
+        // time instead of serializing behind each other.
+        setWriteAheadLoggingEnabled(true);
     }
 
     //////////////////////
@@ -62,374 +149,700 @@ public class DBAccess extends SQLiteOpenHelper
         public void onRowLoaded(Row r);
     }
 
-    public static void getAllNames(Context context, OnRowLoadedListener listener)
+    /**
+     * registered through {@link #addOnTableChangedListener}; its callbacks are
+     *   invoked once changes made to tables are committed. callbacks are
+     *   invoked on the thread that committed the changes.
+     */
+    public interface OnTableChangedListener
     {
-        SQLiteDatabase db = getInstance(context).getWritableDatabase();
-        Cursor cursor = db.query(
-                NamesTable.Entry.TABLE_NAME,
-                NamesTable.sInstance.getColumnNames(),
-                null,
-                null,
-                null,
-                null,
-                null);
-
-        cursorToRows(cursor, listener, NamesTable.sInstance.getColumnFactories());
-        cursor.close();
-        db.close();
+        /**
+         * invoked after {@code rows} were inserted into {@code table}. the
+         *   rows have their new ids.
+         */
+        public void onRowsInserted(Table table, Row[] rows);
+
+        /**
+         * invoked after {@code rows} of {@code table} were updated. only the
+         *   columns that were written are guaranteed to hold new values.
+         */
+        public void onRowsUpdated(Table table, Row[] rows);
+
+        /**
+         * invoked after the rows with the passed {@code ids} were deleted
+         *   from {@code table}.
+         */
+        public void onRowsDeleted(Table table, long[] ids);
+
+        /**
+         * invoked after {@code table} changed in a way that can't be described
+         *   by row changes, e.g. its schema changed or its data was replaced.
+         *   anything known about {@code table} should be reloaded.
+         */
+        public void onTableInvalidated(Table table);
     }
 
-    public static long insertName(Context context, Name name)
+    /**
+     * registers {@code listener} to be notified of changes made to tables.
+     *
+     * @param  listener listener to register.
+     */
+    public static void addOnTableChangedListener(OnTableChangedListener listener)
     {
-        // construct the ContentValues object
-        ContentValues values = new ContentValues();
-        Row row = name.toRow();
-        Map<String, Column> columns = row.getColumns();
-        for(String columnName : columns.keySet())
-        {
-            if(!columnName.equals(BaseColumns._ID))
-            {
-                put(values, columns.get(columnName));
-            }
-        }
-
-        // do the query
-        SQLiteDatabase db = getInstance(context).getWritableDatabase();
-        long newRowId = db.insert(
-                NamesTable.Entry.TABLE_NAME,
-                null,
-                values);
-        db.close();
+        sChangeBus.addListener(listener);
+    }
 
-        return newRowId;
+    /**
+     * unregisters a listener registered by {@link #addOnTableChangedListener}.
+     *
+     * @param  listener listener to unregister.
+     */
+    public static void removeOnTableChangedListener(OnTableChangedListener listener)
+    {
+        sChangeBus.removeListener(listener);
     }
 
-    public static int updateName(Context context, Name name)
+    /**
+     * closes the shared database connection. the next call into {@code
+     *   DBAccess} will reopen it; this should be called when the application
+     *   no longer needs the database, e.g. when its last activity finishes.
+     *
+     * blocks until the calls in flight on the connection, from any thread,
+     *   have returned; calls made afterwards through {@code Dao} instances
+     *   obtained before the shutdown throw {@code IllegalStateException}.
+     *   calls into {@code DBAccess} made from other threads while it waits
+     *   wait for the shutdown to complete, and then reopen the database. it
+     *   must not be called from inside a call to the database, e.g. from a
+     *   listener invoked by a {@code Dao}.
+     */
+    public static synchronized void shutdown()
     {
-        // construct the ContentValues object
-        ContentValues values = new ContentValues();
-        Row row = name.toRow();
-        Map<String, Column> columns = row.getColumns();
-        for(String columnName : columns.keySet())
+        ++sPauses;
+        try
         {
-            if(!columnName.equals(BaseColumns._ID))
+            DBAccess instance = sInstance;
+            if(instance != null)
             {
-                put(values, columns.get(columnName));
+                // releases the class lock while it waits, so the calls in
+                // flight can still get into DBAccess to complete
+                instance.mGate.close();
+
+                // another thread may have shut the instance down in the
+                // meantime
+                if(sInstance == instance)
+                {
+                    for(Dao<?> dao : instance.mDaos.values())
+                    {
+                        dao.close();
+                    }
+                    instance.close();
+                    sInstance = null;
+                }
             }
+            sResultCache.clear();
+        }
+        finally
+        {
+            resume();
         }
-
-        // do the query
-        SQLiteDatabase db = getInstance(context).getWritableDatabase();
-        int rowsAffected = db.update(
-                NamesTable.Entry.TABLE_NAME,
-                values,
-                BaseColumns._ID+"=?",
-                new String[]{String.valueOf(name.toRow().getId())});
-        db.close();
-
-        return rowsAffected;
     }
 
-    public static int deleteNames(Context context, Row ... rows)
+    /**
+     * makes a consistent copy of the database while it stays open; readers
+     *   are never blocked, and writers only wait while the rows are copied.
+     *   blocks until the copy is complete, so it must not be called on the
+     *   main thread. see {@link DatabaseBackup}.
+     *
+     * @param  context {@code Context} object of the application.
+     * @param  destination file to write the copy to; it is replaced if it
+     *   exists.
+     *
+     * @return the backup, with the measurements of making it.
+     *
+     * @throws IOException if the copy can't be written to {@code destination}.
+     */
+    public static DatabaseBackup backup(Context context, File destination)
+            throws IOException
     {
-        // define "where" part of query; build a list of "?" placeholders
-        StringBuilder selection = new StringBuilder();
-        selection.append(BaseColumns._ID);
-        selection.append(" IN (");
-        for(int i = 0; i < rows.length; ++i)
+        DBAccess instance;
+        SQLiteDatabase db;
+        synchronized(DBAccess.class)
         {
-            selection.append((i == 0) ? "?" : ",?");
+            instance = getInstance(context);
+            db = instance.getWritableDatabase();
+            instance.mGate.enter();
         }
-        selection.append(")");
-
-        // specify arguments in placeholder order (while validating pre-
-        // conditions)
-        String[] selectionArgs = new String[rows.length];
-        for (int i = 0; i < rows.length; ++i) {
-            if(rows[i].getId() == null)
-            {
-                throw new IllegalArgumentException("all {@code rows} must have "
-                        +"{@code non-null} ids.");
-            }
-            selectionArgs[i] = String.valueOf(rows[i].getId());
+        try
+        {
+            return DatabaseBackup.create(db, destination);
+        }
+        finally
+        {
+            instance.mGate.exit();
         }
-
-        // do the query
-        SQLiteDatabase db = getInstance(context).getWritableDatabase();
-        // execute the SQL delete statement
-        int rowsAffected = db.delete(
-                NamesTable.Entry.TABLE_NAME,
-                selection.toString(),
-                selectionArgs);
-        db.close();
-
-        return rowsAffected;
     }
 
-    ///////////////////////
-    // private interface //
-    ///////////////////////
-
     /**
-     * parses the data out of the {@code cursor} using the information in the
-     *   {@code columnFactories}. as the row data gets parsed out of the {@code
-     *   cursor}, callbacks of the {@code listener} will be invoked. once all
-     *   the rows have been loaded, the function also returns an array of all
-     *   the rows.
+     * replaces the database with the copy in {@code source}, e.g. one made by
+     *   {@link #backup}. the copy is validated before anything is replaced; the
+     *   database is then closed, its file swapped for the copy, and reopened,
+     *   upgrading the copy if it has an older schema. every table is
+     *   invalidated once the restored database is open.
+     *
+     * the database is shut down first, which waits for the calls in flight on
+     *   it, including backups, to return; see {@link #shutdown()}. calls into
+     *   {@code DBAccess} from other threads wait from the start of the
+     *   shutdown until the restored database is open, and calls through {@code Dao} instances obtained before the
+     *   restore throw {@code IllegalStateException}. blocks until the restore
+     *   is complete, so it must not be called on the main thread.
      *
-     * @param  cursor Cursor object obtained from a database query.
-     * @param  listener will have its method invoked asynchronously as rows are
-     *   parsed out of the {@code cursor}.
-     * @param  columnFactories map of column names as {@code String} objects,
-     *   and {@code ColumnFactory} objects. this map is used to resolve which
-     *   {@code ColumnFactory} should be used to produce the columns for the
-     *   columns in {@code cursor}.
+     * @param  context {@code Context} object of the application.
+     * @param  source database file to restore; it is left as it is.
+     *
+     * @return how long the database was unavailable, in nanoseconds.
      *
-     * @return array of {@code Row} objects loaded from the {@code cursor}.
+     * @throws IOException if {@code source} is not a valid copy of the
+     *   database, or can't be copied.
      */
-    private static Row[] cursorToRows(Cursor cursor, OnRowLoadedListener listener,
-                                      Map<String, ColumnFactory> columnFactories)
+    public static long restore(Context context, File source) throws IOException
     {
-        // in order to use getType properly, the cursor must be at a row;
-        // we call this method because we use cursor.getType later
-        cursor.moveToFirst();
-
-        // verify that the column types correspond with the java types.
-        for(String columnName : cursor.getColumnNames())
+        Context appContext = context.getApplicationContext();
+        File databaseFile = appContext.getDatabasePath(DATABASE_NAME);
+        File restoredFile = new File(databaseFile.getPath()+".restore");
+
+        // the source is validated and copied next to the database while the
+        // database is still available, so that the swap is a rename
+        validateBackup(source);
+        copyFile(source, restoredFile);
+
+        Set<Table> tables = new LinkedHashSet<>();
+        long pauseStart;
+        long pauseNanos;
+        synchronized(DBAccess.class)
         {
-            try
+            pauseStart = System.nanoTime();
+            if(sInstance != null)
             {
-                ColumnFactory columnFactory = columnFactories.get(columnName);
-                int columnIndex = cursor.getColumnIndex(columnFactory.getName());
-                if(!verifyType(columnFactory.getJavaType(), cursor.getType(columnIndex)))
-                {
-                    throw new IllegalArgumentException("Incompatible types or missing columns: "
-                            +"factory column type: "+columnFactory.getJavaType()+", "
-                            +"cursor column type: "+cursor.getType(columnIndex));
-                }
+                tables.addAll(sInstance.mDaos.keySet());
             }
-            catch(IllegalArgumentException e)
-            {
-                StringBuilder details = new StringBuilder();
-                boolean first;
-
-                first = true;
-                for(String cursorColumnName : cursor.getColumnNames())
-                {
-                    details.append((first) ? "; cursor column names: " : ", ");
-                    details.append(cursorColumnName);
-                    first = false;
-                }
+            tables.add(NamesTable.sInstance);
 
-                first = true;
-                for(String factoryColumnName : columnFactories.keySet())
-                {
-                    details.append((first) ? "; column factory names: " : ", ");
-                    details.append(factoryColumnName);
-                    first = false;
-                }
-
-                throw new IllegalArgumentException(e.toString()+" : "+details.toString());
-            }
-            catch(Exception e)
+            // the pause spans the shutdown and the swap; shutdown releases the
+            // class lock while it waits for the calls in flight, and the calls
+            // made meanwhile must not reopen the database before the swap
+            ++sPauses;
+            try
             {
-                if(cursor.getCount() == 0)
+                shutdown();
+
+                // the write-ahead log belongs to the replaced file; SQLite
+                // would apply it to the restored one if it were left behind
+                new File(databaseFile.getPath()+"-wal").delete();
+                new File(databaseFile.getPath()+"-shm").delete();
+                new File(databaseFile.getPath()+"-journal").delete();
+                if(!restoredFile.renameTo(databaseFile))
                 {
-                    Log.e(TAG, e.toString());
-                    return new Row[0];
-                }
-                else
-                {
-                    throw e;
+                    restoredFile.delete();
+                    throw new IOException("failed to replace "+databaseFile);
                 }
             }
-        }
-
-        // cursor.moveToFirst() was called earlier; we don't need to call it again.
-
-        // extract the column data into rows
-        Row[] rows = new Row[cursor.getCount()];
-        for(int i = 0; !cursor.isAfterLast(); ++i)
-        {
-            // create the row instance, and inject column data
-            Map<String, Column> columns = new LinkedHashMap<>();
-            for(String columnName : cursor.getColumnNames())
+            finally
             {
-                ColumnFactory columnFactory = columnFactories.get(columnName);
-                Column column = columnFactory.makeColumn();
-                columns.put(column.getName(), column);
-                get(cursor, column);
+                resume();
             }
 
-            rows[i] = new Row(columns);
-
-            cursor.moveToNext();
+            getInstance(appContext).getWritableDatabase();
+            pauseNanos = System.nanoTime()-pauseStart;
+        }
 
-            // if a callback listener was passed, invoke it
-            if(listener != null)
-            {
-                listener.onRowLoaded(rows[i]);
-            }
+        for(Table table : tables)
+        {
+            table.bumpVersion();
+            sChangeBus.publishInvalidated(table);
         }
-        cursor.close();
-        return rows;
+        Log.i(TAG, "restored "+source+"; database unavailable for "
+                +pauseNanos/1000000+" ms");
+        return pauseNanos;
     }
 
     /**
-     * retrieves the singleton instance of DBAccess.
+     * sets the listener notified of the progress of schema migrations. the
+     *   migrations run when the database is first opened after an upgrade,
+     *   on the thread that opens it.
      *
-     * @param  context {@code Context} object of the application.
+     * @param  listener listener to notify; may be {@code null}.
+     */
+    public static void setOnMigrationProgressListener(
+            MigrationRegistry.OnProgressListener listener)
+    {
+        sMigrations.setOnProgressListener(listener);
+    }
+
+    /**
+     * sets the maximum estimated size of the query result cache. cached
+     *   results are dropped; pass 0 to disable the cache.
      *
-     * @return the singleton instance of {@code DBAccess}.
+     * @param  maxBytes maximum estimated size of all cached results, in bytes.
      */
-    private static DBAccess getInstance(Context context)
+    public static void setQueryCacheSize(int maxBytes)
     {
-        if(sInstance == null)
-        {
-            sInstance = new DBAccess(context);
-        }
-        return sInstance;
+        sResultCache.setMaxSize(Math.max(maxBytes, 1));
     }
 
     /**
-     * verifies that {@code javaType} and {@code cursorFieldType} are logically
-     *   compatible. returns true if they are logically compatible; false
-     *   otherwise.
+     * returns a copy of the metrics recorded so far by the {@code Dao} of
+     *   every table: the latency percentiles, error count and row throughput
+     *   of each operation, e.g. "Names.queryAll", and the total numbers of
+     *   rows read and written and bytes decoded. metrics are kept across
+     *   {@link #shutdown()}. the snapshot can be logged with {@link
+     *   MetricsSnapshot#log} or written to a file with {@link
+     *   MetricsSnapshot#writeTo}.
      *
-     * @param  javaType the {@code JavaType} to verify.
-     * @param  cursorFieldType the integer representing the type of a column
-     *   obtained through {@code Cursor.getType()} to verify.
+     * @return the recorded metrics.
+     */
+    public static MetricsSnapshot getMetrics()
+    {
+        return sMetrics.snapshot();
+    }
+
+    /**
+     * discards the metrics recorded so far.
+     */
+    public static void resetMetrics()
+    {
+        sMetrics.reset();
+    }
+
+    /**
+     * enables or disables recording metrics; they are enabled by default.
+     *   while they are disabled, operations skip everything but reading the
+     *   clock.
      *
-     * @return true if the passed types are logically compatible; false
-     *   otherwise.
+     * @param  enabled true to record metrics.
      */
-    private static boolean verifyType(JavaType javaType, int cursorFieldType)
+    public static void setMetricsEnabled(boolean enabled)
     {
-        switch(javaType)
-        {
+        sMetrics.setEnabled(enabled);
+    }
 
-            case BOOLEAN:
-                return cursorFieldType == Cursor.FIELD_TYPE_INTEGER;
+    /**
+     * returns the most recent queries that took longer than the slow-query
+     *   threshold, oldest first, each with the output of EXPLAIN QUERY PLAN
+     *   for it; e.g. to find queries that scan a whole table. at most {@value
+     *   SlowQueryLog#CAPACITY} queries are kept.
+     *
+     * @return the logged slow queries.
+     */
+    public static List<SlowQuery> getSlowQueries()
+    {
+        return sSlowQueries.getEntries();
+    }
 
-            case BYTES:
-                return cursorFieldType == Cursor.FIELD_TYPE_BLOB;
+    /**
+     * discards the logged slow queries.
+     */
+    public static void clearSlowQueries()
+    {
+        sSlowQueries.clear();
+    }
 
-            case DOUBLE:
-                return cursorFieldType == Cursor.FIELD_TYPE_FLOAT;
+    /**
+     * sets the time a query must take, from running it to closing its cursor,
+     *   to be logged as a slow query; {@link
+     *   #DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS} by default.
+     *
+     * @param  thresholdMillis threshold in milliseconds; negative to log no
+     *   queries, and not time them at all.
+     */
+    public static void setSlowQueryThreshold(long thresholdMillis)
+    {
+        sSlowQueries.setThreshold(thresholdMillis);
+    }
 
-            case FLOAT:
-                return cursorFieldType == Cursor.FIELD_TYPE_FLOAT;
+    /**
+     * sets how often queries are timed for the slow-query log: 1 in every
+     *   {@code sampleInterval} queries. every query is timed by default.
+     *
+     * @param  sampleInterval 1 to time every query.
+     */
+    public static void setSlowQuerySampleInterval(int sampleInterval)
+    {
+        sSlowQueries.setSampleInterval(sampleInterval);
+    }
 
-            case INT:
-                return cursorFieldType == Cursor.FIELD_TYPE_INTEGER;
+    /**
+     * returns the {@code Dao} used to access {@code table}. every table gets
+     *   its own {@code Dao}, which is created the first time it is requested.
+     *   calls made through the returned instance after {@link #shutdown()}
+     *   throw {@code IllegalStateException}.
+     *
+     * @param  context {@code Context} object of the application.
+     * @param  table table to get the {@code Dao} for.
+     *
+     * @return the {@code Dao} used to access {@code table}.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T extends Table> Dao<T> getDao(Context context, T table)
+    {
+        DBAccess instance = getInstance(context);
+        Dao<T> dao = (Dao<T>) instance.mDaos.get(table);
+        if(dao == null)
+        {
+            SQLiteDatabase db = instance.getWritableDatabase();
+            dao = new Dao<>(db, instance.mGate, table, sResultCache, sChangeBus,
+                    sMetrics, sSlowQueries);
+            instance.mDaos.put(table, dao);
+        }
+        return dao;
+    }
 
-            case LONG:
-                return cursorFieldType == Cursor.FIELD_TYPE_INTEGER;
+    public static void getAllNames(Context context, OnRowLoadedListener listener)
+    {
+        getDao(context, NamesTable.sInstance).queryAll(listener);
+    }
 
-            case SHORT:
-                return cursorFieldType == Cursor.FIELD_TYPE_INTEGER;
+    /**
+     * loads one page of the names table, ordered by _ID. see {@link
+     *   Dao#queryPage}.
+     *
+     * @param  context {@code Context} object of the application.
+     * @param  after last row of the previous page; {@code null} to load the
+     *   first page.
+     * @param  limit maximum number of rows in the page.
+     * @param  order order to load the rows in.
+     * @param  listener will have its method invoked as rows are parsed out of
+     *   the query results; may be {@code null}.
+     *
+     * @return the rows of the page; the page is the last one if it contains
+     *   fewer than {@code limit} rows.
+     */
+    public static Row[] getNamesPage(Context context, Row after, int limit,
+                                     Query order, OnRowLoadedListener listener)
+    {
+        return getRowsPage(context, NamesTable.sInstance, BaseColumns._ID, after,
+                limit, order, listener);
+    }
 
-            case STRING:
-                return cursorFieldType == Cursor.FIELD_TYPE_STRING;
+    /**
+     * loads one page of {@code table}. see {@link Dao#queryPage}.
+     */
+    public static Row[] getRowsPage(Context context, Table table, String sortColumn,
+                                    Row after, int limit, Query order,
+                                    OnRowLoadedListener listener)
+    {
+        return getDao(context, table).queryPage(sortColumn, after, limit, order,
+                listener);
+    }
 
-            default:
-                throw new RuntimeException("default case! maybe there is missing case statement " +
-                        "for the case: "+javaType);
-        }
+    /**
+     * loads the {@code projection} columns of one page of {@code table}. see
+     *   {@link Dao#queryPage(String[], String, Row, int, Query,
+     *   OnRowLoadedListener)}.
+     */
+    public static Row[] getRowsPage(Context context, Table table, String[] projection,
+                                    String sortColumn, Row after, int limit,
+                                    Query order, OnRowLoadedListener listener)
+    {
+        return getDao(context, table).queryPage(projection, sortColumn, after,
+                limit, order, listener);
     }
 
     /**
-     * puts the values from {@code column} into {@code values} with the name of
-     *   {@code column} as the key.
+     * searches the first and last names of the names table for names that
+     *   start with the words of {@code prefix}; fast enough to run on every
+     *   keystroke of a type-ahead search. see {@link Dao#search}.
      *
-     * @param values {@code ContentValues} instance to put the key-value pair
-     *   from {@code column} into.
-     * @param column specifies the key and value to put into {@code values}.
+     * @param  context {@code Context} object of the application.
+     * @param  prefix words to search for.
+     * @param  limit maximum number of rows to return.
+     * @param  listener will have its method invoked as matching rows are
+     *   loaded, best match first; may be {@code null}.
+     *
+     * @return the matching rows, best match first.
      */
-    private static void put(ContentValues values, Column column)
+    public static Row[] searchNames(Context context, String prefix, int limit,
+                                    OnRowLoadedListener listener)
     {
-        switch(column.getJavaType())
-        {
+        return getDao(context, NamesTable.sInstance).search(prefix, limit, listener);
+    }
 
-            case BOOLEAN:
-                values.put(column.getName(), column.getBoolean());
-                break;
+    /**
+     * returns the number of names in the names table, counted without loading
+     *   any of them.
+     */
+    public static long countNames(Context context)
+    {
+        return countRows(context, NamesTable.sInstance);
+    }
 
-            case BYTES:
-                values.put(column.getName(), column.getBytes());
-                break;
+    /**
+     * returns the number of rows in {@code table}. see {@link Dao#count}.
+     */
+    public static long countRows(Context context, Table table)
+    {
+        return getDao(context, table).count();
+    }
 
-            case DOUBLE:
-                values.put(column.getName(), column.getDouble());
-                break;
+    /**
+     * returns the smallest value of a column of {@code table}. see {@link
+     *   Dao#min}.
+     */
+    public static Column getMinValue(Context context, Table table, String columnName)
+    {
+        return getDao(context, table).min(columnName);
+    }
 
-            case FLOAT:
-                values.put(column.getName(), column.getFloat());
-                break;
+    /**
+     * returns the largest value of a column of {@code table}. see {@link
+     *   Dao#max}.
+     */
+    public static Column getMaxValue(Context context, Table table, String columnName)
+    {
+        return getDao(context, table).max(columnName);
+    }
 
-            case INT:
-                values.put(column.getName(), column.getInt());
-                break;
+    /**
+     * counts the rows of {@code table} with each value of a column. see {@link
+     *   Dao#countBy}.
+     */
+    public static Map<String, Long> countRowsBy(Context context, Table table,
+                                                String columnName)
+    {
+        return getDao(context, table).countBy(columnName);
+    }
 
-            case LONG:
-                values.put(column.getName(), column.getLong());
-                break;
+    /**
+     * counts the rows of {@code table} with each prefix of a string column.
+     *   see {@link Dao#countByPrefix}.
+     */
+    public static Map<String, Long> countRowsByPrefix(Context context, Table table,
+                                                      String columnName,
+                                                      int prefixLength)
+    {
+        return getDao(context, table).countByPrefix(columnName, prefixLength);
+    }
 
-            case SHORT:
-                values.put(column.getName(), column.getShort());
-                break;
+    /**
+     * returns the distinct combinations of values of columns of {@code
+     *   table}. see {@link Dao#distinct}.
+     */
+    public static Row[] getDistinctRows(Context context, Table table,
+                                        String ... columnNames)
+    {
+        return getDao(context, table).distinct(columnNames);
+    }
 
-            case STRING:
-                values.put(column.getName(), column.getString());
-                break;
-        }
+    public static long insertName(Context context, Name name)
+    {
+        return insertNames(context, Collections.singleton(name))[0];
     }
 
     /**
-     * loads the value from {@code cursor} into {@code column} where the column
-     *   name in {@code cursor} matches {@code column}'s column name.
+     * inserts all the {@code names} into the names table in a single
+     *   transaction; either all of them are inserted, or none are. see {@link
+     *   Dao#insert}.
+     *
+     * @param  context {@code Context} object of the application.
+     * @param  names names to insert into the table.
+     *
+     * @return ids of the inserted rows, in the order of {@code names}.
      *
-     * @param cursor {@code Cursor} object to extract values from.
-     * @param column {@code Column} object to put data into.
+     * @throws SQLiteConstraintException if a name violates a constraint of
+     *   the table; none of the {@code names} are inserted.
      */
-    private static void get(Cursor cursor, Column column)
+    public static long[] insertNames(Context context, Collection<Name> names)
     {
-        int i = cursor.getColumnIndex(column.getName());
+        List<Row> rows = new ArrayList<>(names.size());
+        for(Name name : names)
+        {
+            rows.add(name.toRow());
+        }
+        return insertRows(context, NamesTable.sInstance, rows);
+    }
 
-        switch(column.getJavaType())
+    /**
+     * inserts all the {@code rows} into {@code table} in a single transaction;
+     *   either all of them are inserted, or none are. see {@link Dao#insert}.
+     */
+    public static long[] insertRows(Context context, Table table, Iterable<Row> rows)
+    {
+        return getDao(context, table).insert(rows);
+    }
+
+    public static int updateName(Context context, Name name)
+    {
+        return updateNames(context, Collections.singleton(name));
+    }
+
+    /**
+     * updates the rows of all the {@code names} in the names table in a single
+     *   transaction.
+     *
+     * @param  context {@code Context} object of the application.
+     * @param  names names to update; they must have {@code non-null} ids.
+     *
+     * @return number of rows affected.
+     */
+    public static int updateNames(Context context, Collection<Name> names)
+    {
+        List<Row> rows = new ArrayList<>(names.size());
+        for(Name name : names)
         {
+            rows.add(name.toRow());
+        }
+        return updateRows(context, NamesTable.sInstance, rows);
+    }
 
-            case BOOLEAN:
-                column.setValue(cursor.getInt(i) == 1);
-                break;
+    /**
+     * updates all the {@code rows} in {@code table} by their ids in a single
+     *   transaction. see {@link Dao#update}.
+     */
+    public static int updateRows(Context context, Table table, Iterable<Row> rows)
+    {
+        return getDao(context, table).update(rows);
+    }
 
-            case BYTES:
-                column.setValue(cursor.getBlob(i));
-                break;
+    public static int deleteNames(Context context, long ... ids)
+    {
+        return deleteRows(context, NamesTable.sInstance, ids);
+    }
 
-            case DOUBLE:
-                column.setValue(cursor.getDouble(i));
-                break;
+    /**
+     * deletes the rows with the passed {@code ids} from {@code table} in a
+     *   single transaction. see {@link Dao#delete}.
+     */
+    public static int deleteRows(Context context, Table table, long ... ids)
+    {
+        return getDao(context, table).delete(ids);
+    }
 
-            case FLOAT:
-                column.setValue(cursor.getFloat(i));
-                break;
+    ///////////////////////
+    // private interface //
+    ///////////////////////
 
-            case INT:
-                column.setValue(cursor.getInt(i));
-                break;
+    /**
+     * verifies that {@code file} is an intact database with a schema that this
+     *   version of the application can open.
+     *
+     * @throws IOException if it isn't.
+     */
+    private static void validateBackup(File file) throws IOException
+    {
+        SQLiteDatabase db;
+        try
+        {
+            db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                    SQLiteDatabase.OPEN_READONLY|SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        }
+        catch(SQLiteException e)
+        {
+            throw new IOException(file+" is not a database", e);
+        }
+        try
+        {
+            if(db.getVersion() < 1 || db.getVersion() > DATABASE_VERSION)
+            {
+                throw new IOException(file+" has schema version "+db.getVersion()
+                        +"; expected 1 to "+DATABASE_VERSION);
+            }
+            if(!db.isDatabaseIntegrityOk())
+            {
+                throw new IOException(file+" failed its integrity check");
+            }
+            if(DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master "
+                    +"WHERE type='table' AND name=?",
+                    new String[]{NamesTable.sInstance.getName().toString()}) == 0)
+            {
+                throw new IOException(file+" has no "+NamesTable.sInstance.getName()
+                        +" table");
+            }
+        }
+        catch(SQLiteException e)
+        {
+            throw new IOException(file+" can't be read", e);
+        }
+        finally
+        {
+            db.close();
+        }
+    }
+
+    /**
+     * copies {@code source} to {@code destination} through their channels,
+     *   and syncs {@code destination} to disk.
+     */
+    private static void copyFile(File source, File destination) throws IOException
+    {
+        FileChannel in = new FileInputStream(source).getChannel();
+        try
+        {
+            FileChannel out = new FileOutputStream(destination).getChannel();
+            try
+            {
+                long size = in.size();
+                long position = 0;
+                while(position < size)
+                {
+                    position += in.transferTo(position, size-position, out);
+                }
+                out.force(false);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
 
-            case LONG:
-                column.setValue(cursor.getLong(i));
-                break;
+    /**
+     * retrieves the singleton instance of DBAccess.
+     *
+     * @param  context {@code Context} object of the application.
+     *
+     * @return the singleton instance of {@code DBAccess}.
+     */
+    private static synchronized DBAccess getInstance(Context context)
+    {
+        // calls made from inside a call in flight get the instance being shut
+        // down, so that the outer call can complete and let the shutdown end
+        boolean interrupted = false;
+        while(sPauses > 0 && (sInstance == null || !sInstance.mGate.isEntered()))
+        {
+            try
+            {
+                DBAccess.class.wait();
+            }
+            catch(InterruptedException e)
+            {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
 
-            case SHORT:
-                column.setValue(cursor.getShort(i));
-                break;
+        if(sInstance == null)
+        {
+            sInstance = new DBAccess(context.getApplicationContext());
+        }
+        return sInstance;
+    }
 
-            case STRING:
-                column.setValue(cursor.getString(i));
-                break;
+    /**
+     * ends a pause started by {@link #shutdown()} or {@link #restore},
+     *   letting the calls waiting in {@link #getInstance} through once no
+     *   other pause is in progress. the caller must hold the class lock.
+     */
+    private static void resume()
+    {
+        if(--sPauses == 0)
+        {
+            DBAccess.class.notifyAll();
         }
     }
 
@@ -440,14 +853,35 @@ public class DBAccess extends SQLiteOpenHelper
     @Override
     public void onCreate(SQLiteDatabase db) {
         db.execSQL(NamesTable.sInstance.getCreateTableQuery());
+        for(String query : NamesTable.sInstance.getCreateIndexQueries()) {
+            db.execSQL(query);
+        }
+        for(String query : NamesTable.sInstance.getCreateSearchTableQueries()) {
+            db.execSQL(query);
+        }
+        sMigrations.onCreate(db);
     }
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        switch(oldVersion) {
-            default:
-                db.execSQL(NamesTable.sInstance.getDropTableQuery());
-                onCreate(db);
+        // the helper runs this in a single transaction; the steps only get
+        // scheduled here, and run in onOpen, where they can commit in chunks
+        sMigrations.schedule(db, oldVersion, newVersion);
+    }
+
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        super.onOpen(db);
+        if(!db.isReadOnly()) {
+            sMigrations.runPending(db);
+
+            // a bulk load cut short by the process dying leaves the indexes
+            // it dropped missing; see Dao.dropIndexes
+            if(!Dao.hasIndexes(db, NamesTable.sInstance)) {
+                Log.w(TAG, "recreating the missing indexes of "
+                        +NamesTable.sInstance.getName());
+                Dao.createIndexes(db, NamesTable.sInstance);
+            }
         }
     }
 }
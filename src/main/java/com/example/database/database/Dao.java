@@ -0,0 +1,1592 @@
+package com.example.database.database;
+
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.provider.BaseColumns;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.database.database.core.Column;
+import com.example.database.database.core.ColumnFactory;
+import com.example.database.database.core.DBWords.JavaType;
+import com.example.database.database.core.DBWords.Opening;
+import com.example.database.database.core.DBWords.Query;
+import com.example.database.database.core.Index;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+import com.example.database.database.metrics.Metrics;
+import com.example.database.database.metrics.OperationMetrics;
+import com.example.database.database.storage.AndroidStorage;
+import com.example.database.database.storage.RowCodec;
+import com.example.database.database.storage.RowCursor;
+import com.example.database.database.storage.StorageStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * data access object for a single {@code Table}. the SQL used to insert,
+ *   update, delete and select rows of the table is generated once from the
+ *   table's {@code ColumnFactory} instances, and the compiled statements are
+ *   kept in a bounded LRU cache, so every {@code Table} subclass gets the same
+ *   fast paths without writing any SQL.
+ *
+ * instances are obtained through {@link DBAccess#getDao}, and are only valid
+ *   until {@link DBAccess#shutdown()} is called; calls made through them
+ *   afterwards throw {@code IllegalStateException}. the shutdown waits for
+ *   the calls that are in flight to return.
+ *
+ * the database is in write-ahead logging mode, so {@code SQLiteDatabase}
+ *   runs queries from different threads in parallel on its own pool of
+ *   read-only connections, while writes are made on its primary connection;
+ *   queries made inside a transaction stay on the primary connection, to see
+ *   its writes.
+ *
+ * @param <T> type of the table accessed by this instance.
+ */
+public class Dao<T extends Table>
+{
+    public static final String TAG = Dao.class.getSimpleName();
+
+    /**
+     * maximum number of ids deleted by a single delete statement; kept well
+     *   below SQLite's default limit of 999 host parameters per statement.
+     */
+    public static final int DELETE_CHUNK_SIZE = 500;
+
+    /**
+     * maximum number of compiled statements kept open per table.
+     */
+    public static final int MAX_CACHED_STATEMENTS = 16;
+
+    /**
+     * table accessed by this instance.
+     */
+    private final T mTable;
+
+    /**
+     * database connection the statements are compiled on, and writes are
+     *   made on.
+     */
+    private final SQLiteDatabase mDatabase;
+
+    /**
+     * {@code Storage} view of {@code mDatabase}; statements are compiled
+     *   through it, so rows are bound by the same {@code RowCodec} as on every
+     *   other storage engine.
+     */
+    private final AndroidStorage mStorage;
+
+    /**
+     * gate that every call touching {@code mDatabase} goes through, so that
+     *   the connection isn't closed while the call is in flight.
+     */
+    private final ConnectionGate mGate;
+
+    /**
+     * names of the columns written by inserts, in placeholder order.
+     */
+    private final String[] mDataColumnNames;
+
+    /**
+     * query used to insert a row.
+     */
+    private final String mInsertQuery;
+
+    /**
+     * query used to delete a full chunk of rows.
+     */
+    private final String mDeleteChunkQuery;
+
+    /**
+     * query used to select every column of every row.
+     */
+    private final String mSelectQuery;
+
+    /**
+     * query used to count the rows of the table.
+     */
+    private final String mCountQuery;
+
+    /**
+     * query used to search the table through its FTS4 shadow table; {@code
+     *   null} if the table has no search columns. its placeholders are the
+     *   full-text query, a LIKE pattern used for ranking, and the row limit.
+     */
+    private final String mSearchQuery;
+
+    /**
+     * page queries that have been generated, keyed by projection, sort column,
+     *   order and whether the query seeks past a previous page.
+     */
+    private final Map<String, String> mPageQueries;
+
+    /**
+     * compiled statements, keyed by their SQL. evicted statements are closed.
+     */
+    private final LruCache<String, StorageStatement> mStatements;
+
+    /**
+     * cache of query results, shared with the {@code Dao} instances of other
+     *   tables.
+     */
+    private final QueryCache mResultCache;
+
+    /**
+     * bus that changes made through this instance are published to.
+     */
+    private final ChangeBus mChangeBus;
+
+    /**
+     * metrics that the operations of this instance are recorded into,
+     *   shared with the {@code Dao} instances of other tables.
+     */
+    private final Metrics mMetrics;
+
+    /**
+     * log that the queries of this instance that are too slow are recorded
+     *   in, shared with the {@code Dao} instances of other tables.
+     */
+    private final SlowQueryLog mSlowQueries;
+
+    /**
+     * metrics of each operation of this instance; they are named after the
+     *   table and the operation, e.g. "Names.insert".
+     */
+    private final OperationMetrics mQueryAllMetrics;
+    private final OperationMetrics mQueryPageMetrics;
+    private final OperationMetrics mSearchMetrics;
+    private final OperationMetrics mInsertMetrics;
+    private final OperationMetrics mBulkInsertMetrics;
+    private final OperationMetrics mUpdateMetrics;
+    private final OperationMetrics mDeleteMetrics;
+
+    /**
+     * metrics of parsing rows out of cursors, for every query of the table.
+     */
+    private final OperationMetrics mDecodeMetrics;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a {@code Dao} for {@code table}.
+     *
+     * @param  database database connection to compile statements on, and
+     *   make writes on.
+     * @param  gate gate that calls touching {@code database} go through.
+     * @param  table table accessed by the instance.
+     * @param  resultCache cache to keep query results in.
+     * @param  changeBus bus to publish changes made through the instance to.
+     * @param  metrics metrics to record the operations of the instance into.
+     * @param  slowQueries log to record the slow queries of the instance in.
+     */
+    Dao(SQLiteDatabase database, ConnectionGate gate, T table, QueryCache resultCache,
+        ChangeBus changeBus, Metrics metrics, SlowQueryLog slowQueries)
+    {
+        mSlowQueries = slowQueries;
+        mChangeBus = changeBus;
+        mMetrics = metrics;
+        mQueryAllMetrics = metrics.getOperation(table.getName()+".queryAll");
+        mQueryPageMetrics = metrics.getOperation(table.getName()+".queryPage");
+        mSearchMetrics = metrics.getOperation(table.getName()+".search");
+        mInsertMetrics = metrics.getOperation(table.getName()+".insert");
+        mBulkInsertMetrics = metrics.getOperation(table.getName()+".bulkInsert");
+        mUpdateMetrics = metrics.getOperation(table.getName()+".update");
+        mDeleteMetrics = metrics.getOperation(table.getName()+".delete");
+        mDecodeMetrics = metrics.getOperation(table.getName()+".decode");
+        mDatabase = database;
+        mStorage = new AndroidStorage(database);
+        mGate = gate;
+        mResultCache = resultCache;
+        mTable = table;
+        mDataColumnNames = table.getDataColumnNames();
+        mInsertQuery = table.getInsertQuery();
+        mDeleteChunkQuery = table.getDeleteQuery(DELETE_CHUNK_SIZE);
+        mSelectQuery = table.getSelectQuery(table.getColumnNames());
+        mCountQuery = table.getSelectQuery("COUNT(*)");
+        mSearchQuery = makeSearchQuery(table);
+        mPageQueries = new HashMap<>();
+        mStatements = new LruCache<String, StorageStatement>(MAX_CACHED_STATEMENTS)
+        {
+            @Override
+            protected void entryRemoved(boolean evicted, String sql,
+                                        StorageStatement oldValue,
+                                        StorageStatement newValue)
+            {
+                oldValue.close();
+            }
+        };
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the table accessed by this instance.
+     *
+     * @return table accessed by this instance.
+     */
+    public T getTable()
+    {
+        return mTable;
+    }
+
+    /**
+     * loads every row of the table, passing each one to the {@code listener}
+     *   as soon as it is parsed. see {@link #streamRows}.
+     *
+     * @param  listener will have its method invoked as rows are parsed out of
+     *   the query results; may be {@code null}.
+     *
+     * @return number of rows loaded.
+     */
+    public int queryAll(DBAccess.OnRowLoadedListener listener)
+    {
+        return queryAll(null, listener);
+    }
+
+    /**
+     * loads the {@code projection} columns of every row of the table, passing
+     *   each row to the {@code listener} as soon as it is parsed. only the
+     *   selected columns are copied into the cursor window and decoded, which
+     *   matters when the table has wide TEXT or BLOB columns that the caller
+     *   doesn't need. see {@link #streamRows}.
+     *
+     * @param  projection names of the columns to select; _ID is always
+     *   selected. {@code null} selects every column.
+     * @param  listener will have its method invoked as rows are parsed out of
+     *   the query results; may be {@code null}. the rows are partial if the
+     *   projection doesn't have every column of the table.
+     *
+     * @return number of rows loaded.
+     */
+    public int queryAll(String[] projection, DBAccess.OnRowLoadedListener listener)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            String query = (projection == null)
+                    ? mSelectQuery
+                    : mTable.getSelectQuery(makeProjection(projection, BaseColumns._ID));
+            Cursor cursor = rawQuery(query, null);
+            int rowCount = streamRows(cursor, listener);
+            mQueryAllMetrics.record(start, rowCount);
+            return rowCount;
+        }
+        catch(RuntimeException e)
+        {
+            mQueryAllMetrics.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * loads one page of the table, ordered by {@code sortColumn} and then _ID.
+     *   pages are found with keyset pagination: instead of skipping the rows of
+     *   previous pages with an OFFSET, the query seeks directly to the rows
+     *   that come after the last row of the previous page. the cost of loading
+     *   a page stays the same no matter how deep into the table the page is,
+     *   as long as {@code sortColumn} is _ID or is indexed.
+     *
+     * @param  sortColumn name of the column to order the rows by.
+     * @param  after last row of the previous page; {@code null} to load the
+     *   first page.
+     * @param  limit maximum number of rows in the page.
+     * @param  order order to load the rows in.
+     * @param  listener will have its method invoked as rows are parsed out of
+     *   the query results; may be {@code null}.
+     *
+     * @return the rows of the page; the page is the last one if it contains
+     *   fewer than {@code limit} rows. the rows may be shared with other
+     *   callers through the result cache, and must not be modified.
+     */
+    public Row[] queryPage(String sortColumn, Row after, int limit, Query order,
+                           DBAccess.OnRowLoadedListener listener)
+    {
+        return queryPage(null, sortColumn, after, limit, order, listener);
+    }
+
+    /**
+     * loads the {@code projection} columns of one page of the table. see
+     *   {@link #queryPage(String, Row, int, Query, DBAccess.OnRowLoadedListener)}.
+     *
+     * @param  projection names of the columns to select; _ID and {@code
+     *   sortColumn} are always selected, since the next page is found by
+     *   their values. {@code null} selects every column.
+     *
+     * @return the rows of the page; they are partial if the projection doesn't
+     *   have every column of the table.
+     */
+    public Row[] queryPage(String[] projection, String sortColumn, Row after,
+                           int limit, Query order,
+                           DBAccess.OnRowLoadedListener listener)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            String[] columnNames = (projection == null)
+                    ? null
+                    : makeProjection(projection, sortColumn);
+
+            // the version must be read before querying; if a write commits while
+            // the query runs, the cached result is already out of date
+            long version = mTable.getVersion();
+            String cacheKey = "page,"+((columnNames == null) ? "*" : Arrays.toString(columnNames))
+                    +","+sortColumn+order+","+limit+","
+                    +((after == null) ? "" : after.getId()+","+toSelectionArg(after.getColumn(sortColumn)));
+            Row[] cachedRows = mResultCache.get(mTable, cacheKey);
+            if(cachedRows != null)
+            {
+                if(listener != null)
+                {
+                    for(Row row : cachedRows)
+                    {
+                        listener.onRowLoaded(row);
+                    }
+                }
+                mQueryPageMetrics.record(start, cachedRows.length);
+                return cachedRows;
+            }
+
+            boolean byId = sortColumn.equals(BaseColumns._ID);
+            String[] selectionArgs;
+            if(after == null)
+            {
+                selectionArgs = new String[]{String.valueOf(limit)};
+            }
+            else if(byId)
+            {
+                selectionArgs = new String[]{String.valueOf(after.getId()),
+                        String.valueOf(limit)};
+            }
+            else
+            {
+                String afterValue = toSelectionArg(after.getColumn(sortColumn));
+                selectionArgs = new String[]{afterValue, afterValue,
+                        String.valueOf(after.getId()), String.valueOf(limit)};
+            }
+
+            Cursor cursor = rawQuery(
+                    getPageQuery(columnNames, sortColumn, after != null, order),
+                    selectionArgs);
+            Row[] rows = cursorToRows(cursor, listener);
+            mResultCache.put(mTable, version, cacheKey, rows);
+            mQueryPageMetrics.record(start, rows.length);
+            return rows;
+        }
+        catch(RuntimeException e)
+        {
+            mQueryPageMetrics.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * searches the table's search columns for rows containing words that start
+     *   with each of the words in {@code prefix}, using the table's FTS4 shadow
+     *   table. rows are ranked by how many of their search columns start with
+     *   the first word of {@code prefix}, and then by _ID.
+     *
+     * @param  prefix words to search for; typically what the user has typed so
+     *   far. characters other than letters and digits separate words.
+     * @param  limit maximum number of rows to return.
+     * @param  listener will have its method invoked as rows are parsed out of
+     *   the query results; may be {@code null}.
+     *
+     * @return the matching rows, best match first. the rows may be shared with
+     *   other callers through the result cache, and must not be modified.
+     */
+    public Row[] search(String prefix, int limit, DBAccess.OnRowLoadedListener listener)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            if(mSearchQuery == null)
+            {
+                throw new IllegalStateException(mTable.getName()+" has no search columns");
+            }
+
+            // build a full-text query matching words that start with each word
+            // of the prefix, e.g. "jo sm" becomes "jo* sm*"
+            String[] words = prefix.split("[^\\p{L}\\p{N}]+");
+            StringBuilder match = new StringBuilder();
+            String firstWord = null;
+            for(String word : words)
+            {
+                if(!word.isEmpty())
+                {
+                    match.append((firstWord == null) ? "" : " ").append(word).append('*');
+                    firstWord = (firstWord == null) ? word : firstWord;
+                }
+            }
+            if(firstWord == null)
+            {
+                return new Row[0];
+            }
+
+            long version = mTable.getVersion();
+            String cacheKey = "search,"+limit+","+match;
+            Row[] rows = mResultCache.get(mTable, cacheKey);
+            if(rows == null)
+            {
+                Cursor cursor = rawQuery(mSearchQuery, new String[]{
+                        match.toString(), firstWord+"%", String.valueOf(limit)});
+                rows = cursorToRows(cursor, null);
+                mResultCache.put(mTable, version, cacheKey, rows);
+            }
+
+            if(listener != null)
+            {
+                for(Row row : rows)
+                {
+                    listener.onRowLoaded(row);
+                }
+            }
+            mSearchMetrics.record(start, rows.length);
+            return rows;
+        }
+        catch(RuntimeException e)
+        {
+            mSearchMetrics.recordError();
+            throw e;
+        }
+    }
+
+    /**
+     * returns the number of rows in the table, counted by the database
+     *   without loading any of them.
+     *
+     * @return number of rows in the table.
+     */
+    public long count()
+    {
+        mGate.enter();
+        try
+        {
+            return DatabaseUtils.longForQuery(mDatabase, mCountQuery, null);
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * returns the smallest value of the column named {@code columnName}, as
+     *   found by the database; this is a single index lookup if the column is
+     *   the first column of an index.
+     *
+     * @param  columnName name of the column.
+     *
+     * @return a column holding the smallest value; {@code null} if the table
+     *   is empty, or the column only holds NULLs.
+     */
+    public Column min(String columnName)
+    {
+        return aggregate("MIN", columnName);
+    }
+
+    /**
+     * returns the largest value of the column named {@code columnName}. see
+     *   {@link #min}.
+     *
+     * @param  columnName name of the column.
+     *
+     * @return a column holding the largest value; {@code null} if the table
+     *   is empty, or the column only holds NULLs.
+     */
+    public Column max(String columnName)
+    {
+        return aggregate("MAX", columnName);
+    }
+
+    /**
+     * counts the rows of the table that have each distinct value of the column
+     *   named {@code columnName}, grouping them in the database.
+     *
+     * @param  columnName name of the column to group the rows by.
+     *
+     * @return the number of rows with each value, as text, ordered by value.
+     *   NULLs are counted under the {@code null} key.
+     */
+    public Map<String, Long> countBy(String columnName)
+    {
+        requireColumn(columnName);
+        return countGroups(columnName);
+    }
+
+    /**
+     * counts the rows of the table whose TEXT column named {@code columnName}
+     *   starts with each distinct prefix of {@code prefixLength} characters,
+     *   ignoring case; e.g. the number of names for each initial of their last
+     *   name.
+     *
+     * @param  columnName name of the column to group the rows by; it must be a
+     *   string column.
+     * @param  prefixLength number of characters in each prefix.
+     *
+     * @return the number of rows with each prefix, in upper case, ordered by
+     *   prefix. NULLs are counted under the {@code null} key.
+     */
+    public Map<String, Long> countByPrefix(String columnName, int prefixLength)
+    {
+        if(requireColumn(columnName).getJavaType() != JavaType.STRING)
+        {
+            throw new IllegalArgumentException(columnName+" is not a string column");
+        }
+        return countGroups("upper(substr("+columnName+",1,"+prefixLength+"))");
+    }
+
+    /**
+     * returns the distinct combinations of values of the {@code columnNames},
+     *   ordered by the columns in order, as found by the database.
+     *
+     * @param  columnNames names of the columns.
+     *
+     * @return a row for each distinct combination. the rows only have the
+     *   {@code columnNames}, and no id. they may be shared with other callers
+     *   through the result cache, and must not be modified.
+     */
+    public Row[] distinct(String ... columnNames)
+    {
+        StringBuilder columns = new StringBuilder();
+        for(String columnName : columnNames)
+        {
+            requireColumn(columnName);
+            columns.append((columns.length() == 0) ? "" : ",").append(columnName);
+        }
+
+        long version = mTable.getVersion();
+        String cacheKey = "distinct,"+columns;
+        Row[] rows = mResultCache.get(mTable, cacheKey);
+        if(rows == null)
+        {
+            Cursor cursor = rawQuery(Opening.SELECT+"DISTINCT "+columns
+                    +" FROM "+mTable.getName()+" ORDER BY "+columns, null);
+            rows = cursorToRows(cursor, null);
+            mResultCache.put(mTable, version, cacheKey, rows);
+        }
+        return rows;
+    }
+
+    /**
+     * inserts all the {@code rows} into the table in a single transaction. the
+     *   insert statement is compiled once and re-bound for every row; the ids
+     *   of the {@code rows} are ignored, and assigned by the database. once the
+     *   transaction commits, each row's id is set to its new id, and its
+     *   columns are no longer dirty. the insert is all or nothing: the rows
+     *   are either all inserted, or none of them are.
+     *
+     * @param  rows rows to insert; they must have the columns of the table.
+     *
+     * @return ids of the inserted rows, in the order of {@code rows}.
+     *
+     * @throws SQLiteConstraintException if a row violates a constraint of the
+     *   table; the transaction is rolled back, so none of the {@code rows}
+     *   are inserted, and none of them get an id.
+     */
+    public synchronized long[] insert(Iterable<Row> rows)
+    {
+        mGate.enter();
+        try
+        {
+            List<Row> insertedRows = new ArrayList<>();
+            long[] newRowIds = new long[16];
+            int rowCount = 0;
+            long start = System.nanoTime();
+
+            StorageStatement statement = getStatement(mInsertQuery);
+            mDatabase.beginTransaction();
+            try
+            {
+                for(Row row : rows)
+                {
+                    for(int i = 0; i < mDataColumnNames.length; ++i)
+                    {
+                        RowCodec.bind(statement, i+1, row.getColumn(mDataColumnNames[i]));
+                    }
+
+                    if(rowCount == newRowIds.length)
+                    {
+                        newRowIds = Arrays.copyOf(newRowIds, rowCount*2);
+                    }
+                    newRowIds[rowCount++] = statement.executeInsert();
+                    insertedRows.add(row);
+                }
+                mDatabase.setTransactionSuccessful();
+            }
+            finally
+            {
+                mDatabase.endTransaction();
+                mTable.bumpVersion();
+            }
+
+            for(int i = 0; i < rowCount; ++i)
+            {
+                insertedRows.get(i).setId(newRowIds[i]);
+                insertedRows.get(i).clearDirty();
+            }
+            mChangeBus.publishInserted(mDatabase, mTable,
+                    insertedRows.toArray(new Row[rowCount]));
+
+            recordWrite(mInsertMetrics, rowCount, start);
+            return Arrays.copyOf(newRowIds, rowCount);
+        }
+        catch(RuntimeException e)
+        {
+            mInsertMetrics.recordError();
+            throw e;
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * inserts all the {@code rows} into the table in a single transaction,
+     *   without keeping track of them: unlike {@link #insert}, the rows don't
+     *   get their ids, and no change is published for them, so the same
+     *   {@code Row} instance may be refilled and returned by the iterator for
+     *   every row. meant for bulk loads, which should call {@link
+     *   #invalidate()} once they are done.
+     *
+     * @param  rows rows to insert; they must have the columns of the table.
+     *
+     * @return number of rows inserted.
+     */
+    public synchronized int bulkInsert(Iterable<Row> rows)
+    {
+        mGate.enter();
+        try
+        {
+            int rowCount = 0;
+            long start = System.nanoTime();
+
+            StorageStatement statement = getStatement(mInsertQuery);
+            mDatabase.beginTransaction();
+            try
+            {
+                for(Row row : rows)
+                {
+                    for(int i = 0; i < mDataColumnNames.length; ++i)
+                    {
+                        RowCodec.bind(statement, i+1, row.getColumn(mDataColumnNames[i]));
+                    }
+                    statement.executeInsert();
+                    ++rowCount;
+                }
+                mDatabase.setTransactionSuccessful();
+            }
+            finally
+            {
+                mDatabase.endTransaction();
+                mTable.bumpVersion();
+            }
+
+            recordWrite(mBulkInsertMetrics, rowCount, start);
+            return rowCount;
+        }
+        catch(RuntimeException e)
+        {
+            mBulkInsertMetrics.recordError();
+            throw e;
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * updates all the {@code rows} by their ids in a single transaction. only
+     *   the dirty columns of each row are written; rows without any dirty
+     *   columns are skipped. there is one update statement for each distinct
+     *   set of dirty columns; it is compiled the first time it is needed, and
+     *   re-bound for every row that has that set. once the outermost
+     *   transaction commits, the columns of the updated rows are no longer
+     *   dirty; if it rolls back, they stay dirty.
+     *
+     * the {@code rows} are iterated once, so they may be produced on the fly.
+     *
+     * @param  rows rows to update; they must have {@code non-null} ids. they
+     *   may be partial, e.g. loaded with a projection; only the columns they
+     *   have can be dirty.
+     *
+     * @return number of rows affected.
+     */
+    public synchronized int update(Iterable<Row> rows)
+    {
+        mGate.enter();
+        try
+        {
+            List<String> dirtyColumnNames = new ArrayList<>(mDataColumnNames.length);
+            List<Row> updatedRows = new ArrayList<>();
+            int rowsAffected = 0;
+            int rowCount = 0;
+            long start = System.nanoTime();
+
+            mDatabase.beginTransaction();
+            try
+            {
+                for(Row row : rows)
+                {
+                    if(row.getId() == null)
+                    {
+                        throw new IllegalArgumentException("all {@code rows} must have "
+                                +"{@code non-null} ids.");
+                    }
+
+                    dirtyColumnNames.clear();
+                    for(String columnName : mDataColumnNames)
+                    {
+                        if(row.hasColumn(columnName) && row.getColumn(columnName).isDirty())
+                        {
+                            dirtyColumnNames.add(columnName);
+                        }
+                    }
+                    if(dirtyColumnNames.isEmpty())
+                    {
+                        continue;
+                    }
+
+                    // the statement is looked up right before it is used, so it
+                    // can't have been evicted from the cache in the meantime
+                    StorageStatement statement = getStatement(mTable.getUpdateQuery(
+                            dirtyColumnNames.toArray(new String[dirtyColumnNames.size()])));
+                    for(int i = 0; i < dirtyColumnNames.size(); ++i)
+                    {
+                        RowCodec.bind(statement, i+1, row.getColumn(dirtyColumnNames.get(i)));
+                    }
+                    statement.bindLong(dirtyColumnNames.size()+1, row.getId());
+                    rowsAffected += statement.executeUpdateDelete();
+                    updatedRows.add(row);
+                    ++rowCount;
+                }
+                mDatabase.setTransactionSuccessful();
+            }
+            finally
+            {
+                mDatabase.endTransaction();
+                mTable.bumpVersion();
+            }
+
+            // the bus marks the rows clean once the change is committed
+            if(rowCount > 0)
+            {
+                mChangeBus.publishUpdated(mDatabase, mTable,
+                        updatedRows.toArray(new Row[rowCount]));
+            }
+
+            recordWrite(mUpdateMetrics, rowCount, start);
+            return rowsAffected;
+        }
+        catch(RuntimeException e)
+        {
+            mUpdateMetrics.recordError();
+            throw e;
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * deletes the rows with the passed {@code ids} in a single transaction.
+     *   the ids are deleted in chunks of at most {@link #DELETE_CHUNK_SIZE}, so
+     *   that the number of "?" placeholders in a statement stays below
+     *   SQLite's host parameter limit no matter how many ids are passed.
+     *
+     * @param  ids ids of the rows to delete.
+     *
+     * @return number of rows affected.
+     */
+    public synchronized int delete(long ... ids)
+    {
+        mGate.enter();
+        try
+        {
+            if(ids.length == 0)
+            {
+                return 0;
+            }
+
+            int rowsAffected = 0;
+            long start = System.nanoTime();
+
+            mDatabase.beginTransaction();
+            try
+            {
+                int offset = 0;
+                while(offset < ids.length)
+                {
+                    int chunkSize = Math.min(ids.length-offset, DELETE_CHUNK_SIZE);
+
+                    // only the last chunk can be smaller than the others; it needs
+                    // a statement with fewer placeholders
+                    StorageStatement statement = getStatement(
+                            (chunkSize == DELETE_CHUNK_SIZE)
+                                    ? mDeleteChunkQuery
+                                    : mTable.getDeleteQuery(chunkSize));
+                    for(int i = 0; i < chunkSize; ++i)
+                    {
+                        statement.bindLong(i+1, ids[offset+i]);
+                    }
+                    rowsAffected += statement.executeUpdateDelete();
+                    offset += chunkSize;
+                }
+                mDatabase.setTransactionSuccessful();
+            }
+            finally
+            {
+                mDatabase.endTransaction();
+                mTable.bumpVersion();
+            }
+
+            mChangeBus.publishDeleted(mDatabase, mTable, ids);
+
+            recordWrite(mDeleteMetrics, ids.length, start);
+            return rowsAffected;
+        }
+        catch(RuntimeException e)
+        {
+            mDeleteMetrics.recordError();
+            throw e;
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * runs {@code operations} inside a single transaction, so that all the
+     *   writes it makes through this or other {@code Dao} instances commit
+     *   together. the transaction is rolled back if {@code operations} throws.
+     *
+     * the changes made by the writes are published to the {@code
+     *   OnTableChangedListener} instances once the outermost transaction has
+     *   committed, and dropped if it rolls back.
+     *
+     * @param  operations writes to run inside the transaction.
+     */
+    public void runInTransaction(Runnable operations)
+    {
+        mGate.enter();
+        try
+        {
+            // only the outermost transaction commits; the changes of nested
+            // ones are held back until then
+            boolean outermost = !mDatabase.inTransaction();
+            CommitListener listener = (outermost) ? new CommitListener() : null;
+            boolean ended = false;
+            mDatabase.beginTransactionWithListener(listener);
+            try
+            {
+                operations.run();
+                mDatabase.setTransactionSuccessful();
+            }
+            finally
+            {
+                try
+                {
+                    mDatabase.endTransaction();
+                    ended = true;
+                }
+                finally
+                {
+                    mTable.bumpVersion();
+                    if(outermost)
+                    {
+                        // the listener learns the outcome right before COMMIT
+                        // runs, which can still fail and throw
+                        if(ended && listener.mCommitted)
+                        {
+                            mChangeBus.commitPending();
+                        }
+                        else
+                        {
+                            mChangeBus.discardPending();
+                        }
+                    }
+                }
+            }
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * publishes that the data of the table was replaced, e.g. by a bulk load,
+     *   so that everything known about the table is reloaded. cached query
+     *   results of the table are dropped.
+     */
+    public void invalidate()
+    {
+        mTable.bumpVersion();
+        mChangeBus.publishInvalidated(mTable);
+    }
+
+    /**
+     * drops the indexes and the full-text search table of the table, so that
+     *   a bulk load doesn't have to update them for every row. {@link
+     *   #createIndexes()} must be called once the load is done; until then,
+     *   lookups may be slow, and searches fail. if the process dies before
+     *   then, they are recreated the next time the database is opened.
+     */
+    public void dropIndexes()
+    {
+        mGate.enter();
+        try
+        {
+            mDatabase.beginTransaction();
+            try
+            {
+                for(String query : mTable.getDropIndexQueries())
+                {
+                    mDatabase.execSQL(query);
+                }
+                if(mSearchQuery != null)
+                {
+                    for(String query : mTable.getDropSearchTableQueries())
+                    {
+                        mDatabase.execSQL(query);
+                    }
+                }
+                mDatabase.setTransactionSuccessful();
+            }
+            finally
+            {
+                mDatabase.endTransaction();
+            }
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    /**
+     * creates the indexes and the full-text search table of the table that
+     *   don't exist, e.g. after {@link #dropIndexes()}. the search table is
+     *   rebuilt from the rows of the table, which is much faster than keeping
+     *   it up to date one row at a time.
+     */
+    public void createIndexes()
+    {
+        mGate.enter();
+        try
+        {
+            createIndexes(mDatabase, mTable);
+        }
+        finally
+        {
+            mGate.exit();
+        }
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * closes all the compiled statements of this instance; called by {@link
+     *   DBAccess#shutdown()} once every call has exited the gate, so none of
+     *   them is in use. it isn't synchronized: a write waiting to enter the
+     *   gate holds the monitor of this instance, and the shutdown holds the
+     *   lock of the gate.
+     */
+    void close()
+    {
+        mStatements.evictAll();
+    }
+
+    /**
+     * returns true if the indexes and the full-text search table declared by
+     *   {@code table} all exist in {@code db}. they are missing if a bulk load
+     *   was cut short, e.g. by the process being killed, between {@link
+     *   #dropIndexes()} and {@link #createIndexes()}.
+     */
+    static boolean hasIndexes(SQLiteDatabase db, Table table)
+    {
+        List<String> names = new ArrayList<>();
+        for(Index index : table.getIndexes())
+        {
+            names.add(index.getName());
+        }
+        if(table.getSearchColumnNames().length > 0)
+        {
+            // the triggers of the search table are dropped and created along
+            // with it, in the same transaction
+            names.add(table.getSearchTableName());
+        }
+        if(names.isEmpty())
+        {
+            return true;
+        }
+
+        StringBuilder q = new StringBuilder(Opening.SELECT
+                +"COUNT(*) FROM sqlite_master WHERE name IN (");
+        for(int i = 0; i < names.size(); ++i)
+        {
+            q.append((i == 0) ? "?" : ",?");
+        }
+        q.append(")");
+        return DatabaseUtils.longForQuery(db, q.toString(),
+                names.toArray(new String[names.size()])) == names.size();
+    }
+
+    /**
+     * creates the indexes and the full-text search table of {@code table}
+     *   that don't exist in {@code db}, in a single transaction; see {@link
+     *   #createIndexes()}.
+     */
+    static void createIndexes(SQLiteDatabase db, Table table)
+    {
+        db.beginTransaction();
+        try
+        {
+            for(String query : table.getCreateIndexQueries())
+            {
+                db.execSQL(query);
+            }
+            String[] searchTableQueries = table.getCreateSearchTableQueries();
+            if(searchTableQueries.length > 0)
+            {
+                // the search table is rebuilt anyway, so it may as well be
+                // recreated if it still exists
+                for(String query : table.getDropSearchTableQueries())
+                {
+                    db.execSQL(query);
+                }
+                for(String query : searchTableQueries)
+                {
+                    db.execSQL(query);
+                }
+                db.execSQL(table.getRebuildSearchTableQuery());
+            }
+            db.setTransactionSuccessful();
+        }
+        finally
+        {
+            db.endTransaction();
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * generates the query used to search {@code table}; see {@link
+     *   #mSearchQuery}.
+     */
+    private static String makeSearchQuery(Table table)
+    {
+        String[] searchColumnNames = table.getSearchColumnNames();
+        if(searchColumnNames.length == 0)
+        {
+            return null;
+        }
+
+        String name = table.getName().toString();
+        String searchName = table.getSearchTableName();
+        StringBuilder q = new StringBuilder("SELECT ");
+        String[] columnNames = table.getColumnNames();
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            q.append((i == 0) ? "" : ",");
+            q.append(name).append('.').append(columnNames[i])
+                    .append(" AS ").append(columnNames[i]);
+        }
+        q.append(" FROM ").append(name).append(" JOIN ").append(searchName)
+                .append(" ON ").append(searchName).append(".docid=")
+                .append(name).append('.').append(BaseColumns._ID)
+                .append(" WHERE ").append(searchName).append(" MATCH ?1");
+        for(int i = 0; i < searchColumnNames.length; ++i)
+        {
+            q.append((i == 0) ? " ORDER BY (" : "+");
+            q.append("(").append(name).append('.').append(searchColumnNames[i])
+                    .append(" LIKE ?2)");
+        }
+        q.append(") DESC,").append(name).append('.').append(BaseColumns._ID)
+                .append(" LIMIT ?3");
+
+        return q.toString();
+    }
+
+    /**
+     * runs the query {@code sql}. the call stays inside {@link #mGate} until
+     *   the returned cursor is closed, so the cursor must always be closed. if
+     *   the query is sampled by the slow-query log, it is timed until then,
+     *   since most of the work of a query is done while its rows are read.
+     *   closing the cursor more than once only closes it once.
+     */
+    private Cursor rawQuery(final String sql, final String[] selectionArgs)
+    {
+        final boolean sampled = mSlowQueries.shouldSample();
+        final long start = (sampled) ? System.nanoTime() : 0;
+        mGate.enter();
+        try
+        {
+            return new CursorWrapper(mDatabase.rawQuery(sql, selectionArgs))
+            {
+                /**
+                 * whether the cursor has been closed.
+                 */
+                private boolean mClosed;
+
+                @Override
+                public void close()
+                {
+                    if(mClosed)
+                    {
+                        return;
+                    }
+                    mClosed = true;
+
+                    try
+                    {
+                        // rows that have been read are already counted; a
+                        // cursor that was never moved hasn't run the query
+                        int position = getPosition();
+                        int rowCount = (position < 0)
+                                ? 0
+                                : (isAfterLast()) ? position : position+1;
+                        super.close();
+                        if(sampled)
+                        {
+                            mSlowQueries.record(mDatabase, sql, selectionArgs, rowCount,
+                                    start);
+                        }
+                    }
+                    finally
+                    {
+                        mGate.exit();
+                    }
+                }
+            };
+        }
+        catch(RuntimeException e)
+        {
+            mGate.exit();
+            throw e;
+        }
+    }
+
+    /**
+     * returns the compiled statement for {@code sql}, compiling it and adding
+     *   it to the cache if it isn't cached yet.
+     *
+     * @param  sql SQL of the statement.
+     *
+     * @return compiled statement for {@code sql}.
+     */
+    private StorageStatement getStatement(String sql)
+    {
+        StorageStatement statement = mStatements.get(sql);
+        if(statement == null)
+        {
+            statement = mStorage.compileStatement(sql);
+            mStatements.put(sql, statement);
+        }
+        return statement;
+    }
+
+    /**
+     * returns the names of the columns selected by a query with {@code
+     *   projection}: the columns of {@code projection}, followed by _ID and
+     *   {@code requiredColumn} if they aren't part of it.
+     *
+     * @param  projection names of the columns requested by the caller.
+     * @param  requiredColumn name of a column the query needs besides _ID.
+     *
+     * @return names of the columns to select.
+     *
+     * @throws IllegalArgumentException if a column is not a column of the
+     *   table.
+     */
+    private String[] makeProjection(String[] projection, String requiredColumn)
+    {
+        Set<String> columnNames = new LinkedHashSet<>(Arrays.asList(projection));
+        columnNames.add(BaseColumns._ID);
+        columnNames.add(requiredColumn);
+        for(String columnName : columnNames)
+        {
+            requireColumn(columnName);
+        }
+        return columnNames.toArray(new String[columnNames.size()]);
+    }
+
+    /**
+     * returns the {@code ColumnFactory} of the column named {@code
+     *   columnName}.
+     *
+     * @throws IllegalArgumentException if the table has no such column.
+     */
+    private ColumnFactory requireColumn(String columnName)
+    {
+        ColumnFactory columnFactory = mTable.getColumnFactory(columnName);
+        if(columnFactory == null)
+        {
+            throw new IllegalArgumentException(mTable.getName()
+                    +" has no column named "+columnName);
+        }
+        return columnFactory;
+    }
+
+    /**
+     * returns the result of the aggregate {@code function} applied to the
+     *   column named {@code columnName}, decoded into a column of the same
+     *   type; {@code null} if the result is NULL.
+     */
+    private Column aggregate(String function, String columnName)
+    {
+        requireColumn(columnName);
+
+        // the result is named after the column, so the decode plan of the
+        // column's projection can parse it
+        Cursor cursor = rawQuery(Opening.SELECT+function+"("+columnName
+                +") AS "+columnName+" FROM "+mTable.getName(), null);
+        try
+        {
+            if(!cursor.moveToFirst() || cursor.isNull(0))
+            {
+                return null;
+            }
+            RowCursor row = AndroidStorage.wrap(cursor);
+            RowCodec codec = RowCodec.forCursor(mTable, row);
+            codec.verify(row);
+            return codec.decode(row).getColumn(columnName);
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * counts the rows of the table for each distinct value of {@code
+     *   groupExpression}; see {@link #countBy}.
+     */
+    private Map<String, Long> countGroups(String groupExpression)
+    {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Cursor cursor = rawQuery(Opening.SELECT+groupExpression
+                +",COUNT(*) FROM "+mTable.getName()+" GROUP BY 1 ORDER BY 1", null);
+        try
+        {
+            while(cursor.moveToNext())
+            {
+                counts.put(cursor.isNull(0) ? null : cursor.getString(0),
+                        cursor.getLong(1));
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        return counts;
+    }
+
+    /**
+     * returns the query used to load a page of the table, generating it if it
+     *   hasn't been generated yet. the query's placeholders are the values of
+     *   the last row of the previous page if {@code seek} is true, followed by
+     *   the page size.
+     *
+     * @param  columnNames names of the columns to select; {@code null} selects
+     *   every column.
+     * @param  sortColumn name of the column to order the rows by.
+     * @param  seek true if the query seeks past the rows of a previous page.
+     * @param  order order to load the rows in.
+     *
+     * @return the query used to load the page.
+     */
+    private synchronized String getPageQuery(String[] columnNames, String sortColumn,
+                                             boolean seek, Query order)
+    {
+        String key = ((columnNames == null) ? "*" : Arrays.toString(columnNames))
+                +sortColumn+order+seek;
+        String query = mPageQueries.get(key);
+        if(query != null)
+        {
+            return query;
+        }
+
+        String comparison = (order == Query.DESC) ? "<" : ">";
+        StringBuilder q = new StringBuilder((columnNames == null)
+                ? mSelectQuery
+                : mTable.getSelectQuery(columnNames));
+        if(sortColumn.equals(BaseColumns._ID))
+        {
+            if(seek)
+            {
+                q.append(" WHERE ").append(BaseColumns._ID).append(comparison).append("?");
+            }
+            q.append(" ORDER BY ").append(BaseColumns._ID).append(order);
+        }
+        else
+        {
+            if(seek)
+            {
+                q.append(" WHERE (").append(sortColumn).append(comparison)
+                        .append("? OR (").append(sortColumn).append("=? AND ")
+                        .append(BaseColumns._ID).append(comparison).append("?))");
+            }
+
+            // _ID breaks ties between rows with the same sort value, so that
+            // every row has a well defined position
+            q.append(" ORDER BY ").append(sortColumn).append(order)
+                    .append(",").append(BaseColumns._ID).append(order);
+        }
+        q.append(" LIMIT ?");
+
+        query = q.toString();
+        mPageQueries.put(key, query);
+        return query;
+    }
+
+    /**
+     * parses the data out of the {@code cursor} using the decode plan for the
+     *   table and the cursor's projection. as the row data gets parsed out of
+     *   the {@code cursor}, callbacks of the {@code listener} will be invoked.
+     *   once all the rows have been loaded, the function also returns an array
+     *   of all the rows. the {@code cursor} is closed.
+     *
+     * @param  cursor Cursor object obtained from a query of the table.
+     * @param  listener will have its method invoked asynchronously as rows are
+     *   parsed out of the {@code cursor}.
+     *
+     * @return array of {@code Row} objects loaded from the {@code cursor}.
+     */
+    private Row[] cursorToRows(Cursor cursor, DBAccess.OnRowLoadedListener listener)
+    {
+        try
+        {
+            // in order to use getType properly, the cursor must be at a row.
+            // there is nothing to verify or parse when the result is empty,
+            // which is common for the last page of a paginated query.
+            if(!cursor.moveToFirst())
+            {
+                return new Row[0];
+            }
+
+            // verify that the column types correspond with the java types.
+            RowCursor rowCursor = AndroidStorage.wrap(cursor);
+            RowCodec codec = RowCodec.forCursor(mTable, rowCursor);
+            codec.verify(rowCursor);
+
+            // extract the column data into rows
+            long start = System.nanoTime();
+            long byteCount = 0;
+            boolean measureBytes = mMetrics.isEnabled();
+            Row[] rows = new Row[cursor.getCount()];
+            for(int i = 0; !cursor.isAfterLast(); ++i)
+            {
+                rows[i] = codec.decode(rowCursor);
+                byteCount += (measureBytes) ? sizeOf(rows[i]) : 0;
+
+                cursor.moveToNext();
+
+                // if a callback listener was passed, invoke it
+                if(listener != null)
+                {
+                    listener.onRowLoaded(rows[i]);
+                }
+            }
+            recordDecode(rows.length, byteCount, start);
+            return rows;
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * parses the data out of the {@code cursor} one row at a time, passing each
+     *   row to the {@code listener} as soon as it is parsed. unlike {@link
+     *   #cursorToRows}, rows are not collected, so memory use stays constant
+     *   no matter how many rows the query returns, and the result is never
+     *   counted up front. the {@code cursor} is closed.
+     *
+     * @param  cursor Cursor object obtained from a query of the table.
+     * @param  listener will have its method invoked as rows are parsed out of
+     *   the {@code cursor}; may be {@code null}.
+     *
+     * @return number of rows parsed out of the {@code cursor}.
+     */
+    private int streamRows(Cursor cursor, DBAccess.OnRowLoadedListener listener)
+    {
+        try
+        {
+            RowCursor rowCursor = AndroidStorage.wrap(cursor);
+            RowCodec codec = null;
+            int rowCount = 0;
+            long start = System.nanoTime();
+            long byteCount = 0;
+            boolean measureBytes = mMetrics.isEnabled();
+            while(cursor.moveToNext())
+            {
+                // the plan is resolved, and the types verified, once the
+                // cursor is at the first row
+                if(codec == null)
+                {
+                    codec = RowCodec.forCursor(mTable, rowCursor);
+                    codec.verify(rowCursor);
+                }
+
+                Row row = codec.decode(rowCursor);
+                byteCount += (measureBytes) ? sizeOf(row) : 0;
+                ++rowCount;
+
+                // if a callback listener was passed, invoke it
+                if(listener != null)
+                {
+                    listener.onRowLoaded(row);
+                }
+            }
+            recordDecode(rowCount, byteCount, start);
+            return rowCount;
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * records the rows and bytes parsed out of a cursor into the decode
+     *   metrics.
+     *
+     * @param  rowCount number of rows parsed.
+     * @param  byteCount number of bytes of column values parsed.
+     * @param  start value of {@link System#nanoTime()} when parsing started.
+     */
+    private void recordDecode(int rowCount, long byteCount, long start)
+    {
+        mDecodeMetrics.record(start, rowCount, byteCount);
+        mMetrics.addRowsRead(rowCount);
+        mMetrics.addBytesDecoded(byteCount);
+    }
+
+    /**
+     * returns the number of bytes used by the values of the columns of {@code
+     *   row}.
+     */
+    private static long sizeOf(Row row)
+    {
+        long size = 0;
+        for(Column column : row.getColumns().values())
+        {
+            size += column.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * returns the value of {@code column} as a string that can be used as a
+     *   selection argument of a query.
+     *
+     * @param  column column whose value is returned.
+     *
+     * @return the value of {@code column} as a selection argument.
+     */
+    private static String toSelectionArg(Column column)
+    {
+        switch(column.getJavaType())
+        {
+
+            case BOOLEAN:
+                return column.getBoolean() ? "1" : "0";
+
+            case DOUBLE:
+                return String.valueOf(column.getDouble());
+
+            case FLOAT:
+                return String.valueOf(column.getFloat());
+
+            case INT:
+                return String.valueOf(column.getInt());
+
+            case LONG:
+                return String.valueOf(column.getLong());
+
+            case SHORT:
+                return String.valueOf(column.getShort());
+
+            case STRING:
+                return column.getString();
+
+            default:
+                throw new IllegalArgumentException("cannot compare "+column.getJavaType()
+                        +" columns with selection arguments");
+        }
+    }
+
+    /**
+     * records a batch write into its {@code operation} metrics, and logs how
+     *   many rows per second it processed.
+     *
+     * @param operation metrics of the batch operation.
+     * @param rowCount number of rows processed by the operation.
+     * @param start value of {@link System#nanoTime()} when the operation
+     *   started.
+     */
+    private void recordWrite(OperationMetrics operation, int rowCount, long start)
+    {
+        operation.record(start, rowCount);
+        mMetrics.addRowsWritten(rowCount);
+
+        long elapsedNanos = System.nanoTime()-start;
+        if(rowCount > 0 && Log.isLoggable(TAG, Log.DEBUG))
+        {
+            Log.d(TAG, operation.getName()+": "+rowCount+" rows in "
+                    +(elapsedNanos/1000000)+" ms ("
+                    +(rowCount*1000000000L/Math.max(elapsedNanos, 1))+" rows/s)");
+        }
+    }
+
+    /**
+     * records whether the transaction it is attached to is committing; a
+     *   nested transaction that wasn't successful makes it roll back, even
+     *   if it is marked successful itself.
+     */
+    private static class CommitListener implements SQLiteTransactionListener
+    {
+        boolean mCommitted;
+
+        @Override
+        public void onBegin()
+        {
+        }
+
+        @Override
+        public void onCommit()
+        {
+            mCommitted = true;
+        }
+
+        @Override
+        public void onRollback()
+        {
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package com.example.database.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.database.database.core.DBWords.Opening;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * a consistent copy of a database, made while the database stays open, and
+ *   the measurements of making it. created through {@link DBAccess#backup}.
+ *
+ * the copy is made from a single transaction on the database's connection;
+ *   with write-ahead logging, that transaction reads one snapshot of the
+ *   database while other connections keep reading, and only writers wait for
+ *   it to end. the rows of every table are copied into a new database file,
+ *   then the indexes, triggers and full-text search tables are created in the
+ *   copy and the search tables rebuilt, after the snapshot has been released.
+ *   the copy is written to a temporary file, which replaces the destination
+ *   once it is complete.
+ *
+ * SQLite's online backup API and VACUUM INTO would do the same, but neither
+ *   is available through {@code SQLiteDatabase} on the supported API levels,
+ *   and attaching the destination to the open connection would turn off
+ *   write-ahead logging.
+ */
+public final class DatabaseBackup
+{
+    public static final String TAG = DatabaseBackup.class.getSimpleName();
+
+    /**
+     * number of rows written to the copy in each of its transactions.
+     */
+    private static final int CHUNK_SIZE = 10000;
+
+    /**
+     * file the copy was written to.
+     */
+    private final File mFile;
+
+    /**
+     * time that writers of the database were blocked by the copy.
+     */
+    private final long mPauseNanos;
+
+    /**
+     * total time taken to make the copy.
+     */
+    private final long mElapsedNanos;
+
+    /**
+     * number of rows copied.
+     */
+    private final long mRowCount;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    private DatabaseBackup(File file, long pauseNanos, long elapsedNanos, long rowCount)
+    {
+        mFile = file;
+        mPauseNanos = pauseNanos;
+        mElapsedNanos = elapsedNanos;
+        mRowCount = rowCount;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the file the copy was written to.
+     */
+    public File getFile()
+    {
+        return mFile;
+    }
+
+    /**
+     * returns the size of the copy, in bytes.
+     */
+    public long getSize()
+    {
+        return mFile.length();
+    }
+
+    /**
+     * returns how long writers of the database were blocked while its
+     *   snapshot was copied, in nanoseconds. readers are never blocked.
+     */
+    public long getPauseNanos()
+    {
+        return mPauseNanos;
+    }
+
+    /**
+     * returns the total time taken to make the copy, in nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return mElapsedNanos;
+    }
+
+    /**
+     * returns the number of rows copied, across all tables.
+     */
+    public long getRowCount()
+    {
+        return mRowCount;
+    }
+
+    /**
+     * returns the average number of bytes of the copy written per second.
+     */
+    public long getBytesPerSecond()
+    {
+        return getSize()*1000000000L/Math.max(mElapsedNanos, 1);
+    }
+
+    @Override
+    public String toString()
+    {
+        return mFile+": "+getSize()+" bytes, "+mRowCount+" rows in "
+                +mElapsedNanos/1000000+" ms ("+getBytesPerSecond()+" bytes/s), "
+                +"writers paused for "+mPauseNanos/1000000+" ms";
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * copies {@code source} into {@code destination}; see the class comment.
+     *
+     * @param  source open database to copy.
+     * @param  destination file to write the copy to; it is replaced if it
+     *   exists.
+     *
+     * @return the backup.
+     *
+     * @throws IOException if the copy can't replace {@code destination}.
+     */
+    static DatabaseBackup create(SQLiteDatabase source, File destination)
+            throws IOException
+    {
+        long start = System.nanoTime();
+        File tempFile = new File(destination.getPath()+".tmp");
+        SQLiteDatabase.deleteDatabase(tempFile);
+
+        // android_metadata is copied from the source like any other table,
+        // instead of being created along with the copy
+        SQLiteDatabase copy = SQLiteDatabase.openDatabase(tempFile.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY|SQLiteDatabase.NO_LOCALIZED_COLLATORS);
+        List<String> deferredSchema = new ArrayList<>();
+        List<String> searchTables = new ArrayList<>();
+        long rowCount = 0;
+        long pauseNanos;
+        boolean copied = false;
+        try
+        {
+            long pauseStart = System.nanoTime();
+            source.beginTransactionNonExclusive();
+            try
+            {
+                copy.setVersion(source.getVersion());
+                for(String table : copySchema(source, copy, deferredSchema, searchTables))
+                {
+                    rowCount += copyRows(source, copy, table);
+                }
+                source.setTransactionSuccessful();
+            }
+            finally
+            {
+                source.endTransaction();
+                pauseNanos = System.nanoTime()-pauseStart;
+            }
+
+            copy.beginTransaction();
+            try
+            {
+                for(String query : deferredSchema)
+                {
+                    copy.execSQL(query);
+                }
+                for(String searchTable : searchTables)
+                {
+                    copy.execSQL(Opening.INSERT_INTO+searchTable+"("+searchTable
+                            +") VALUES('rebuild')");
+                }
+                copy.setTransactionSuccessful();
+            }
+            finally
+            {
+                copy.endTransaction();
+            }
+            copied = true;
+        }
+        finally
+        {
+            copy.close();
+            if(!copied)
+            {
+                SQLiteDatabase.deleteDatabase(tempFile);
+            }
+        }
+
+        if(!tempFile.renameTo(destination))
+        {
+            SQLiteDatabase.deleteDatabase(tempFile);
+            throw new IOException("failed to replace "+destination);
+        }
+
+        DatabaseBackup backup = new DatabaseBackup(destination, pauseNanos,
+                System.nanoTime()-start, rowCount);
+        Log.i(TAG, "backed up "+backup);
+        return backup;
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * creates the tables of {@code source} in {@code copy}, and collects the
+     *   rest of the schema into {@code deferredSchema}, in creation order, and
+     *   the names of the full-text search tables into {@code searchTables}.
+     *
+     * @return names of the tables whose rows must be copied. the internal
+     *   tables of SQLite and of the full-text search tables are left out;
+     *   they are recreated with the rest of the schema.
+     */
+    private static List<String> copySchema(SQLiteDatabase source, SQLiteDatabase copy,
+                                           List<String> deferredSchema,
+                                           List<String> searchTables)
+    {
+        List<String> tables = new ArrayList<>();
+        List<String> tableQueries = new ArrayList<>();
+        List<String> virtualTables = new ArrayList<>();
+        List<String> indexesAndTriggers = new ArrayList<>();
+
+        Cursor cursor = source.rawQuery(Opening.SELECT+"type,name,sql FROM "
+                +"sqlite_master WHERE sql NOT NULL AND name NOT LIKE 'sqlite_%' "
+                +"ORDER BY rowid", null);
+        try
+        {
+            while(cursor.moveToNext())
+            {
+                String type = cursor.getString(0);
+                String name = cursor.getString(1);
+                String sql = cursor.getString(2);
+                if(!type.equals("table"))
+                {
+                    indexesAndTriggers.add(sql);
+                }
+                else if(sql.toUpperCase().startsWith("CREATE VIRTUAL TABLE"))
+                {
+                    virtualTables.add(name);
+                    deferredSchema.add(sql);
+                    if(sql.toLowerCase().contains("using fts"))
+                    {
+                        searchTables.add(name);
+                    }
+                }
+                else
+                {
+                    tables.add(name);
+                    tableQueries.add(sql);
+                }
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+        deferredSchema.addAll(indexesAndTriggers);
+
+        // the shadow tables of a virtual table are named after it, and are
+        // created along with it
+        List<String> copiedTables = new ArrayList<>();
+        for(int i = 0; i < tables.size(); ++i)
+        {
+            boolean shadow = false;
+            for(String virtualTable : virtualTables)
+            {
+                shadow |= tables.get(i).startsWith(virtualTable+"_");
+            }
+            if(!shadow)
+            {
+                copy.execSQL(tableQueries.get(i));
+                copiedTables.add(tables.get(i));
+            }
+        }
+        return copiedTables;
+    }
+
+    /**
+     * copies the rows of {@code table} from {@code source} to {@code copy},
+     *   {@link #CHUNK_SIZE} rows per transaction of {@code copy}.
+     *
+     * @return number of rows copied.
+     */
+    private static long copyRows(SQLiteDatabase source, SQLiteDatabase copy, String table)
+    {
+        Cursor cursor = source.rawQuery(Opening.SELECT+"* FROM "+table, null);
+        SQLiteStatement insert = null;
+        long rowCount = 0;
+        try
+        {
+            int columnCount = cursor.getColumnCount();
+            StringBuilder q = new StringBuilder();
+            q.append(Opening.INSERT_INTO).append(table);
+            for(int i = 0; i < columnCount; ++i)
+            {
+                q.append((i == 0) ? "(" : ",").append(cursor.getColumnName(i));
+            }
+            q.append(") VALUES");
+            for(int i = 0; i < columnCount; ++i)
+            {
+                q.append((i == 0) ? "(?" : ",?");
+            }
+            q.append(")");
+            insert = copy.compileStatement(q.toString());
+
+            while(cursor.moveToNext())
+            {
+                if(rowCount%CHUNK_SIZE == 0)
+                {
+                    if(rowCount > 0)
+                    {
+                        copy.setTransactionSuccessful();
+                        copy.endTransaction();
+                    }
+                    copy.beginTransaction();
+                }
+
+                for(int i = 0; i < columnCount; ++i)
+                {
+                    switch(cursor.getType(i))
+                    {
+
+                        case Cursor.FIELD_TYPE_NULL:
+                            insert.bindNull(i+1);
+                            break;
+
+                        case Cursor.FIELD_TYPE_INTEGER:
+                            insert.bindLong(i+1, cursor.getLong(i));
+                            break;
+
+                        case Cursor.FIELD_TYPE_FLOAT:
+                            insert.bindDouble(i+1, cursor.getDouble(i));
+                            break;
+
+                        case Cursor.FIELD_TYPE_STRING:
+                            insert.bindString(i+1, cursor.getString(i));
+                            break;
+
+                        case Cursor.FIELD_TYPE_BLOB:
+                            insert.bindBlob(i+1, cursor.getBlob(i));
+                            break;
+                    }
+                }
+                insert.executeInsert();
+                ++rowCount;
+            }
+            if(rowCount > 0)
+            {
+                copy.setTransactionSuccessful();
+            }
+        }
+        finally
+        {
+            if(copy.inTransaction())
+            {
+                copy.endTransaction();
+            }
+            if(insert != null)
+            {
+                insert.close();
+            }
+            cursor.close();
+        }
+        return rowCount;
+    }
+}
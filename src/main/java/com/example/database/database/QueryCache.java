@@ -0,0 +1,157 @@
+package com.example.database.database;
+
+import android.util.LruCache;
+
+import com.example.database.database.core.Column;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+/**
+ * cache of query results, keyed by table and query parameters. every result
+ *   is stored with the version its table had when the query was made; a result
+ *   is only served while the table still has that version, so any insert,
+ *   update or delete of a table invalidates exactly the results of that table.
+ *   the least recently used results are evicted once the estimated size of all
+ *   cached results exceeds the configured limit.
+ */
+final class QueryCache
+{
+    /**
+     * estimated number of bytes used by a {@code Row} besides its columns.
+     */
+    private static final int ROW_OVERHEAD = 64;
+
+    /**
+     * estimated number of bytes used by a {@code Column} besides its value.
+     */
+    private static final int COLUMN_OVERHEAD = 48;
+
+    /**
+     * cached results, keyed by table name and query parameters.
+     */
+    private volatile LruCache<String, Entry> mEntries;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a {@code QueryCache}.
+     *
+     * @param  maxBytes maximum estimated size of all cached results, in bytes.
+     */
+    QueryCache(int maxBytes)
+    {
+        mEntries = makeEntries(maxBytes);
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * returns the cached result of a query of {@code table}, or {@code null}
+     *   if there is no result that is up to date.
+     *
+     * @param  table table that was queried.
+     * @param  key parameters of the query.
+     *
+     * @return rows returned by the query, or {@code null}.
+     */
+    Row[] get(Table table, String key)
+    {
+        LruCache<String, Entry> entries = mEntries;
+        String entryKey = table.getName()+"|"+key;
+        Entry entry = entries.get(entryKey);
+        if(entry == null)
+        {
+            return null;
+        }
+        if(entry.mVersion != table.getVersion())
+        {
+            entries.remove(entryKey);
+            return null;
+        }
+        return entry.mRows;
+    }
+
+    /**
+     * caches the result of a query of {@code table}.
+     *
+     * @param  table table that was queried.
+     * @param  version version of {@code table} from before the query was made.
+     * @param  key parameters of the query.
+     * @param  rows rows returned by the query.
+     */
+    void put(Table table, long version, String key, Row[] rows)
+    {
+        mEntries.put(table.getName()+"|"+key, new Entry(version, rows));
+    }
+
+    /**
+     * changes the maximum estimated size of all cached results. cached results
+     *   are dropped.
+     *
+     * @param  maxBytes maximum estimated size of all cached results, in bytes.
+     */
+    void setMaxSize(int maxBytes)
+    {
+        mEntries = makeEntries(maxBytes);
+    }
+
+    /**
+     * drops all cached results.
+     */
+    void clear()
+    {
+        mEntries.evictAll();
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static LruCache<String, Entry> makeEntries(int maxBytes)
+    {
+        return new LruCache<String, Entry>(maxBytes)
+        {
+            @Override
+            protected int sizeOf(String key, Entry entry)
+            {
+                return entry.mSize;
+            }
+        };
+    }
+
+    /**
+     * a cached query result.
+     */
+    private static class Entry
+    {
+        /** version of the table when the query was made. */
+        final long mVersion;
+
+        /** rows returned by the query. */
+        final Row[] mRows;
+
+        /** estimated size of {@code mRows} in bytes. */
+        final int mSize;
+
+        Entry(long version, Row[] rows)
+        {
+            mVersion = version;
+            mRows = rows;
+
+            int size = ROW_OVERHEAD;
+            for(Row row : rows)
+            {
+                size += ROW_OVERHEAD;
+                for(Column column : row.getColumns().values())
+                {
+                    size += COLUMN_OVERHEAD+column.getSize();
+                }
+            }
+            mSize = size;
+        }
+    }
+}
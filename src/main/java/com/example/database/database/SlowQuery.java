@@ -0,0 +1,138 @@
+package com.example.database.database;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * a query that took longer than the slow-query threshold, as recorded by
+ *   {@code DBAccess}; see {@link DBAccess#getSlowQueries()}.
+ */
+public final class SlowQuery
+{
+    /**
+     * SQL of the query.
+     */
+    private final String mSql;
+
+    /**
+     * arguments bound to the placeholders of the query; may be {@code null}.
+     */
+    private final String[] mSelectionArgs;
+
+    /**
+     * number of rows read out of the result of the query.
+     */
+    private final int mRowCount;
+
+    /**
+     * time from running the query to closing its cursor, in nanoseconds.
+     */
+    private final long mElapsedNanos;
+
+    /**
+     * wall-clock time the query finished, in milliseconds since the epoch.
+     */
+    private final long mTimeMillis;
+
+    /**
+     * lines of the output of EXPLAIN QUERY PLAN for the query.
+     */
+    private final List<String> mQueryPlan;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    SlowQuery(String sql, String[] selectionArgs, int rowCount, long elapsedNanos,
+              long timeMillis, List<String> queryPlan)
+    {
+        mSql = sql;
+        mSelectionArgs = (selectionArgs == null) ? null : selectionArgs.clone();
+        mRowCount = rowCount;
+        mElapsedNanos = elapsedNanos;
+        mTimeMillis = timeMillis;
+        mQueryPlan = Collections.unmodifiableList(queryPlan);
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the SQL of the query.
+     */
+    public String getSql()
+    {
+        return mSql;
+    }
+
+    /**
+     * returns the arguments bound to the placeholders of the query, or {@code
+     *   null} if there were none.
+     */
+    public String[] getSelectionArgs()
+    {
+        return (mSelectionArgs == null) ? null : mSelectionArgs.clone();
+    }
+
+    /**
+     * returns the number of rows read out of the result of the query.
+     */
+    public int getRowCount()
+    {
+        return mRowCount;
+    }
+
+    /**
+     * returns the time from running the query to closing its cursor, which
+     *   includes parsing the rows out of it, in nanoseconds.
+     */
+    public long getElapsedNanos()
+    {
+        return mElapsedNanos;
+    }
+
+    /**
+     * returns the wall-clock time the query finished, in milliseconds since
+     *   the epoch.
+     */
+    public long getTimeMillis()
+    {
+        return mTimeMillis;
+    }
+
+    /**
+     * returns the lines of the output of EXPLAIN QUERY PLAN for the query;
+     *   e.g. "SCAN TABLE Names" for a full-table scan, or "SEARCH TABLE Names
+     *   USING INDEX ..." for an index lookup.
+     */
+    public List<String> getQueryPlan()
+    {
+        return mQueryPlan;
+    }
+
+    /**
+     * returns true if the query plan scans a whole table instead of searching
+     *   it through an index.
+     */
+    public boolean isFullScan()
+    {
+        for(String line : mQueryPlan)
+        {
+            if(line.startsWith("SCAN ") && !line.contains(" USING COVERING INDEX "))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return (mElapsedNanos/1000000)+" ms, "+mRowCount+" rows: "+mSql
+                +((mSelectionArgs == null) ? "" : " "+Arrays.toString(mSelectionArgs))
+                +" "+mQueryPlan;
+    }
+}
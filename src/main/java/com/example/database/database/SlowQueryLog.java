@@ -0,0 +1,232 @@
+package com.example.database.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * bounded log of the queries that took longer than a threshold. each entry
+ *   has the SQL, selection arguments, row count and time of the query, and the
+ *   output of EXPLAIN QUERY PLAN for it, so queries that scan whole tables can
+ *   be found in the field. once the log is full, the oldest entries are
+ *   overwritten.
+ *
+ * timing a query costs two reads of the clock; only 1 in every {@code
+ *   sampleInterval} queries is timed. EXPLAIN QUERY PLAN only runs for slow
+ *   queries, on the connection that ran them, and its output is cached by
+ *   SQL, so a query that is slow over and over is only explained once.
+ */
+final class SlowQueryLog
+{
+    public static final String TAG = SlowQueryLog.class.getSimpleName();
+
+    /**
+     * maximum number of entries kept.
+     */
+    static final int CAPACITY = 32;
+
+    /**
+     * maximum number of query plans cached.
+     */
+    private static final int MAX_CACHED_PLANS = 64;
+
+    /**
+     * logged queries; a ring buffer whose oldest entry is at {@code mNext}
+     *   once it is full.
+     */
+    private final SlowQuery[] mEntries;
+
+    /**
+     * index of {@code mEntries} the next entry is written to.
+     */
+    private int mNext;
+
+    /**
+     * number of entries in {@code mEntries}.
+     */
+    private int mSize;
+
+    /**
+     * query plans of slow queries, keyed by their SQL.
+     */
+    private final LruCache<String, List<String>> mPlans;
+
+    /**
+     * number of queries run, used to pick the ones that are timed.
+     */
+    private final AtomicInteger mQueryCount;
+
+    /**
+     * time a query must take to be logged, in nanoseconds; negative if
+     *   nothing is logged.
+     */
+    private volatile long mThresholdNanos;
+
+    /**
+     * 1 in this many queries are timed.
+     */
+    private volatile int mSampleInterval;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a {@code SlowQueryLog} that times every query.
+     *
+     * @param  thresholdMillis time a query must take to be logged, in
+     *   milliseconds; negative to log nothing.
+     */
+    SlowQueryLog(long thresholdMillis)
+    {
+        mEntries = new SlowQuery[CAPACITY];
+        mPlans = new LruCache<>(MAX_CACHED_PLANS);
+        mQueryCount = new AtomicInteger();
+        mSampleInterval = 1;
+        setThreshold(thresholdMillis);
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * sets the time a query must take to be logged.
+     *
+     * @param  thresholdMillis threshold in milliseconds; negative to log
+     *   nothing.
+     */
+    void setThreshold(long thresholdMillis)
+    {
+        mThresholdNanos = (thresholdMillis < 0) ? -1 : thresholdMillis*1000000;
+    }
+
+    /**
+     * sets how many queries there are for every query that is timed.
+     *
+     * @param  sampleInterval 1 to time every query.
+     */
+    void setSampleInterval(int sampleInterval)
+    {
+        mSampleInterval = Math.max(sampleInterval, 1);
+    }
+
+    /**
+     * returns true if the query about to be run should be timed, and passed
+     *   to {@link #record} once it is done.
+     */
+    boolean shouldSample()
+    {
+        if(mThresholdNanos < 0)
+        {
+            return false;
+        }
+        int sampleInterval = mSampleInterval;
+        return sampleInterval == 1
+                || (mQueryCount.incrementAndGet()&Integer.MAX_VALUE)%sampleInterval == 0;
+    }
+
+    /**
+     * logs a sampled query if it took longer than the threshold.
+     *
+     * @param  db connection the query ran on; used to explain it.
+     * @param  sql SQL of the query.
+     * @param  selectionArgs arguments bound to the query; may be {@code null}.
+     * @param  rowCount number of rows read out of the result.
+     * @param  startNanos value of {@link System#nanoTime()} when the query
+     *   started.
+     */
+    void record(SQLiteDatabase db, String sql, String[] selectionArgs, int rowCount,
+                long startNanos)
+    {
+        long elapsedNanos = System.nanoTime()-startNanos;
+        long thresholdNanos = mThresholdNanos;
+        if(thresholdNanos < 0 || elapsedNanos < thresholdNanos)
+        {
+            return;
+        }
+
+        SlowQuery query = new SlowQuery(sql, selectionArgs, rowCount, elapsedNanos,
+                System.currentTimeMillis(), explain(db, sql, selectionArgs));
+        Log.w(TAG, "slow query: "+query);
+        synchronized(this)
+        {
+            mEntries[mNext] = query;
+            mNext = (mNext+1)%CAPACITY;
+            mSize = Math.min(mSize+1, CAPACITY);
+        }
+    }
+
+    /**
+     * returns the logged queries, oldest first.
+     */
+    synchronized List<SlowQuery> getEntries()
+    {
+        List<SlowQuery> entries = new ArrayList<>(mSize);
+        for(int i = 0; i < mSize; ++i)
+        {
+            entries.add(mEntries[(mNext-mSize+i+CAPACITY)%CAPACITY]);
+        }
+        return entries;
+    }
+
+    /**
+     * removes every logged query.
+     */
+    synchronized void clear()
+    {
+        Arrays.fill(mEntries, null);
+        mNext = 0;
+        mSize = 0;
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * returns the lines of the output of EXPLAIN QUERY PLAN for {@code sql},
+     *   from the cache if it has been explained before.
+     */
+    private List<String> explain(SQLiteDatabase db, String sql, String[] selectionArgs)
+    {
+        List<String> plan = mPlans.get(sql);
+        if(plan != null)
+        {
+            return plan;
+        }
+
+        plan = new ArrayList<>();
+        try
+        {
+            Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN "+sql, selectionArgs);
+            try
+            {
+                // the plan is in the last column, named "detail"
+                int detailIndex = cursor.getColumnCount()-1;
+                while(cursor.moveToNext())
+                {
+                    plan.add(cursor.getString(detailIndex));
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+        }
+        catch(SQLiteException e)
+        {
+            return Collections.singletonList("plan unavailable: "+e.getMessage());
+        }
+        mPlans.put(sql, plan);
+        return plan;
+    }
+}
@@ -22,6 +22,12 @@ public class Column
      */
     private byte[] mData;
 
+    /**
+     * true if the value of this instance has been set since it was created, or
+     *   since {@link #clearDirty()} was last called; false otherwise.
+     */
+    private boolean mDirty;
+
     /**
      * instantiates a {@code Column} instance and sets it's producer pointer to
      *   the passed {@code columnFactory}.
@@ -75,6 +81,36 @@ public class Column
         return mProducer.mConstraints;
     }
 
+    /**
+     * returns the number of bytes used to hold the value of this instance.
+     *
+     * @return number of bytes used to hold the value of this instance.
+     */
+    public int getSize()
+    {
+        return (mData == null) ? 0 : mData.length;
+    }
+
+    /**
+     * returns true if the value of this instance has been set since it was
+     *   created, or since {@link #clearDirty()} was last called. used to only
+     *   write columns that changed when updating a row.
+     *
+     * @return true if the value of this instance has changed; false otherwise.
+     */
+    public boolean isDirty()
+    {
+        return mDirty;
+    }
+
+    /**
+     * marks the value of this instance as being in sync with the database.
+     */
+    public void clearDirty()
+    {
+        mDirty = false;
+    }
+
     /**
      * sets the value saved in this instance.
      *
@@ -101,6 +137,7 @@ public class Column
         buff.put((byte) ((data) ? 0x01 : 0x00));
 
         mData = buff.array();
+        mDirty = true;
     }
 
     public void setValue(byte ... data)
@@ -112,6 +149,7 @@ public class Column
         }
 
         mData = data;
+        mDirty = true;
     }
 
     public void setValue(double data)
@@ -125,6 +163,7 @@ public class Column
         ByteBuffer buff = ByteBuffer.allocate(Double.SIZE / Byte.SIZE);
         buff.putDouble(data);
         mData = buff.array();
+        mDirty = true;
     }
 
     public void setValue(float data)
@@ -138,6 +177,7 @@ public class Column
         ByteBuffer buff = ByteBuffer.allocate(Float.SIZE / Byte.SIZE);
         buff.putFloat(data);
         mData = buff.array();
+        mDirty = true;
     }
 
     public void setValue(int data)
@@ -151,6 +191,7 @@ public class Column
         ByteBuffer buff = ByteBuffer.allocate(Integer.SIZE / Byte.SIZE);
         buff.putInt(data);
         mData = buff.array();
+        mDirty = true;
     }
 
     public void setValue(long data)
@@ -164,6 +205,7 @@ public class Column
         ByteBuffer buff = ByteBuffer.allocate(Long.SIZE / Byte.SIZE);
         buff.putLong(data);
         mData = buff.array();
+        mDirty = true;
     }
 
     public void setValue(short data)
@@ -177,6 +219,7 @@ public class Column
         ByteBuffer buff = ByteBuffer.allocate(Short.SIZE / Byte.SIZE);
         buff.putShort(data);
         mData = buff.array();
+        mDirty = true;
     }
 
     public void setValue(String data)
@@ -190,6 +233,7 @@ public class Column
         try
         {
             mData = data.getBytes("UTF-8");
+            mDirty = true;
         }
         catch(Exception e)
         {
@@ -197,6 +241,28 @@ public class Column
         }
     }
 
+    /**
+     * sets the value saved in this instance to the value saved in {@code
+     *   source}.
+     *
+     * pre-conditions:
+     *
+     * - {@code source} must hold the same type of data as this instance.
+     *
+     * @param source {@code Column} to copy the value of.
+     */
+    public void setValue(Column source)
+    {
+        if(getJavaType() != source.getJavaType())
+        {
+            throw new IllegalStateException("Invalid data type for column; column is for "
+                    +getJavaType()+" values");
+        }
+
+        mData = source.mData;
+        mDirty = true;
+    }
+
     /**
      * returns the saved value from this instance.
      *
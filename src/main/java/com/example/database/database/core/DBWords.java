@@ -69,11 +69,40 @@ public abstract class DBWords
         }
     }
 
+    /** SQLite collating sequences */
+    public enum Collation
+    {
+        BINARY(" COLLATE BINARY"),
+        NOCASE(" COLLATE NOCASE"),
+        RTRIM(" COLLATE RTRIM");
+
+        private String mStringValue;
+        private Collation(String stringValue)
+        {
+            mStringValue = stringValue;
+        }
+        public String toString()
+        {
+            return mStringValue;
+        }
+    }
+
     /** SQLite statement openings */
     public enum Opening
     {
         CREATE_TABLE_IF_NOT_EXISTS("CREATE TABLE IF NOT EXISTS "),
-        DROP_TABLE_IF_EXISTS("DROP TABLE IF EXISTS ");
+        ALTER_TABLE("ALTER TABLE "),
+        DROP_TABLE_IF_EXISTS("DROP TABLE IF EXISTS "),
+        CREATE_INDEX_IF_NOT_EXISTS("CREATE INDEX IF NOT EXISTS "),
+        CREATE_UNIQUE_INDEX_IF_NOT_EXISTS("CREATE UNIQUE INDEX IF NOT EXISTS "),
+        DROP_INDEX_IF_EXISTS("DROP INDEX IF EXISTS "),
+        CREATE_VIRTUAL_TABLE("CREATE VIRTUAL TABLE "),
+        CREATE_TRIGGER_IF_NOT_EXISTS("CREATE TRIGGER IF NOT EXISTS "),
+        DROP_TRIGGER_IF_EXISTS("DROP TRIGGER IF EXISTS "),
+        INSERT_INTO("INSERT INTO "),
+        UPDATE("UPDATE "),
+        DELETE_FROM("DELETE FROM "),
+        SELECT("SELECT ");
 
         private String mStringValue;
         private Opening(String stringValue)
@@ -0,0 +1,136 @@
+package com.example.database.database.core;
+
+import com.example.database.database.core.DBWords.Collation;
+import com.example.database.database.core.DBWords.Opening;
+
+/**
+ * describes an SQLite index on one or more columns of a {@code Table}.
+ *   {@code Table} subclasses declare their indexes by overriding {@code
+ *   Table.getIndexes()}.
+ *
+ * @author Eric Tsang
+ */
+public class Index
+{
+    /**
+     * name of the index in the database.
+     */
+    private final String mName;
+
+    /**
+     * true if no two rows may have the same values in the indexed columns.
+     */
+    private final boolean mUnique;
+
+    /**
+     * collating sequence used to compare the indexed values; {@code null} to
+     *   use the collating sequence of the columns.
+     */
+    private final Collation mCollation;
+
+    /**
+     * names of the indexed columns, most significant first.
+     */
+    private final String[] mColumnNames;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a non-unique {@code Index} on the {@code columnNames}.
+     *
+     * @param name name of the index in the database.
+     * @param columnNames names of the indexed columns, most significant first.
+     */
+    public Index(String name, String ... columnNames)
+    {
+        this(name, false, null, columnNames);
+    }
+
+    /**
+     * instantiates an {@code Index} on the {@code columnNames}.
+     *
+     * @param name name of the index in the database.
+     * @param unique true if no two rows may have the same values in the indexed
+     *   columns.
+     * @param collation collating sequence used to compare the indexed values,
+     *   e.g. {@code NOCASE} for case-insensitive lookups and sorting; {@code
+     *   null} to use the collating sequence of the columns.
+     * @param columnNames names of the indexed columns, most significant first.
+     */
+    public Index(String name, boolean unique, Collation collation,
+                 String ... columnNames)
+    {
+        if(columnNames.length == 0)
+        {
+            throw new IllegalArgumentException("an index needs at least one column");
+        }
+
+        mName = name.trim();
+        mUnique = unique;
+        mCollation = collation;
+        mColumnNames = columnNames;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the name of this instance.
+     *
+     * @return name of the index in the database.
+     */
+    public String getName()
+    {
+        return mName;
+    }
+
+    /**
+     * returns the names of the indexed columns.
+     *
+     * @return names of the indexed columns, most significant first.
+     */
+    public String[] getColumnNames()
+    {
+        return mColumnNames;
+    }
+
+    /**
+     * returns the query that can be used to create this index on {@code
+     *   table}.
+     *
+     * @param tableName name of the table the index is on.
+     */
+    public String getCreateIndexQuery(String tableName)
+    {
+        StringBuilder q = new StringBuilder();
+        q.append((mUnique)
+                ? Opening.CREATE_UNIQUE_INDEX_IF_NOT_EXISTS
+                : Opening.CREATE_INDEX_IF_NOT_EXISTS);
+        q.append(mName);
+        q.append(" ON ");
+        q.append(tableName);
+        for(int i = 0; i < mColumnNames.length; ++i)
+        {
+            q.append((i == 0) ? "(" : ",");
+            q.append(mColumnNames[i]);
+            if(mCollation != null)
+            {
+                q.append(mCollation);
+            }
+        }
+        q.append(")");
+
+        return q.toString();
+    }
+
+    /**
+     * returns the query that can be used to remove this index from a database.
+     */
+    public String getDropIndexQuery()
+    {
+        return Opening.DROP_INDEX_IF_EXISTS+mName;
+    }
+}
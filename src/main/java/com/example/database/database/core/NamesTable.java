@@ -31,12 +31,36 @@ public class NamesTable extends Table
         return Entry.TABLE_NAME;
     }
 
+    private static final Index[] mIndexes =
+    {
+        // names are listed and searched by last name, then first name
+        new Index(Entry.INDEX_LAST_NAME_FIRST_NAME, Entry.LAST_NAME, Entry.FIRST_NAME),
+    };
+
     @Override
     public HashMap<String, ColumnFactory> getColumnFactories()
     {
         return mColumnFactories;
     }
 
+    private static final String[] mSearchColumnNames =
+    {
+        Entry.FIRST_NAME,
+        Entry.LAST_NAME,
+    };
+
+    @Override
+    public Index[] getIndexes()
+    {
+        return mIndexes;
+    }
+
+    @Override
+    public String[] getSearchColumnNames()
+    {
+        return mSearchColumnNames;
+    }
+
     /** contract describing table used for saving name data */
     public interface Entry extends BaseColumns
     {
@@ -55,5 +79,10 @@ public class NamesTable extends Table
          * column that contains the time that the message was received.
          */
         public static final String LAST_NAME = "LastName";
+
+        /**
+         * index on the last name, then first name columns.
+         */
+        public static final String INDEX_LAST_NAME_FIRST_NAME = "NamesLastNameFirstNameIndex";
     }
 }
@@ -8,6 +8,10 @@ import java.util.Map;
  * a {@code Row} that has {@code Column} instances and is associated with a
  *   single {@code Table} object.
  *
+ * a row loaded by a query that only selected some of the columns of its table
+ *   is partial: it only has the selected columns, and asking it for any of the
+ *   other columns of its table fails instead of returning {@code null}.
+ *
  * @author Eric Tsang
  */
 public class Row
@@ -17,6 +21,12 @@ public class Row
      */
     private final Map<String, Column> mColumns;
 
+    /**
+     * table the columns of this instance were selected from if this instance
+     *   is partial; {@code null} if it has all the columns of its table.
+     */
+    private final Table mPartialTable;
+
     //////////////////
     // constructors //
     //////////////////
@@ -28,8 +38,23 @@ public class Row
      *   are part of this row.
      */
     public Row(Map<String, Column> columns)
+    {
+        this(columns, null);
+    }
+
+    /**
+     * instantiates a partial {@code Row} that only has some of the columns of
+     *   {@code table}.
+     *
+     * @param  columns reference to the {@code Column} instances that were
+     *   selected from {@code table}.
+     * @param  partialTable table the {@code columns} were selected from; {@code
+     *   null} if {@code columns} are all the columns of the table.
+     */
+    public Row(Map<String, Column> columns, Table partialTable)
     {
         mColumns = columns;
+        mPartialTable = partialTable;
     }
 
     //////////////////////
@@ -71,6 +96,38 @@ public class Row
         return mColumns;
     }
 
+    /**
+     * returns true if this instance only has some of the columns of its
+     *   table; false otherwise.
+     */
+    public boolean isPartial()
+    {
+        return mPartialTable != null;
+    }
+
+    /**
+     * returns true if this instance has a column named {@code columnName};
+     *   unlike {@link #getColumn}, this never fails for partial rows.
+     *
+     * @param columnName name of the column to look for.
+     */
+    public boolean hasColumn(String columnName)
+    {
+        return mColumns.containsKey(columnName);
+    }
+
+    /**
+     * marks all the columns of this instance as being in sync with the
+     *   database.
+     */
+    public void clearDirty()
+    {
+        for(Column column : mColumns.values())
+        {
+            column.clearDirty();
+        }
+    }
+
     /**
      * returns the {@code Column} object associated with this {@code Row} that
      *   has the a column name that matches {@code columnName}. returns {@code
@@ -79,9 +136,20 @@ public class Row
      * @param columnName name of desired {@code Column} object to retrieve.
      *
      * @return {@code Column} object that has the name {@code columnName}.
+     *
+     * @throws IllegalStateException if this instance is partial, and the
+     *   column is one of the columns of its table that was not selected.
      */
     public Column getColumn(String columnName)
     {
-        return mColumns.get(columnName);
+        Column column = mColumns.get(columnName);
+        if(column == null && mPartialTable != null
+                && mPartialTable.getColumnFactory(columnName) != null)
+        {
+            throw new IllegalStateException("column "+columnName+" of "
+                    +mPartialTable.getName()+" was not selected by the query "
+                    +"that loaded this row");
+        }
+        return column;
     }
 }
@@ -1,9 +1,14 @@
 package com.example.database.database.core;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.provider.BaseColumns;
 
 import com.example.database.database.core.DBWords.Opening;
 import com.example.database.database.core.DBWords.Constraint;
@@ -14,6 +19,11 @@ import com.example.database.database.core.DBWords.Constraint;
  */
 public abstract class Table
 {
+    /**
+     * version of the data in this table; increases every time rows of this
+     *   table are written.
+     */
+    private final AtomicLong mVersion = new AtomicLong();
 
     //////////////////////
     // public interface //
@@ -38,6 +48,42 @@ public abstract class Table
      */
     public abstract HashMap<String, ColumnFactory> getColumnFactories();
 
+    /**
+     * returns the indexes on the columns of this table. subclasses override
+     *   this to declare indexes for the columns that are looked up or sorted
+     *   by; the default implementation declares none.
+     *
+     * @return array of indexes on the columns of this table.
+     */
+    public Index[] getIndexes()
+    {
+        return new Index[0];
+    }
+
+    /**
+     * returns the names of the TEXT columns of this table that can be searched
+     *   with full-text queries. when there are any, the table gets an FTS4
+     *   shadow table, named by {@link #getSearchTableName()}, that is kept in
+     *   sync with this table by triggers. the default implementation returns
+     *   none.
+     *
+     * @return names of the columns that can be searched.
+     */
+    public String[] getSearchColumnNames()
+    {
+        return new String[0];
+    }
+
+    /**
+     * returns the name of the FTS4 shadow table used to search this table.
+     *
+     * @return name of the FTS4 shadow table of this table.
+     */
+    public final String getSearchTableName()
+    {
+        return getName()+"Search";
+    }
+
     /**
      * returns a reference to the {@code ColumnFactory} object with the name
      *   {@code columnName}.
@@ -63,6 +109,51 @@ public abstract class Table
         return columnNames.toArray(new String[columnNames.size()]);
     }
 
+    /**
+     * returns an array of the names of the columns in this table, excluding the
+     *   _ID column. these are the columns that get written when a row is
+     *   inserted; the database assigns the _ID.
+     *
+     * @return array of column names of the columns in this table, excluding
+     *   the _ID column.
+     */
+    public final String[] getDataColumnNames()
+    {
+        List<String> columnNames = new ArrayList<>(getColumnFactories().size());
+        for(String columnName : getColumnFactories().keySet())
+        {
+            if(!columnName.equals(BaseColumns._ID))
+            {
+                columnNames.add(columnName);
+            }
+        }
+        return columnNames.toArray(new String[columnNames.size()]);
+    }
+
+    /**
+     * returns the version of the data in this table. the version increases
+     *   monotonically every time rows of this table are inserted, updated or
+     *   deleted, so a query result is up to date as long as the version hasn't
+     *   changed since the query was made.
+     *
+     * @return version of the data in this table.
+     */
+    public final long getVersion()
+    {
+        return mVersion.get();
+    }
+
+    /**
+     * increases the version of the data in this table. must be called after
+     *   every write to this table.
+     *
+     * @return the new version of the data in this table.
+     */
+    public final long bumpVersion()
+    {
+        return mVersion.incrementAndGet();
+    }
+
     /**
      * returns a {@code Row} instance which has the same columns as this those
      *   in this table.
@@ -78,21 +169,29 @@ public abstract class Table
      * returns the query that can be used to create this table in a database.
      */
     public final synchronized String getCreateTableQuery()
+    {
+        return getCreateTableQuery(getName().toString());
+    }
+
+    /**
+     * returns the query that can be used to create a table with the columns of
+     *   this table, but named {@code tableName}, e.g. the table that the rows
+     *   of this table are copied into when the type of one of its columns
+     *   changes.
+     *
+     * @param  tableName name of the table created by the query.
+     */
+    public final synchronized String getCreateTableQuery(String tableName)
     {
         // build the query
         StringBuilder q = new StringBuilder();
         q.append(Opening.CREATE_TABLE_IF_NOT_EXISTS);
-        q.append(getName());
+        q.append(tableName);
         boolean firstIteration = true;
         for(String columnName : getColumnFactories().keySet())
         {
             q.append((firstIteration) ? "(" : ",");
-            q.append(columnName);
-            q.append(getColumnFactories().get(columnName).getSQLiteType());
-            for(Constraint constraint : getColumnFactories().get(columnName).mConstraints)
-            {
-                q.append(constraint);
-            }
+            q.append(getColumnDefinition(columnName));
             firstIteration = false;
         }
         q.append(")");
@@ -100,6 +199,240 @@ public abstract class Table
         return q.toString();
     }
 
+    /**
+     * returns the definition of the column named {@code columnName}, i.e. its
+     *   name, type and constraints, as used by CREATE TABLE and ALTER TABLE
+     *   queries.
+     *
+     * @param  columnName name of the column.
+     */
+    public final String getColumnDefinition(String columnName)
+    {
+        ColumnFactory factory = getColumnFactories().get(columnName);
+        if(factory == null)
+        {
+            throw new IllegalArgumentException("table "+getName()
+                    +" has no column named "+columnName);
+        }
+        StringBuilder q = new StringBuilder();
+        q.append(columnName);
+        q.append(factory.getSQLiteType());
+        for(Constraint constraint : factory.mConstraints)
+        {
+            q.append(constraint);
+        }
+        return q.toString();
+    }
+
+    /**
+     * returns the queries that can be used to create the indexes of this table
+     *   in a database.
+     */
+    public final String[] getCreateIndexQueries()
+    {
+        Index[] indexes = getIndexes();
+        String[] queries = new String[indexes.length];
+        for(int i = 0; i < indexes.length; ++i)
+        {
+            queries[i] = indexes[i].getCreateIndexQuery(getName().toString());
+        }
+        return queries;
+    }
+
+    /**
+     * returns the queries that can be used to remove the indexes of this table
+     *   from a database.
+     */
+    public final String[] getDropIndexQueries()
+    {
+        Index[] indexes = getIndexes();
+        String[] queries = new String[indexes.length];
+        for(int i = 0; i < indexes.length; ++i)
+        {
+            queries[i] = indexes[i].getDropIndexQuery();
+        }
+        return queries;
+    }
+
+    /**
+     * returns the queries that can be used to create the FTS4 shadow table of
+     *   this table, and the triggers that keep it in sync with this table. the
+     *   shadow table is an external content table: it only stores the full-text
+     *   index, and its docids are the _IDs of this table. returns no queries if
+     *   this table has no search columns.
+     *
+     * the shadow table must not exist yet: SQLite only accepts IF NOT EXISTS
+     *   on virtual tables from 3.7.11 on, and the SQLite that Robolectric
+     *   runs is older. callers that may find it existing run {@link
+     *   #getDropSearchTableQueries()} first.
+     */
+    public final String[] getCreateSearchTableQueries()
+    {
+        String[] columnNames = getSearchColumnNames();
+        if(columnNames.length == 0)
+        {
+            return new String[0];
+        }
+
+        String name = getName().toString();
+        String searchName = getSearchTableName();
+
+        StringBuilder columns = new StringBuilder();
+        StringBuilder newValues = new StringBuilder();
+        for(String columnName : columnNames)
+        {
+            columns.append(",").append(columnName);
+            newValues.append(",new.").append(columnName);
+        }
+
+        String deleteOld = "DELETE FROM "+searchName+" WHERE docid=old."
+                +BaseColumns._ID+";";
+        String insertNew = "INSERT INTO "+searchName+"(docid"+columns+") VALUES(new."
+                +BaseColumns._ID+newValues+");";
+
+        // the old row must be removed from the full-text index before it
+        // changes, because the index reads the old values from this table
+        return new String[]
+        {
+            Opening.CREATE_VIRTUAL_TABLE+searchName
+                    +" USING fts4(content=\""+name+"\", prefix=\"2,3\""+columns+")",
+            Opening.CREATE_TRIGGER_IF_NOT_EXISTS+searchName+"BeforeUpdate BEFORE UPDATE ON "
+                    +name+" BEGIN "+deleteOld+" END",
+            Opening.CREATE_TRIGGER_IF_NOT_EXISTS+searchName+"BeforeDelete BEFORE DELETE ON "
+                    +name+" BEGIN "+deleteOld+" END",
+            Opening.CREATE_TRIGGER_IF_NOT_EXISTS+searchName+"AfterUpdate AFTER UPDATE ON "
+                    +name+" BEGIN "+insertNew+" END",
+            Opening.CREATE_TRIGGER_IF_NOT_EXISTS+searchName+"AfterInsert AFTER INSERT ON "
+                    +name+" BEGIN "+insertNew+" END",
+        };
+    }
+
+    /**
+     * returns the query that can be used to rebuild the full-text index of the
+     *   FTS4 shadow table from the rows of this table, e.g. after the shadow
+     *   table was added to a table that already has rows.
+     */
+    public final String getRebuildSearchTableQuery()
+    {
+        return "INSERT INTO "+getSearchTableName()+"("+getSearchTableName()
+                +") VALUES('rebuild')";
+    }
+
+    /**
+     * returns the queries that can be used to remove the FTS4 shadow table of
+     *   this table and its triggers from a database.
+     */
+    public final String[] getDropSearchTableQueries()
+    {
+        String searchName = getSearchTableName();
+        return new String[]
+        {
+            Opening.DROP_TRIGGER_IF_EXISTS+searchName+"BeforeUpdate",
+            Opening.DROP_TRIGGER_IF_EXISTS+searchName+"BeforeDelete",
+            Opening.DROP_TRIGGER_IF_EXISTS+searchName+"AfterUpdate",
+            Opening.DROP_TRIGGER_IF_EXISTS+searchName+"AfterInsert",
+            Opening.DROP_TABLE_IF_EXISTS+searchName,
+        };
+    }
+
+    /**
+     * returns the query that can be used to select the {@code columnNames} of
+     *   every row in this table. clauses such as WHERE, ORDER BY and LIMIT can
+     *   be appended to the query.
+     *
+     * @param  columnNames names of the columns to select.
+     */
+    public final String getSelectQuery(String ... columnNames)
+    {
+        StringBuilder q = new StringBuilder();
+        q.append(Opening.SELECT);
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            q.append((i == 0) ? "" : ",");
+            q.append(columnNames[i]);
+        }
+        q.append(" FROM ");
+        q.append(getName());
+
+        return q.toString();
+    }
+
+    /**
+     * returns the query that can be used to insert a row into this table. the
+     *   query has one "?" placeholder for each column returned by {@link
+     *   #getDataColumnNames()}, in the same order.
+     */
+    public final synchronized String getInsertQuery()
+    {
+        StringBuilder q = new StringBuilder();
+        q.append(Opening.INSERT_INTO);
+        q.append(getName());
+        String[] columnNames = getDataColumnNames();
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            q.append((i == 0) ? "(" : ",");
+            q.append(columnNames[i]);
+        }
+        q.append(") VALUES");
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            q.append((i == 0) ? "(?" : ",?");
+        }
+        q.append(")");
+
+        return q.toString();
+    }
+
+    /**
+     * returns the query that can be used to update the {@code columnNames} of
+     *   a row in this table. the query has one "?" placeholder for each of the
+     *   {@code columnNames}, in the same order, followed by a placeholder for
+     *   the _ID of the row to update.
+     *
+     * @param  columnNames names of the columns to update.
+     */
+    public final String getUpdateQuery(String ... columnNames)
+    {
+        StringBuilder q = new StringBuilder();
+        q.append(Opening.UPDATE);
+        q.append(getName());
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            q.append((i == 0) ? " SET " : ",");
+            q.append(columnNames[i]);
+            q.append("=?");
+        }
+        q.append(" WHERE ");
+        q.append(BaseColumns._ID);
+        q.append("=?");
+
+        return q.toString();
+    }
+
+    /**
+     * returns the query that can be used to delete {@code idCount} rows from
+     *   this table by their _ID. the query has {@code idCount} "?"
+     *   placeholders, one for each _ID.
+     *
+     * @param  idCount number of rows deleted by the query.
+     */
+    public final String getDeleteQuery(int idCount)
+    {
+        StringBuilder q = new StringBuilder();
+        q.append(Opening.DELETE_FROM);
+        q.append(getName());
+        q.append(" WHERE ");
+        q.append(BaseColumns._ID);
+        q.append(" IN (");
+        for(int i = 0; i < idCount; ++i)
+        {
+            q.append((i == 0) ? "?" : ",?");
+        }
+        q.append(")");
+
+        return q.toString();
+    }
+
     /**
      * returns the query that can be used to remove this table from a database.
      */
@@ -0,0 +1,242 @@
+package com.example.database.database.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * histogram of non-negative values, e.g. latencies in nanoseconds, with a
+ *   fixed set of buckets. every power of two is split into {@link
+ *   #SUB_BUCKETS} buckets of equal width, so a value is known to within 25% of
+ *   itself no matter how large it is, and the whole range of {@code long}
+ *   values fits into a few hundred counters that are allocated once.
+ *
+ * recording a value increments a few atomic counters and never allocates or
+ *   locks, so it can be done from any thread on hot paths.
+ */
+public final class Histogram
+{
+    /**
+     * number of bits of a value below its most significant bit that select
+     *   its bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    /**
+     * number of buckets each power of two is split into.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * total number of buckets; enough for every non-negative {@code long}.
+     */
+    public static final int BUCKET_COUNT = (64-SUB_BUCKET_BITS)*SUB_BUCKETS;
+
+    /**
+     * number of recorded values in each bucket.
+     */
+    private final AtomicLongArray mCounts;
+
+    /**
+     * number of recorded values.
+     */
+    private final AtomicLong mCount;
+
+    /**
+     * sum of the recorded values.
+     */
+    private final AtomicLong mSum;
+
+    /**
+     * largest recorded value.
+     */
+    private final AtomicLong mMax;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    public Histogram()
+    {
+        mCounts = new AtomicLongArray(BUCKET_COUNT);
+        mCount = new AtomicLong();
+        mSum = new AtomicLong();
+        mMax = new AtomicLong();
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * adds {@code value} to the histogram; negative values are recorded as 0.
+     *
+     * @param  value value to record.
+     */
+    public void record(long value)
+    {
+        value = Math.max(value, 0);
+        mCounts.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+
+        long max = mMax.get();
+        while(value > max && !mMax.compareAndSet(max, value))
+        {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * removes every recorded value.
+     */
+    public void reset()
+    {
+        for(int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            mCounts.set(i, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * returns a copy of the recorded values. values recorded while the copy is
+     *   made may or may not be part of it.
+     */
+    public Snapshot snapshot()
+    {
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for(int i = 0; i < BUCKET_COUNT; ++i)
+        {
+            counts[i] = mCounts.get(i);
+            count += counts[i];
+        }
+        return new Snapshot(counts, count, mSum.get(), mMax.get());
+    }
+
+    /**
+     * immutable copy of the values recorded by a {@code Histogram}.
+     */
+    public static final class Snapshot
+    {
+        private final long[] mCounts;
+        private final long mCount;
+        private final long mSum;
+        private final long mMax;
+
+        private Snapshot(long[] counts, long count, long sum, long max)
+        {
+            mCounts = counts;
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        /**
+         * returns the number of recorded values.
+         */
+        public long getCount()
+        {
+            return mCount;
+        }
+
+        /**
+         * returns the sum of the recorded values.
+         */
+        public long getSum()
+        {
+            return mSum;
+        }
+
+        /**
+         * returns the largest recorded value; 0 if there are none.
+         */
+        public long getMax()
+        {
+            return mMax;
+        }
+
+        /**
+         * returns the mean of the recorded values; 0 if there are none.
+         */
+        public long getMean()
+        {
+            return (mCount == 0) ? 0 : mSum/mCount;
+        }
+
+        /**
+         * returns the value that {@code percentile} percent of the recorded
+         *   values are smaller than or equal to; e.g. 50 for the median. the
+         *   result is the upper bound of the bucket the value falls in, so it
+         *   is at most 25% larger than the exact value, and never larger than
+         *   the largest recorded value.
+         *
+         * @param  percentile percentile to return, between 0 and 100.
+         *
+         * @return the value at {@code percentile}; 0 if there are no values.
+         */
+        public long getPercentile(double percentile)
+        {
+            if(mCount == 0)
+            {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(mCount*percentile/100));
+            long seen = 0;
+            for(int i = 0; i < BUCKET_COUNT; ++i)
+            {
+                seen += mCounts[i];
+                if(seen >= rank)
+                {
+                    return Math.min(upperBoundOf(i), mMax);
+                }
+            }
+            return mMax;
+        }
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * returns the index of the bucket that {@code value} falls in.
+     */
+    static int bucketOf(long value)
+    {
+        // values too small to split get a bucket each
+        if(value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int msb = 63-Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (msb-SUB_BUCKET_BITS))&(SUB_BUCKETS-1);
+        return (msb-SUB_BUCKET_BITS+1)*SUB_BUCKETS+subBucket;
+    }
+
+    /**
+     * returns the smallest value that falls in the {@code bucket}th bucket.
+     */
+    static long lowerBoundOf(int bucket)
+    {
+        if(bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+        int msb = bucket/SUB_BUCKETS+SUB_BUCKET_BITS-1;
+        long subBucket = bucket%SUB_BUCKETS;
+        return (1L << msb)+(subBucket << (msb-SUB_BUCKET_BITS));
+    }
+
+    /**
+     * returns the largest value that falls in the {@code bucket}th bucket.
+     */
+    static long upperBoundOf(int bucket)
+    {
+        return (bucket == BUCKET_COUNT-1)
+                ? Long.MAX_VALUE
+                : lowerBoundOf(bucket+1)-1;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.database.database.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * registry of the measurements taken by the data layer: one {@code
+ *   OperationMetrics} per kind of operation, and counters of the rows read and
+ *   written and the bytes decoded across all of them.
+ *
+ * instances are meant to be looked up once, e.g. when a {@code Dao} is
+ *   created, and then recorded into on every call; recording never allocates
+ *   or locks, and does nothing but read a flag while the metrics are
+ *   disabled. {@link #snapshot()} copies everything recorded so far.
+ */
+public final class Metrics
+{
+    /**
+     * measurements of each operation, by name.
+     */
+    private final ConcurrentHashMap<String, OperationMetrics> mOperations;
+
+    /**
+     * number of rows read from the database.
+     */
+    private final AtomicLong mRowsRead;
+
+    /**
+     * number of rows written to the database.
+     */
+    private final AtomicLong mRowsWritten;
+
+    /**
+     * number of bytes of column values decoded from the database.
+     */
+    private final AtomicLong mBytesDecoded;
+
+    /**
+     * true if measurements are recorded.
+     */
+    private volatile boolean mEnabled;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates an enabled {@code Metrics}.
+     */
+    public Metrics()
+    {
+        mOperations = new ConcurrentHashMap<>();
+        mRowsRead = new AtomicLong();
+        mRowsWritten = new AtomicLong();
+        mBytesDecoded = new AtomicLong();
+        mEnabled = true;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * enables or disables recording; measurements recorded so far are kept.
+     *
+     * @param  enabled true to record measurements.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        mEnabled = enabled;
+    }
+
+    /**
+     * returns true if measurements are recorded.
+     */
+    public boolean isEnabled()
+    {
+        return mEnabled;
+    }
+
+    /**
+     * returns the measurements of the operation named {@code name}, creating
+     *   them the first time they are requested.
+     *
+     * @param  name name of the operation, e.g. "Names.insert".
+     *
+     * @return the measurements of the operation.
+     */
+    public OperationMetrics getOperation(String name)
+    {
+        OperationMetrics operation = mOperations.get(name);
+        if(operation == null)
+        {
+            operation = new OperationMetrics(this, name);
+            OperationMetrics existing = mOperations.putIfAbsent(name, operation);
+            operation = (existing == null) ? operation : existing;
+        }
+        return operation;
+    }
+
+    /**
+     * adds {@code count} to the number of rows read from the database.
+     */
+    public void addRowsRead(long count)
+    {
+        if(mEnabled)
+        {
+            mRowsRead.addAndGet(count);
+        }
+    }
+
+    /**
+     * adds {@code count} to the number of rows written to the database.
+     */
+    public void addRowsWritten(long count)
+    {
+        if(mEnabled)
+        {
+            mRowsWritten.addAndGet(count);
+        }
+    }
+
+    /**
+     * adds {@code count} to the number of bytes decoded from the database.
+     */
+    public void addBytesDecoded(long count)
+    {
+        if(mEnabled)
+        {
+            mBytesDecoded.addAndGet(count);
+        }
+    }
+
+    /**
+     * discards every measurement recorded so far.
+     */
+    public void reset()
+    {
+        for(OperationMetrics operation : mOperations.values())
+        {
+            operation.reset();
+        }
+        mRowsRead.set(0);
+        mRowsWritten.set(0);
+        mBytesDecoded.set(0);
+    }
+
+    /**
+     * returns a copy of every measurement recorded so far.
+     */
+    public MetricsSnapshot snapshot()
+    {
+        List<MetricsSnapshot.Operation> operations = new ArrayList<>();
+        for(OperationMetrics operation : mOperations.values())
+        {
+            operations.add(operation.snapshot());
+        }
+        return new MetricsSnapshot(operations, mRowsRead.get(), mRowsWritten.get(),
+                mBytesDecoded.get());
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.database.database.metrics;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * immutable copy of the measurements recorded by a {@code Metrics} instance,
+ *   taken by {@link Metrics#snapshot()}. it can be queried, logged, or
+ *   written to a file, one line per operation.
+ */
+public final class MetricsSnapshot
+{
+    /**
+     * measurements of each operation, sorted by name.
+     */
+    private final List<Operation> mOperations;
+
+    private final long mRowsRead;
+    private final long mRowsWritten;
+    private final long mBytesDecoded;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    MetricsSnapshot(List<Operation> operations, long rowsRead, long rowsWritten,
+                    long bytesDecoded)
+    {
+        Collections.sort(operations, new Comparator<Operation>()
+        {
+            @Override
+            public int compare(Operation a, Operation b)
+            {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+        mOperations = Collections.unmodifiableList(operations);
+        mRowsRead = rowsRead;
+        mRowsWritten = rowsWritten;
+        mBytesDecoded = bytesDecoded;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the measurements of each operation, sorted by name.
+     */
+    public List<Operation> getOperations()
+    {
+        return mOperations;
+    }
+
+    /**
+     * returns the measurements of the operation named {@code name}, or {@code
+     *   null} if nothing has been recorded for it.
+     */
+    public Operation getOperation(String name)
+    {
+        for(Operation operation : mOperations)
+        {
+            if(operation.getName().equals(name))
+            {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * returns the number of rows read from the database.
+     */
+    public long getRowsRead()
+    {
+        return mRowsRead;
+    }
+
+    /**
+     * returns the number of rows written to the database.
+     */
+    public long getRowsWritten()
+    {
+        return mRowsWritten;
+    }
+
+    /**
+     * returns the number of bytes of column values decoded from the
+     *   database.
+     */
+    public long getBytesDecoded()
+    {
+        return mBytesDecoded;
+    }
+
+    /**
+     * logs the snapshot at the INFO level, one line per operation.
+     *
+     * @param  tag tag of the log lines.
+     */
+    public void log(String tag)
+    {
+        for(String line : toLines())
+        {
+            Log.i(tag, line);
+        }
+    }
+
+    /**
+     * writes the snapshot to {@code file} as UTF-8 text, one line per
+     *   operation; the file is replaced if it exists.
+     *
+     * @param  file file to write the snapshot to.
+     *
+     * @throws IOException if the file can't be written.
+     */
+    public void writeTo(File file) throws IOException
+    {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file),
+                Charset.forName("UTF-8"));
+        try
+        {
+            for(String line : toLines())
+            {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder string = new StringBuilder();
+        for(String line : toLines())
+        {
+            string.append(line).append('\n');
+        }
+        return string.toString();
+    }
+
+    /**
+     * measurements of one operation.
+     */
+    public static final class Operation
+    {
+        private final String mName;
+        private final Histogram.Snapshot mLatencies;
+        private final long mErrorCount;
+        private final long mRowCount;
+        private final long mByteCount;
+
+        Operation(String name, Histogram.Snapshot latencies, long errorCount,
+                  long rowCount, long byteCount)
+        {
+            mName = name;
+            mLatencies = latencies;
+            mErrorCount = errorCount;
+            mRowCount = rowCount;
+            mByteCount = byteCount;
+        }
+
+        /**
+         * returns the name of the operation.
+         */
+        public String getName()
+        {
+            return mName;
+        }
+
+        /**
+         * returns the time taken by each successful call, in nanoseconds.
+         */
+        public Histogram.Snapshot getLatencies()
+        {
+            return mLatencies;
+        }
+
+        /**
+         * returns the number of successful calls.
+         */
+        public long getCallCount()
+        {
+            return mLatencies.getCount();
+        }
+
+        /**
+         * returns the number of calls that failed.
+         */
+        public long getErrorCount()
+        {
+            return mErrorCount;
+        }
+
+        /**
+         * returns the number of rows processed by successful calls.
+         */
+        public long getRowCount()
+        {
+            return mRowCount;
+        }
+
+        /**
+         * returns the number of bytes processed by successful calls.
+         */
+        public long getByteCount()
+        {
+            return mByteCount;
+        }
+
+        /**
+         * returns the number of rows processed per second of the time taken
+         *   by successful calls.
+         */
+        public long getRowsPerSecond()
+        {
+            return mRowCount*1000000000L/Math.max(mLatencies.getSum(), 1);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder string = new StringBuilder();
+            string.append(mName).append(": ")
+                    .append(getCallCount()).append(" calls, ")
+                    .append(mErrorCount).append(" errors, p50 ")
+                    .append(toMicros(mLatencies.getPercentile(50))).append(" us, p95 ")
+                    .append(toMicros(mLatencies.getPercentile(95))).append(" us, p99 ")
+                    .append(toMicros(mLatencies.getPercentile(99))).append(" us, max ")
+                    .append(toMicros(mLatencies.getMax())).append(" us");
+            if(mRowCount > 0)
+            {
+                string.append(", ").append(mRowCount).append(" rows (")
+                        .append(getRowsPerSecond()).append(" rows/s)");
+            }
+            if(mByteCount > 0)
+            {
+                string.append(", ").append(mByteCount).append(" bytes");
+            }
+            return string.toString();
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private List<String> toLines()
+    {
+        List<String> lines = new ArrayList<>(mOperations.size()+1);
+        lines.add("rows read: "+mRowsRead+", rows written: "+mRowsWritten
+                +", bytes decoded: "+mBytesDecoded);
+        for(Operation operation : mOperations)
+        {
+            if(operation.getCallCount() > 0 || operation.getErrorCount() > 0)
+            {
+                lines.add(operation.toString());
+            }
+        }
+        return lines;
+    }
+
+    private static long toMicros(long nanos)
+    {
+        return nanos/1000;
+    }
+}
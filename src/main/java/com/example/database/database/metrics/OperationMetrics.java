@@ -0,0 +1,128 @@
+package com.example.database.database.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * measurements of one kind of operation, e.g. the inserts into one table: a
+ *   histogram of how long each call took, and counts of the calls that failed
+ *   and of the rows and bytes the calls processed. obtained through {@link
+ *   Metrics#getOperation}; nothing is recorded while the {@code Metrics} are
+ *   disabled.
+ */
+public final class OperationMetrics
+{
+    /**
+     * metrics this instance belongs to.
+     */
+    private final Metrics mMetrics;
+
+    /**
+     * name of the operation.
+     */
+    private final String mName;
+
+    /**
+     * time taken by each successful call, in nanoseconds.
+     */
+    private final Histogram mLatencies;
+
+    /**
+     * number of calls that failed.
+     */
+    private final AtomicLong mErrorCount;
+
+    /**
+     * number of rows processed by successful calls.
+     */
+    private final AtomicLong mRowCount;
+
+    /**
+     * number of bytes processed by successful calls.
+     */
+    private final AtomicLong mByteCount;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    OperationMetrics(Metrics metrics, String name)
+    {
+        mMetrics = metrics;
+        mName = name;
+        mLatencies = new Histogram();
+        mErrorCount = new AtomicLong();
+        mRowCount = new AtomicLong();
+        mByteCount = new AtomicLong();
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the name of the operation.
+     */
+    public String getName()
+    {
+        return mName;
+    }
+
+    /**
+     * records a successful call.
+     *
+     * @param  startNanos value of {@link System#nanoTime()} when the call
+     *   started.
+     * @param  rowCount number of rows processed by the call.
+     */
+    public void record(long startNanos, long rowCount)
+    {
+        record(startNanos, rowCount, 0);
+    }
+
+    /**
+     * records a successful call.
+     *
+     * @param  startNanos value of {@link System#nanoTime()} when the call
+     *   started.
+     * @param  rowCount number of rows processed by the call.
+     * @param  byteCount number of bytes processed by the call.
+     */
+    public void record(long startNanos, long rowCount, long byteCount)
+    {
+        if(mMetrics.isEnabled())
+        {
+            mLatencies.record(System.nanoTime()-startNanos);
+            mRowCount.addAndGet(rowCount);
+            mByteCount.addAndGet(byteCount);
+        }
+    }
+
+    /**
+     * records a call that failed.
+     */
+    public void recordError()
+    {
+        if(mMetrics.isEnabled())
+        {
+            mErrorCount.incrementAndGet();
+        }
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    void reset()
+    {
+        mLatencies.reset();
+        mErrorCount.set(0);
+        mRowCount.set(0);
+        mByteCount.set(0);
+    }
+
+    MetricsSnapshot.Operation snapshot()
+    {
+        return new MetricsSnapshot.Operation(mName, mLatencies.snapshot(),
+                mErrorCount.get(), mRowCount.get(), mByteCount.get());
+    }
+}
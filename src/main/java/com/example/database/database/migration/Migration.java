@@ -0,0 +1,119 @@
+package com.example.database.database.migration;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * a single versioned step of a schema migration. it changes the schema of the
+ *   database from the version before {@link #getVersion()} to that version
+ *   without losing the rows of any table. steps are registered with a {@code
+ *   MigrationRegistry}, which runs them in order of their versions; {@code
+ *   Migrations} has factory methods for the common steps.
+ *
+ * @author Eric Tsang
+ */
+public abstract class Migration
+{
+    /**
+     * version of the schema once this step has run.
+     */
+    private final int mVersion;
+
+    /**
+     * describes what this step does; used for progress reports and logs.
+     */
+    private final String mDescription;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a {@code Migration}.
+     *
+     * @param  version version of the schema once this step has run.
+     * @param  description describes what this step does.
+     */
+    protected Migration(int version, String description)
+    {
+        mVersion = version;
+        mDescription = description;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * passed into {@link #migrate}; used by a step to save how far it got, so
+     *   it can resume after being interrupted, and to report its progress.
+     */
+    public interface Progress
+    {
+        /**
+         * returns the checkpoint saved by the last committed call to {@link
+         *   #setCheckpoint}, or 0 if the step has not saved one yet.
+         */
+        public long getCheckpoint();
+
+        /**
+         * saves {@code checkpoint}. must be called inside the transaction of
+         *   the work it describes, so that both are committed together.
+         */
+        public void setCheckpoint(long checkpoint);
+
+        /**
+         * marks the step as done, so it is not run again. chunked steps must
+         *   call this inside the transaction that commits their last chunk;
+         *   other steps never need to call it.
+         */
+        public void finish();
+
+        /**
+         * reports that the step has done {@code done} of {@code total} units
+         *   of work, e.g. rows copied.
+         */
+        public void report(long done, long total);
+    }
+
+    /**
+     * returns the version of the schema once this step has run.
+     */
+    public final int getVersion()
+    {
+        return mVersion;
+    }
+
+    /**
+     * returns the description of what this step does.
+     */
+    public final String getDescription()
+    {
+        return mDescription;
+    }
+
+    /**
+     * returns true if this step begins and commits its own transactions, e.g.
+     *   to copy a large table in chunks instead of holding a single huge
+     *   transaction; false if it should be run inside a single transaction.
+     *   the default implementation returns false.
+     */
+    public boolean isChunked()
+    {
+        return false;
+    }
+
+    /**
+     * runs this step. if it is not chunked, it is run inside a transaction
+     *   that is committed once it returns, and rolled back if it throws.
+     *
+     * @param  db database to migrate.
+     * @param  progress used to save checkpoints and report progress.
+     */
+    public abstract void migrate(SQLiteDatabase db, Progress progress);
+
+    @Override
+    public String toString()
+    {
+        return "version "+mVersion+": "+mDescription;
+    }
+}
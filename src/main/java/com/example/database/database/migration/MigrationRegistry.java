@@ -0,0 +1,324 @@
+package com.example.database.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.example.database.database.core.DBWords.Opening;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * holds the {@code Migration} steps that upgrade the schema of a database one
+ *   version at a time, and runs them.
+ *
+ * {@code SQLiteOpenHelper} runs {@code onUpgrade} inside a single transaction,
+ *   which is too long for steps that copy large tables. so {@link #schedule}
+ *   only records the steps that have to run in a bookkeeping table, and
+ *   {@link #runPending} runs them once the database is open, each in its own
+ *   transaction, or in its own chunks of transactions. steps that were
+ *   interrupted, e.g. because the application was killed, are resumed from
+ *   their last checkpoint the next time the database is opened.
+ *
+ * @author Eric Tsang
+ */
+public class MigrationRegistry
+{
+    public static final String TAG = MigrationRegistry.class.getSimpleName();
+
+    /**
+     * name of the table that holds the steps waiting to be run.
+     */
+    public static final String PENDING_TABLE_NAME = "PendingMigrations";
+
+    /**
+     * column holding the version of a pending step.
+     */
+    private static final String VERSION = "Version";
+
+    /**
+     * column holding the last checkpoint saved by a pending step.
+     */
+    private static final String CHECKPOINT = "Checkpoint";
+
+    /**
+     * registered steps, by version.
+     */
+    private final Map<Integer, Migration> mMigrations;
+
+    /**
+     * notified of the progress of the steps; may be {@code null}.
+     */
+    private volatile OnProgressListener mListener;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    public MigrationRegistry()
+    {
+        mMigrations = new TreeMap<>();
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * interface with callbacks. invoked on the thread that opens the database
+     *   as steps run. chunked steps report their own units of work; the other
+     *   steps report 0 of 1 before their transaction begins, and 1 of 1 once
+     *   it has committed.
+     */
+    public interface OnProgressListener
+    {
+        /**
+         * invoked as {@code migration} progresses.
+         *
+         * @param  migration step that is running.
+         * @param  done units of work done so far, e.g. rows copied.
+         * @param  total total units of work of the step.
+         */
+        public void onMigrationProgress(Migration migration, long done, long total);
+    }
+
+    /**
+     * registers {@code migration}. only one step may be registered for each
+     *   version.
+     *
+     * @param  migration step to register.
+     *
+     * @return this instance, so calls can be chained.
+     */
+    public synchronized MigrationRegistry register(Migration migration)
+    {
+        if(mMigrations.containsKey(migration.getVersion()))
+        {
+            throw new IllegalArgumentException("a migration to version "
+                    +migration.getVersion()+" is already registered");
+        }
+        mMigrations.put(migration.getVersion(), migration);
+        return this;
+    }
+
+    /**
+     * sets the listener notified of the progress of the steps.
+     *
+     * @param  listener listener to notify; may be {@code null}.
+     */
+    public void setOnProgressListener(OnProgressListener listener)
+    {
+        mListener = listener;
+    }
+
+    /**
+     * prepares a newly created database; must be called from {@code
+     *   SQLiteOpenHelper.onCreate}. a new database already has the latest
+     *   schema, so no steps are scheduled.
+     *
+     * @param  db database that was created.
+     */
+    public void onCreate(SQLiteDatabase db)
+    {
+        createPendingTable(db);
+    }
+
+    /**
+     * records the steps needed to upgrade {@code db} from {@code oldVersion}
+     *   to {@code newVersion}; must be called from {@code
+     *   SQLiteOpenHelper.onUpgrade}. the steps are run by {@link #runPending}.
+     *
+     * @param  db database to upgrade.
+     * @param  oldVersion current version of the schema of {@code db}.
+     * @param  newVersion version to upgrade the schema of {@code db} to.
+     *
+     * @throws IllegalStateException if no step is registered for one of the
+     *   versions; the upgrade is rolled back, and {@code db} is left as is.
+     */
+    public synchronized void schedule(SQLiteDatabase db, int oldVersion, int newVersion)
+    {
+        createPendingTable(db);
+        SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO "
+                +PENDING_TABLE_NAME+"("+VERSION+","+CHECKPOINT+") VALUES(?,0)");
+        try
+        {
+            for(int version = oldVersion+1; version <= newVersion; ++version)
+            {
+                if(!mMigrations.containsKey(version))
+                {
+                    throw new IllegalStateException("no migration is registered "
+                            +"to upgrade to version "+version);
+                }
+                insert.bindLong(1, version);
+                insert.execute();
+            }
+        }
+        finally
+        {
+            insert.close();
+        }
+    }
+
+    /**
+     * runs the steps recorded by {@link #schedule} that have not finished
+     *   yet, in order of their versions; should be called from {@code
+     *   SQLiteOpenHelper.onOpen}, so the steps run before the database is
+     *   used.
+     *
+     * @param  db database to migrate.
+     *
+     * @return number of steps that were run.
+     */
+    public synchronized int runPending(SQLiteDatabase db)
+    {
+        createPendingTable(db);
+
+        List<long[]> pending = new ArrayList<>();
+        Cursor cursor = db.rawQuery(Opening.SELECT+VERSION+","+CHECKPOINT+" FROM "
+                +PENDING_TABLE_NAME+" ORDER BY "+VERSION, null);
+        try
+        {
+            while(cursor.moveToNext())
+            {
+                pending.add(new long[]{cursor.getLong(0), cursor.getLong(1)});
+            }
+        }
+        finally
+        {
+            cursor.close();
+        }
+
+        for(long[] step : pending)
+        {
+            Migration migration = mMigrations.get((int) step[0]);
+            if(migration == null)
+            {
+                throw new IllegalStateException("no migration is registered to "
+                        +"upgrade to version "+step[0]);
+            }
+            run(db, migration, step[1]);
+        }
+        return pending.size();
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static void createPendingTable(SQLiteDatabase db)
+    {
+        db.execSQL(Opening.CREATE_TABLE_IF_NOT_EXISTS+PENDING_TABLE_NAME+"("
+                +VERSION+" INTEGER PRIMARY KEY,"+CHECKPOINT+" INTEGER NOT NULL)");
+    }
+
+    private void run(SQLiteDatabase db, Migration migration, long checkpoint)
+    {
+        Log.i(TAG, "running migration to "+migration);
+        long start = System.nanoTime();
+
+        StepProgress progress = new StepProgress(db, migration, checkpoint);
+        try
+        {
+            if(migration.isChunked())
+            {
+                migration.migrate(db, progress);
+                if(!progress.mFinished)
+                {
+                    throw new IllegalStateException("chunked migration to "
+                            +migration+" returned without finishing");
+                }
+            }
+            else
+            {
+                progress.report(0, 1);
+                db.beginTransaction();
+                try
+                {
+                    migration.migrate(db, progress);
+                    progress.finish();
+                    db.setTransactionSuccessful();
+                }
+                finally
+                {
+                    db.endTransaction();
+                }
+                progress.report(1, 1);
+            }
+        }
+        finally
+        {
+            progress.close();
+        }
+
+        Log.i(TAG, "finished migration to "+migration+" in "
+                +(System.nanoTime()-start)/1000000+" ms");
+    }
+
+    /**
+     * {@code Progress} of a single step; saves its checkpoint to the row of
+     *   the step in the bookkeeping table.
+     */
+    private class StepProgress implements Migration.Progress
+    {
+        private final Migration mMigration;
+        private final SQLiteStatement mUpdate;
+        private final SQLiteStatement mDelete;
+        private long mCheckpoint;
+        private boolean mFinished;
+
+        StepProgress(SQLiteDatabase db, Migration migration, long checkpoint)
+        {
+            mMigration = migration;
+            mCheckpoint = checkpoint;
+            mUpdate = db.compileStatement(Opening.UPDATE+PENDING_TABLE_NAME+" SET "
+                    +CHECKPOINT+"=? WHERE "+VERSION+"="+migration.getVersion());
+            mDelete = db.compileStatement(Opening.DELETE_FROM+PENDING_TABLE_NAME
+                    +" WHERE "+VERSION+"="+migration.getVersion());
+        }
+
+        @Override
+        public long getCheckpoint()
+        {
+            return mCheckpoint;
+        }
+
+        @Override
+        public void setCheckpoint(long checkpoint)
+        {
+            mUpdate.bindLong(1, checkpoint);
+            mUpdate.execute();
+            mCheckpoint = checkpoint;
+        }
+
+        @Override
+        public void finish()
+        {
+            mDelete.execute();
+            mFinished = true;
+        }
+
+        @Override
+        public void report(long done, long total)
+        {
+            OnProgressListener listener = mListener;
+            if(listener != null)
+            {
+                listener.onMigrationProgress(mMigration, done, total);
+            }
+            if(Log.isLoggable(TAG, Log.DEBUG))
+            {
+                Log.d(TAG, mMigration+": "+done+"/"+total);
+            }
+        }
+
+        void close()
+        {
+            mUpdate.close();
+            mDelete.close();
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.database.database.migration;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.provider.BaseColumns;
+
+import com.example.database.database.core.DBWords.Opening;
+import com.example.database.database.core.Table;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * factory methods for the common {@code Migration} steps.
+ *
+ * @author Eric Tsang
+ */
+public final class Migrations
+{
+    /**
+     * default number of rows copied in each transaction of {@link
+     *   #copyAndSwap}.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+
+    private Migrations() {}
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns a step that runs {@code queries} in order.
+     *
+     * @param  version version of the schema once the step has run.
+     * @param  description describes what the step does.
+     * @param  queries queries to run.
+     */
+    public static Migration execSQL(int version, String description,
+                                    final String ... queries)
+    {
+        return new Migration(version, description)
+        {
+            @Override
+            public void migrate(SQLiteDatabase db, Progress progress)
+            {
+                for(String query : queries)
+                {
+                    db.execSQL(query);
+                }
+            }
+        };
+    }
+
+    /**
+     * returns a step that adds the column named {@code columnName}, as
+     *   declared by {@code table}, to {@code table} with ALTER TABLE. SQLite
+     *   can only add a column that is nullable or has a default value, and is
+     *   neither a primary key nor unique; use {@link #copyAndSwap} otherwise.
+     *
+     * @param  version version of the schema once the step has run.
+     * @param  table table to add the column to.
+     * @param  columnName name of the column to add.
+     */
+    public static Migration addColumn(int version, Table table, String columnName)
+    {
+        return execSQL(version, "add column "+columnName+" to "+table.getName(),
+                Opening.ALTER_TABLE+table.getName().toString()+" ADD COLUMN "
+                        +table.getColumnDefinition(columnName));
+    }
+
+    /**
+     * returns a step that creates the indexes declared by {@code table} that
+     *   don't exist yet.
+     *
+     * @param  version version of the schema once the step has run.
+     * @param  table table to create the indexes of.
+     */
+    public static Migration createIndexes(int version, Table table)
+    {
+        return execSQL(version, "create indexes of "+table.getName(),
+                table.getCreateIndexQueries());
+    }
+
+    /**
+     * returns a step that drops the indexes declared by {@code table} and
+     *   creates them again, e.g. after the columns or collation of an index
+     *   changed but its name didn't.
+     *
+     * @param  version version of the schema once the step has run.
+     * @param  table table to rebuild the indexes of.
+     */
+    public static Migration rebuildIndexes(int version, final Table table)
+    {
+        return new Migration(version, "rebuild indexes of "+table.getName())
+        {
+            @Override
+            public void migrate(SQLiteDatabase db, Progress progress)
+            {
+                for(String query : table.getDropIndexQueries())
+                {
+                    db.execSQL(query);
+                }
+                for(String query : table.getCreateIndexQueries())
+                {
+                    db.execSQL(query);
+                }
+            }
+        };
+    }
+
+    /**
+     * returns a step that creates the full-text search table of {@code
+     *   table}, and fills it with the existing rows of {@code table}.
+     *
+     * @param  version version of the schema once the step has run.
+     * @param  table table to create the search table of.
+     */
+    public static Migration createSearchTable(int version, final Table table)
+    {
+        return new Migration(version, "create search table of "+table.getName())
+        {
+            @Override
+            public void migrate(SQLiteDatabase db, Progress progress)
+            {
+                for(String query : table.getDropSearchTableQueries())
+                {
+                    db.execSQL(query);
+                }
+                for(String query : table.getCreateSearchTableQueries())
+                {
+                    db.execSQL(query);
+                }
+                db.execSQL(table.getRebuildSearchTableQuery());
+            }
+        };
+    }
+
+    /**
+     * returns a step that copies the rows of {@code table} into a new table
+     *   with the columns declared by {@code table}, and replaces {@code table}
+     *   with it; see {@link #copyAndSwap(int, Table, int)}.
+     */
+    public static Migration copyAndSwap(int version, Table table)
+    {
+        return copyAndSwap(version, table, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * returns a step that copies the rows of {@code table} into a new table
+     *   with the columns declared by {@code table}, and replaces {@code table}
+     *   with it. this is how the type or constraints of a column are changed,
+     *   or a column is removed, since SQLite's ALTER TABLE can't do either.
+     *
+     * only the columns that exist in both the old table and the declaration
+     *   are copied; values are converted to the declared types by SQLite.
+     *   rows are copied in order of their _IDs, {@code chunkSize} rows per
+     *   transaction, so the step never holds a huge transaction, and resumes
+     *   after the last copied chunk if it is interrupted. the indexes and
+     *   search table of {@code table} are recreated once all rows are copied.
+     *
+     * @param  version version of the schema once the step has run.
+     * @param  table table to copy and swap.
+     * @param  chunkSize number of rows copied in each transaction.
+     */
+    public static Migration copyAndSwap(int version, Table table, int chunkSize)
+    {
+        return new CopyAndSwapMigration(version, table, chunkSize);
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static class CopyAndSwapMigration extends Migration
+    {
+        private final Table mTable;
+        private final int mChunkSize;
+
+        CopyAndSwapMigration(int version, Table table, int chunkSize)
+        {
+            super(version, "copy and swap "+table.getName());
+            mTable = table;
+            mChunkSize = chunkSize;
+        }
+
+        @Override
+        public boolean isChunked()
+        {
+            return true;
+        }
+
+        @Override
+        public void migrate(SQLiteDatabase db, Progress progress)
+        {
+            String name = mTable.getName().toString();
+            String copyName = name+"Copy";
+
+            // the copy is created in its own transaction, so it exists with
+            // every chunk that was copied into it if the step is interrupted
+            db.execSQL(mTable.getCreateTableQuery(copyName));
+
+            String columns = joinCopiedColumns(db, name);
+            SQLiteStatement copyChunk = db.compileStatement(Opening.INSERT_INTO
+                    +copyName+"("+columns+") "+Opening.SELECT+columns+" FROM "+name
+                    +" WHERE "+BaseColumns._ID+">? ORDER BY "+BaseColumns._ID
+                    +" LIMIT "+mChunkSize);
+            SQLiteStatement lastCopiedId = db.compileStatement(Opening.SELECT+"MAX("
+                    +BaseColumns._ID+") FROM "+copyName);
+            SQLiteStatement count = db.compileStatement(Opening.SELECT
+                    +"COUNT(*) FROM "+name);
+            SQLiteStatement copiedCount = db.compileStatement(Opening.SELECT
+                    +"COUNT(*) FROM "+copyName);
+            try
+            {
+                long total = count.simpleQueryForLong();
+                long done = copiedCount.simpleQueryForLong();
+                progress.report(done, total);
+
+                int copied;
+                do
+                {
+                    db.beginTransaction();
+                    try
+                    {
+                        copyChunk.bindLong(1, progress.getCheckpoint());
+                        copied = copyChunk.executeUpdateDelete();
+                        if(copied > 0)
+                        {
+                            progress.setCheckpoint(lastCopiedId.simpleQueryForLong());
+                        }
+                        db.setTransactionSuccessful();
+                    }
+                    finally
+                    {
+                        db.endTransaction();
+                    }
+                    done += copied;
+                    progress.report(done, total);
+                }
+                while(copied == mChunkSize);
+            }
+            finally
+            {
+                copyChunk.close();
+                lastCopiedId.close();
+                count.close();
+                copiedCount.close();
+            }
+
+            // dropping the old table drops its indexes and triggers too, but
+            // not its search table; they are all recreated for the copy once
+            // it has taken the old name
+            db.beginTransaction();
+            try
+            {
+                db.execSQL(Opening.DROP_TABLE_IF_EXISTS+name);
+                db.execSQL(Opening.ALTER_TABLE+copyName+" RENAME TO "+name);
+                for(String query : mTable.getCreateIndexQueries())
+                {
+                    db.execSQL(query);
+                }
+                for(String query : mTable.getDropSearchTableQueries())
+                {
+                    db.execSQL(query);
+                }
+                String[] searchTableQueries = mTable.getCreateSearchTableQueries();
+                for(String query : searchTableQueries)
+                {
+                    db.execSQL(query);
+                }
+                if(searchTableQueries.length > 0)
+                {
+                    db.execSQL(mTable.getRebuildSearchTableQuery());
+                }
+                progress.finish();
+                db.setTransactionSuccessful();
+            }
+            finally
+            {
+                db.endTransaction();
+            }
+        }
+
+        /**
+         * returns the names of the columns that exist both in the table named
+         *   {@code name} and in the declaration of {@code mTable}, separated by
+         *   commas.
+         */
+        private String joinCopiedColumns(SQLiteDatabase db, String name)
+        {
+            List<String> existing = new ArrayList<>();
+            Cursor cursor = db.rawQuery("PRAGMA table_info("+name+")", null);
+            try
+            {
+                int nameIndex = cursor.getColumnIndexOrThrow("name");
+                while(cursor.moveToNext())
+                {
+                    existing.add(cursor.getString(nameIndex));
+                }
+            }
+            finally
+            {
+                cursor.close();
+            }
+
+            StringBuilder columns = new StringBuilder();
+            for(String columnName : mTable.getColumnFactories().keySet())
+            {
+                if(existing.contains(columnName))
+                {
+                    columns.append((columns.length() == 0) ? "" : ",");
+                    columns.append(columnName);
+                }
+            }
+            return columns.toString();
+        }
+    }
+}
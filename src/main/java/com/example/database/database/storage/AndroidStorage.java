@@ -0,0 +1,259 @@
+package com.example.database.database.storage;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * {@code Storage} over the framework's {@code SQLiteDatabase}; the default
+ *   implementation, used on devices. calls are passed straight through, and
+ *   errors are reported with the framework's {@code SQLException}s.
+ */
+public final class AndroidStorage implements Storage
+{
+    /**
+     * engine opening {@code AndroidStorage} connections to database files.
+     */
+    public static final StorageEngine ENGINE = new StorageEngine()
+    {
+        @Override
+        public Storage open(String path)
+        {
+            return new AndroidStorage(SQLiteDatabase.openOrCreateDatabase(path, null));
+        }
+    };
+
+    private final SQLiteDatabase mDatabase;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates an {@code AndroidStorage} over an open connection; e.g. one
+     *   obtained from {@code DBAccess}.
+     *
+     * @param  database connection to run the statements on.
+     */
+    public AndroidStorage(SQLiteDatabase database)
+    {
+        mDatabase = database;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns a {@code RowCursor} over {@code cursor}, positioned wherever
+     *   {@code cursor} is; moving either one moves both, and closing either one
+     *   closes both.
+     *
+     * @param  cursor cursor obtained from a query of a {@code SQLiteDatabase}.
+     *
+     * @return a {@code RowCursor} reading the rows of {@code cursor}.
+     */
+    public static RowCursor wrap(Cursor cursor)
+    {
+        return new CursorAdapter(cursor);
+    }
+
+    /**
+     * returns the connection the statements run on.
+     */
+    public SQLiteDatabase getDatabase()
+    {
+        return mDatabase;
+    }
+
+    @Override
+    public void execute(String sql)
+    {
+        mDatabase.execSQL(sql);
+    }
+
+    @Override
+    public StorageStatement compileStatement(String sql)
+    {
+        return new Statement(mDatabase.compileStatement(sql));
+    }
+
+    @Override
+    public RowCursor query(String sql, String[] selectionArgs)
+    {
+        return new CursorAdapter(mDatabase.rawQuery(sql, selectionArgs));
+    }
+
+    @Override
+    public void beginTransaction()
+    {
+        mDatabase.beginTransaction();
+    }
+
+    @Override
+    public void setTransactionSuccessful()
+    {
+        mDatabase.setTransactionSuccessful();
+    }
+
+    @Override
+    public void endTransaction()
+    {
+        mDatabase.endTransaction();
+    }
+
+    @Override
+    public boolean inTransaction()
+    {
+        return mDatabase.inTransaction();
+    }
+
+    @Override
+    public void close()
+    {
+        mDatabase.close();
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static final class Statement implements StorageStatement
+    {
+        private final SQLiteStatement mStatement;
+
+        Statement(SQLiteStatement statement)
+        {
+            mStatement = statement;
+        }
+
+        @Override
+        public void bindNull(int index)
+        {
+            mStatement.bindNull(index);
+        }
+
+        @Override
+        public void bindLong(int index, long value)
+        {
+            mStatement.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value)
+        {
+            mStatement.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value)
+        {
+            mStatement.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value)
+        {
+            mStatement.bindBlob(index, value);
+        }
+
+        @Override
+        public void clearBindings()
+        {
+            mStatement.clearBindings();
+        }
+
+        @Override
+        public long executeInsert()
+        {
+            return mStatement.executeInsert();
+        }
+
+        @Override
+        public int executeUpdateDelete()
+        {
+            return mStatement.executeUpdateDelete();
+        }
+
+        @Override
+        public void close()
+        {
+            mStatement.close();
+        }
+    }
+
+    /**
+     * {@code RowCursor} over a {@code Cursor}; the {@code TYPE_} constants of
+     *   {@code RowCursor} have the values of the {@code Cursor.FIELD_TYPE_}
+     *   constants, so types are passed through as they are.
+     */
+    private static final class CursorAdapter implements RowCursor
+    {
+        private final Cursor mCursor;
+
+        CursorAdapter(Cursor cursor)
+        {
+            mCursor = cursor;
+        }
+
+        @Override
+        public boolean moveToNext()
+        {
+            return mCursor.moveToNext();
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            return mCursor.getColumnCount();
+        }
+
+        @Override
+        public String getColumnName(int index)
+        {
+            return mCursor.getColumnName(index);
+        }
+
+        @Override
+        public int getType(int index)
+        {
+            return mCursor.getType(index);
+        }
+
+        @Override
+        public boolean isNull(int index)
+        {
+            return mCursor.isNull(index);
+        }
+
+        @Override
+        public long getLong(int index)
+        {
+            return mCursor.getLong(index);
+        }
+
+        @Override
+        public double getDouble(int index)
+        {
+            return mCursor.getDouble(index);
+        }
+
+        @Override
+        public String getString(int index)
+        {
+            return mCursor.getString(index);
+        }
+
+        @Override
+        public byte[] getBlob(int index)
+        {
+            return mCursor.getBlob(index);
+        }
+
+        @Override
+        public void close()
+        {
+            mCursor.close();
+        }
+    }
+}
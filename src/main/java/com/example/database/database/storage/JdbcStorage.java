@@ -0,0 +1,593 @@
+package com.example.database.database.storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+
+/**
+ * {@code Storage} over a JDBC connection to a SQLite database; lets the
+ *   tables, and the code that reads and writes their rows through {@code
+ *   RowStore}, run on a plain JVM, e.g. in batch jobs and host benchmarks.
+ *   needs a SQLite JDBC driver, such as org.xerial:sqlite-jdbc, on the class
+ *   path; {@link #ENGINE} opens databases with the {@code jdbc:sqlite:} URL.
+ *
+ * JDBC has no nested transactions, so they are emulated like {@code
+ *   SQLiteDatabase} does: only the outermost transaction commits or rolls
+ *   back, and it rolls back if any transaction nested in it wasn't marked
+ *   successful. {@code SQLException}s are rethrown as {@code
+ *   StorageException}s. unlike {@code SQLiteDatabase}, an instance must not
+ *   be used by several threads at once.
+ */
+public final class JdbcStorage implements Storage
+{
+    /**
+     * prefix of the JDBC URL of a SQLite database file.
+     */
+    public static final String URL_PREFIX = "jdbc:sqlite:";
+
+    /**
+     * engine opening {@code JdbcStorage} connections to database files.
+     */
+    public static final StorageEngine ENGINE = new StorageEngine()
+    {
+        @Override
+        public Storage open(String path)
+        {
+            try
+            {
+                return new JdbcStorage(DriverManager.getConnection(URL_PREFIX+path));
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException("cannot open "+path, e);
+            }
+        }
+    };
+
+    private final Connection mConnection;
+
+    /**
+     * statement that gets the rowid of the last row inserted on the
+     *   connection; compiled the first time a row is inserted.
+     */
+    private PreparedStatement mLastInsertRowId;
+
+    /**
+     * number of transactions in progress; 0 outside of transactions.
+     */
+    private int mTransactionDepth;
+
+    /**
+     * true if the innermost transaction in progress was marked successful.
+     */
+    private boolean mTransactionSuccessful;
+
+    /**
+     * true if a transaction nested in the outermost one ended without being
+     *   marked successful, so the outermost one must roll back.
+     */
+    private boolean mTransactionFailed;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a {@code JdbcStorage} over an open connection in
+     *   auto-commit mode.
+     *
+     * @param  connection connection to run the statements on.
+     */
+    public JdbcStorage(Connection connection)
+    {
+        mConnection = connection;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the connection the statements run on.
+     */
+    public Connection getConnection()
+    {
+        return mConnection;
+    }
+
+    @Override
+    public void execute(String sql)
+    {
+        try
+        {
+            Statement statement = mConnection.createStatement();
+            try
+            {
+                statement.execute(sql);
+            }
+            finally
+            {
+                statement.close();
+            }
+        }
+        catch(SQLException e)
+        {
+            throw new StorageException(sql, e);
+        }
+    }
+
+    @Override
+    public StorageStatement compileStatement(String sql)
+    {
+        try
+        {
+            return new JdbcStatement(mConnection.prepareStatement(sql), sql);
+        }
+        catch(SQLException e)
+        {
+            throw new StorageException(sql, e);
+        }
+    }
+
+    @Override
+    public RowCursor query(String sql, String[] selectionArgs)
+    {
+        try
+        {
+            PreparedStatement statement = mConnection.prepareStatement(sql);
+            try
+            {
+                if(selectionArgs != null)
+                {
+                    for(int i = 0; i < selectionArgs.length; ++i)
+                    {
+                        statement.setString(i+1, selectionArgs[i]);
+                    }
+                }
+                return new ResultSetCursor(statement, statement.executeQuery(), sql);
+            }
+            catch(SQLException e)
+            {
+                statement.close();
+                throw e;
+            }
+        }
+        catch(SQLException e)
+        {
+            throw new StorageException(sql, e);
+        }
+    }
+
+    @Override
+    public void beginTransaction()
+    {
+        if(mTransactionDepth == 0)
+        {
+            try
+            {
+                mConnection.setAutoCommit(false);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException("cannot begin transaction", e);
+            }
+            mTransactionFailed = false;
+        }
+        ++mTransactionDepth;
+        mTransactionSuccessful = false;
+    }
+
+    @Override
+    public void setTransactionSuccessful()
+    {
+        if(mTransactionDepth == 0)
+        {
+            throw new IllegalStateException("no transaction in progress");
+        }
+        mTransactionSuccessful = true;
+    }
+
+    @Override
+    public void endTransaction()
+    {
+        if(mTransactionDepth == 0)
+        {
+            throw new IllegalStateException("no transaction in progress");
+        }
+        mTransactionFailed |= !mTransactionSuccessful;
+
+        // the enclosing transaction can't have been marked successful before
+        // this one began
+        mTransactionSuccessful = false;
+        if(--mTransactionDepth > 0)
+        {
+            return;
+        }
+
+        try
+        {
+            try
+            {
+                if(mTransactionFailed)
+                {
+                    mConnection.rollback();
+                }
+                else
+                {
+                    mConnection.commit();
+                }
+            }
+            finally
+            {
+                mConnection.setAutoCommit(true);
+            }
+        }
+        catch(SQLException e)
+        {
+            throw new StorageException("cannot end transaction", e);
+        }
+    }
+
+    @Override
+    public boolean inTransaction()
+    {
+        return mTransactionDepth > 0;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            if(mLastInsertRowId != null)
+            {
+                mLastInsertRowId.close();
+            }
+            mConnection.close();
+        }
+        catch(SQLException e)
+        {
+            throw new StorageException("cannot close connection", e);
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * returns the rowid of the last row inserted on the connection.
+     */
+    private long lastInsertRowId() throws SQLException
+    {
+        if(mLastInsertRowId == null)
+        {
+            mLastInsertRowId = mConnection.prepareStatement("SELECT last_insert_rowid()");
+        }
+        ResultSet result = mLastInsertRowId.executeQuery();
+        try
+        {
+            return result.next() ? result.getLong(1) : -1;
+        }
+        finally
+        {
+            result.close();
+        }
+    }
+
+    private final class JdbcStatement implements StorageStatement
+    {
+        private final PreparedStatement mStatement;
+
+        /**
+         * SQL of the statement; only used to describe errors.
+         */
+        private final String mSql;
+
+        JdbcStatement(PreparedStatement statement, String sql)
+        {
+            mStatement = statement;
+            mSql = sql;
+        }
+
+        @Override
+        public void bindNull(int index)
+        {
+            try
+            {
+                mStatement.setNull(index, Types.NULL);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void bindLong(int index, long value)
+        {
+            try
+            {
+                mStatement.setLong(index, value);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void bindDouble(int index, double value)
+        {
+            try
+            {
+                mStatement.setDouble(index, value);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void bindString(int index, String value)
+        {
+            try
+            {
+                mStatement.setString(index, value);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value)
+        {
+            try
+            {
+                mStatement.setBytes(index, value);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void clearBindings()
+        {
+            try
+            {
+                mStatement.clearParameters();
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        /**
+         * runs the statement; like {@code SQLiteStatement}, returns -1 if no
+         *   row was inserted.
+         */
+        @Override
+        public long executeInsert()
+        {
+            try
+            {
+                return (mStatement.executeUpdate() > 0) ? lastInsertRowId() : -1;
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public int executeUpdateDelete()
+        {
+            try
+            {
+                return mStatement.executeUpdate();
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try
+            {
+                mStatement.close();
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+    }
+
+    /**
+     * {@code RowCursor} over a {@code ResultSet}. SQLite values are typed
+     *   per cell rather than per column, so a cell's type is derived from the
+     *   class of the object the driver returns for it.
+     */
+    private static final class ResultSetCursor implements RowCursor
+    {
+        private final PreparedStatement mStatement;
+        private final ResultSet mResult;
+
+        /**
+         * SQL of the query; only used to describe errors.
+         */
+        private final String mSql;
+
+        ResultSetCursor(PreparedStatement statement, ResultSet result, String sql)
+        {
+            mStatement = statement;
+            mResult = result;
+            mSql = sql;
+        }
+
+        @Override
+        public boolean moveToNext()
+        {
+            try
+            {
+                return mResult.next();
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public int getColumnCount()
+        {
+            try
+            {
+                return mResult.getMetaData().getColumnCount();
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public String getColumnName(int index)
+        {
+            try
+            {
+                return mResult.getMetaData().getColumnLabel(index+1);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public int getType(int index)
+        {
+            Object value;
+            try
+            {
+                value = mResult.getObject(index+1);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+
+            if(value == null)
+            {
+                return TYPE_NULL;
+            }
+            else if(value instanceof Long || value instanceof Integer)
+            {
+                return TYPE_INTEGER;
+            }
+            else if(value instanceof Double || value instanceof Float)
+            {
+                return TYPE_FLOAT;
+            }
+            else if(value instanceof byte[])
+            {
+                return TYPE_BLOB;
+            }
+            else
+            {
+                return TYPE_STRING;
+            }
+        }
+
+        @Override
+        public boolean isNull(int index)
+        {
+            return getType(index) == TYPE_NULL;
+        }
+
+        @Override
+        public long getLong(int index)
+        {
+            try
+            {
+                return mResult.getLong(index+1);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public double getDouble(int index)
+        {
+            try
+            {
+                return mResult.getDouble(index+1);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public String getString(int index)
+        {
+            try
+            {
+                return mResult.getString(index+1);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public byte[] getBlob(int index)
+        {
+            try
+            {
+                return mResult.getBytes(index+1);
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            try
+            {
+                try
+                {
+                    mResult.close();
+                }
+                finally
+                {
+                    mStatement.close();
+                }
+            }
+            catch(SQLException e)
+            {
+                throw new StorageException(mSql, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.database.database.storage;
+
+import com.example.database.database.core.Column;
+import com.example.database.database.core.ColumnFactory;
+import com.example.database.database.core.DBWords.JavaType;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * converts rows between {@code Column} values and a {@code Storage}: parses
+ *   rows out of a {@code RowCursor}, and binds columns to a {@code
+ *   StorageStatement}. shared by {@code Dao} and {@code RowStore}, so rows
+ *   are read and written the same way on every storage engine.
+ *
+ * rows are parsed with a decode plan, compiled once for each combination of
+ *   {@code Table} and projection; the {@code ColumnFactory} instances and Java
+ *   types of the projection are resolved up front and held in arrays, so
+ *   parsing a row does no name lookups and only allocates the {@code Row}
+ *   itself.
+ */
+public final class RowCodec
+{
+    /**
+     * compiled plans, keyed by table name and projection.
+     */
+    private static final Map<String, RowCodec> sCodecs = new HashMap<>();
+
+    /**
+     * names of the columns in the projection, in cursor order.
+     */
+    private final String[] mColumnNames;
+
+    /**
+     * {@code ColumnFactory} producing the column at the same index in the
+     *   projection.
+     */
+    private final ColumnFactory[] mColumnFactories;
+
+    /**
+     * Java type of the column at the same index in the projection.
+     */
+    private final JavaType[] mJavaTypes;
+
+    /**
+     * names of the columns of the table the plan was compiled for; only used
+     *   to describe errors.
+     */
+    private final String[] mTableColumnNames;
+
+    /**
+     * table the plan was compiled for if the projection only has some of its
+     *   columns; {@code null} otherwise. passed to the decoded rows, which are
+     *   partial.
+     */
+    private final Table mPartialTable;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    private RowCodec(Table table, String[] columnNames)
+    {
+        mColumnNames = columnNames;
+        mColumnFactories = new ColumnFactory[columnNames.length];
+        mJavaTypes = new JavaType[columnNames.length];
+        mTableColumnNames = table.getColumnNames();
+        mPartialTable = (columnNames.length < mTableColumnNames.length) ? table : null;
+
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            ColumnFactory columnFactory = table.getColumnFactory(columnNames[i]);
+            if(columnFactory == null)
+            {
+                throw new IllegalArgumentException("missing column: "
+                        +columnNames[i]+describeColumns());
+            }
+            mColumnFactories[i] = columnFactory;
+            mJavaTypes[i] = columnFactory.getJavaType();
+        }
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * returns the decode plan for rows of {@code table} with the columns of
+     *   {@code cursor}, compiling it if it doesn't exist yet.
+     *
+     * @param  table table that was queried to get the {@code cursor}.
+     * @param  cursor cursor obtained from the query.
+     *
+     * @return the decode plan for the projection of {@code cursor}.
+     */
+    public static RowCodec forCursor(Table table, RowCursor cursor)
+    {
+        String[] columnNames = new String[cursor.getColumnCount()];
+
+        StringBuilder key = new StringBuilder();
+        key.append(table.getName());
+        for(int i = 0; i < columnNames.length; ++i)
+        {
+            columnNames[i] = cursor.getColumnName(i);
+            key.append(',');
+            key.append(columnNames[i]);
+        }
+
+        synchronized(sCodecs)
+        {
+            RowCodec codec = sCodecs.get(key.toString());
+            if(codec == null)
+            {
+                codec = new RowCodec(table, columnNames);
+                sCodecs.put(key.toString(), codec);
+            }
+            return codec;
+        }
+    }
+
+    /**
+     * binds the value of {@code column} to the {@code index}th placeholder of
+     *   {@code statement}.
+     *
+     * @param statement statement to bind the value to.
+     * @param index 1-based index of the placeholder to bind the value to.
+     * @param column specifies the value to bind.
+     */
+    public static void bind(StorageStatement statement, int index, Column column)
+    {
+        switch(column.getJavaType())
+        {
+
+            case BOOLEAN:
+                statement.bindLong(index, column.getBoolean() ? 1 : 0);
+                break;
+
+            case BYTES:
+                statement.bindBlob(index, column.getBytes());
+                break;
+
+            case DOUBLE:
+                statement.bindDouble(index, column.getDouble());
+                break;
+
+            case FLOAT:
+                statement.bindDouble(index, column.getFloat());
+                break;
+
+            case INT:
+                statement.bindLong(index, column.getInt());
+                break;
+
+            case LONG:
+                statement.bindLong(index, column.getLong());
+                break;
+
+            case SHORT:
+                statement.bindLong(index, column.getShort());
+                break;
+
+            case STRING:
+                statement.bindString(index, column.getString());
+                break;
+        }
+    }
+
+    /**
+     * verifies that the column types of the current row of {@code cursor}
+     *   correspond with the Java types of this plan.
+     *
+     * @param  cursor cursor positioned at a row.
+     *
+     * @throws IllegalArgumentException if the types are not compatible.
+     */
+    public void verify(RowCursor cursor)
+    {
+        for(int i = 0; i < mJavaTypes.length; ++i)
+        {
+            if(!verifyType(mJavaTypes[i], cursor.getType(i)))
+            {
+                throw new IllegalArgumentException("Incompatible types or missing columns: "
+                        +"factory column type: "+mJavaTypes[i]+", "
+                        +"cursor column type: "+cursor.getType(i)
+                        +describeColumns());
+            }
+        }
+    }
+
+    /**
+     * parses the current row of {@code cursor} into a new {@code Row}. the
+     *   columns of the returned row are not dirty; the row is partial if the
+     *   projection doesn't have all the columns of the table.
+     *
+     * @param  cursor cursor positioned at a row.
+     *
+     * @return the parsed row.
+     */
+    public Row decode(RowCursor cursor)
+    {
+        // capacity is chosen so that the map never needs to be resized
+        Map<String, Column> columns = new LinkedHashMap<>(mColumnNames.length*4/3+1);
+        for(int i = 0; i < mColumnFactories.length; ++i)
+        {
+            Column column = mColumnFactories[i].makeColumn();
+            switch(mJavaTypes[i])
+            {
+
+                case BOOLEAN:
+                    column.setValue(cursor.getLong(i) == 1);
+                    break;
+
+                case BYTES:
+                    column.setValue(cursor.getBlob(i));
+                    break;
+
+                case DOUBLE:
+                    column.setValue(cursor.getDouble(i));
+                    break;
+
+                case FLOAT:
+                    column.setValue((float) cursor.getDouble(i));
+                    break;
+
+                case INT:
+                    column.setValue((int) cursor.getLong(i));
+                    break;
+
+                case LONG:
+                    column.setValue(cursor.getLong(i));
+                    break;
+
+                case SHORT:
+                    column.setValue((short) cursor.getLong(i));
+                    break;
+
+                case STRING:
+                    column.setValue(cursor.getString(i));
+                    break;
+            }
+            column.clearDirty();
+            columns.put(mColumnNames[i], column);
+        }
+        return new Row(columns, mPartialTable);
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * returns a description of the projection and the table's columns to be
+     *   appended to error messages.
+     */
+    private String describeColumns()
+    {
+        StringBuilder details = new StringBuilder();
+        boolean first;
+
+        first = true;
+        for(String cursorColumnName : mColumnNames)
+        {
+            details.append((first) ? "; cursor column names: " : ", ");
+            details.append(cursorColumnName);
+            first = false;
+        }
+
+        first = true;
+        for(String factoryColumnName : mTableColumnNames)
+        {
+            details.append((first) ? "; column factory names: " : ", ");
+            details.append(factoryColumnName);
+            first = false;
+        }
+
+        return details.toString();
+    }
+
+    /**
+     * verifies that {@code javaType} and {@code cursorType} are logically
+     *   compatible. returns true if they are logically compatible; false
+     *   otherwise.
+     *
+     * @param  javaType the {@code JavaType} to verify.
+     * @param  cursorType the type of a column obtained through {@code
+     *   RowCursor.getType()} to verify.
+     *
+     * @return true if the passed types are logically compatible; false
+     *   otherwise.
+     */
+    private static boolean verifyType(JavaType javaType, int cursorType)
+    {
+        switch(javaType)
+        {
+
+            case BOOLEAN:
+            case INT:
+            case LONG:
+            case SHORT:
+                return cursorType == RowCursor.TYPE_INTEGER;
+
+            case BYTES:
+                return cursorType == RowCursor.TYPE_BLOB;
+
+            case DOUBLE:
+            case FLOAT:
+                return cursorType == RowCursor.TYPE_FLOAT;
+
+            case STRING:
+                return cursorType == RowCursor.TYPE_STRING;
+
+            default:
+                throw new RuntimeException("default case! maybe there is missing case statement " +
+                        "for the case: "+javaType);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.database.database.storage;
+
+/**
+ * forward-only cursor over the rows returned by a query of a {@code
+ *   Storage}. columns are indexed from 0, in the order of the query.
+ */
+public interface RowCursor
+{
+    /** type of a NULL value; same as {@code Cursor.FIELD_TYPE_NULL}. */
+    public static final int TYPE_NULL = 0;
+
+    /** type of an INTEGER value; same as {@code Cursor.FIELD_TYPE_INTEGER}. */
+    public static final int TYPE_INTEGER = 1;
+
+    /** type of a REAL value; same as {@code Cursor.FIELD_TYPE_FLOAT}. */
+    public static final int TYPE_FLOAT = 2;
+
+    /** type of a TEXT value; same as {@code Cursor.FIELD_TYPE_STRING}. */
+    public static final int TYPE_STRING = 3;
+
+    /** type of a BLOB value; same as {@code Cursor.FIELD_TYPE_BLOB}. */
+    public static final int TYPE_BLOB = 4;
+
+    /**
+     * moves to the next row; the cursor starts before the first row.
+     *
+     * @return false if there are no more rows.
+     */
+    public boolean moveToNext();
+
+    public int getColumnCount();
+
+    public String getColumnName(int index);
+
+    /**
+     * returns the type of the value of the {@code index}th column of the
+     *   current row; one of the {@code TYPE_} constants.
+     */
+    public int getType(int index);
+
+    public boolean isNull(int index);
+
+    public long getLong(int index);
+
+    public double getDouble(int index);
+
+    public String getString(int index);
+
+    public byte[] getBlob(int index);
+
+    /**
+     * releases the cursor and the result it holds.
+     */
+    public void close();
+}
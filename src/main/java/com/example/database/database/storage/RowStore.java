@@ -0,0 +1,377 @@
+package com.example.database.database.storage;
+
+import android.provider.BaseColumns;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.Dao;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * reads and writes the rows of a {@code Table} through a {@code Storage}, so
+ *   the same tables and rows work on any storage engine. writes work like
+ *   those of {@code Dao}: each call runs in a single transaction, inserted rows
+ *   get their ids, only the dirty columns of updated rows are written, and
+ *   deletes are chunked.
+ *
+ * {@code Dao} remains the data access object of the application; it uses
+ *   features of the framework's SQLite that this class doesn't have, such as
+ *   the query cache, change notifications and the shutdown of the connection
+ *   managed by {@code DBAccess}, which this class must therefore not write.
+ *   both bind and parse rows with {@code RowCodec}.
+ *
+ * @param <T> type of the table.
+ */
+public class RowStore<T extends Table>
+{
+    private final Storage mStorage;
+    private final T mTable;
+
+    /**
+     * names of the columns written by {@link #insert}, in the order of the
+     *   placeholders of the insert query.
+     */
+    private final String[] mDataColumnNames;
+
+    /**
+     * compiled statements, keyed by their SQL; closed by {@link #close()}.
+     */
+    private final Map<String, StorageStatement> mStatements;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    /**
+     * instantiates a {@code RowStore} for the rows of {@code table}.
+     *
+     * @param  storage connection to the database that has the table.
+     * @param  table table to read and write.
+     */
+    public RowStore(Storage storage, T table)
+    {
+        mStorage = storage;
+        mTable = table;
+        mDataColumnNames = table.getDataColumnNames();
+        mStatements = new HashMap<>();
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    public T getTable()
+    {
+        return mTable;
+    }
+
+    /**
+     * creates the table and its indexes if they don't exist, and recreates
+     *   its full-text search table from its rows, in a single transaction.
+     */
+    public synchronized void create()
+    {
+        mStorage.beginTransaction();
+        try
+        {
+            mStorage.execute(mTable.getCreateTableQuery());
+            for(String query : mTable.getCreateIndexQueries())
+            {
+                mStorage.execute(query);
+            }
+            for(String query : mTable.getDropSearchTableQueries())
+            {
+                mStorage.execute(query);
+            }
+            String[] searchTableQueries = mTable.getCreateSearchTableQueries();
+            for(String query : searchTableQueries)
+            {
+                mStorage.execute(query);
+            }
+            if(searchTableQueries.length > 0)
+            {
+                mStorage.execute(mTable.getRebuildSearchTableQuery());
+            }
+            mStorage.setTransactionSuccessful();
+        }
+        finally
+        {
+            mStorage.endTransaction();
+        }
+    }
+
+    /**
+     * loads every row of the table, in the order of their ids.
+     *
+     * @param  listener notified of each row as soon as it is parsed; may be
+     *   {@code null}.
+     *
+     * @return number of rows loaded.
+     */
+    public int queryAll(DBAccess.OnRowLoadedListener listener)
+    {
+        return queryAll(mTable.getColumnNames(), listener);
+    }
+
+    /**
+     * loads the {@code projection} of every row of the table, in the order of
+     *   their ids; the rows are partial unless the {@code projection} has
+     *   every column of the table.
+     *
+     * @param  projection names of the columns to load.
+     * @param  listener notified of each row as soon as it is parsed; may be
+     *   {@code null}.
+     *
+     * @return number of rows loaded.
+     */
+    public int queryAll(String[] projection, DBAccess.OnRowLoadedListener listener)
+    {
+        RowCursor cursor = mStorage.query(mTable.getSelectQuery(projection)
+                +" ORDER BY "+BaseColumns._ID, null);
+        try
+        {
+            RowCodec codec = null;
+            int rowCount = 0;
+            while(cursor.moveToNext())
+            {
+                if(codec == null)
+                {
+                    codec = RowCodec.forCursor(mTable, cursor);
+                    codec.verify(cursor);
+                }
+                Row row = codec.decode(cursor);
+                if(listener != null)
+                {
+                    listener.onRowLoaded(row);
+                }
+                ++rowCount;
+            }
+            return rowCount;
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * returns the number of rows in the table.
+     */
+    public long count()
+    {
+        RowCursor cursor = mStorage.query("SELECT COUNT(*) FROM "+mTable.getName(), null);
+        try
+        {
+            return cursor.moveToNext() ? cursor.getLong(0) : 0;
+        }
+        finally
+        {
+            cursor.close();
+        }
+    }
+
+    /**
+     * inserts all the {@code rows} into the table in a single transaction. the
+     *   ids of the {@code rows} are ignored, and assigned by the database. once
+     *   the transaction commits, each row's id is set to its new id, and its
+     *   columns are no longer dirty. the insert is all or nothing: the rows
+     *   are either all inserted, or none of them are.
+     *
+     * @param  rows rows to insert; they must have the columns of the table.
+     *
+     * @return ids of the inserted rows, in the order of {@code rows}.
+     *
+     * @throws RuntimeException if a row can't be inserted, e.g. because it
+     *   violates a constraint of the table; see {@link Storage}. the
+     *   transaction is rolled back, so none of the {@code rows} are
+     *   inserted.
+     */
+    public synchronized long[] insert(Iterable<Row> rows)
+    {
+        List<Row> insertedRows = new ArrayList<>();
+        long[] newRowIds = new long[16];
+        int rowCount = 0;
+
+        StorageStatement statement = getStatement(mTable.getInsertQuery());
+        mStorage.beginTransaction();
+        try
+        {
+            for(Row row : rows)
+            {
+                for(int i = 0; i < mDataColumnNames.length; ++i)
+                {
+                    RowCodec.bind(statement, i+1, row.getColumn(mDataColumnNames[i]));
+                }
+
+                if(rowCount == newRowIds.length)
+                {
+                    newRowIds = Arrays.copyOf(newRowIds, rowCount*2);
+                }
+                newRowIds[rowCount++] = statement.executeInsert();
+                insertedRows.add(row);
+            }
+            mStorage.setTransactionSuccessful();
+        }
+        finally
+        {
+            mStorage.endTransaction();
+            mTable.bumpVersion();
+        }
+
+        for(int i = 0; i < rowCount; ++i)
+        {
+            insertedRows.get(i).setId(newRowIds[i]);
+            insertedRows.get(i).clearDirty();
+        }
+        return Arrays.copyOf(newRowIds, rowCount);
+    }
+
+    /**
+     * updates all the {@code rows} by their ids in a single transaction. only
+     *   the dirty columns of each row are written; rows without any dirty
+     *   columns are skipped. once the transaction commits, the columns of the
+     *   updated rows are no longer dirty, unless the call is part of a larger
+     *   transaction of the {@code Storage}, which may still roll back. the
+     *   {@code rows} are iterated once.
+     *
+     * @param  rows rows to update; they must have {@code non-null} ids.
+     *
+     * @return number of rows affected.
+     */
+    public synchronized int update(Iterable<Row> rows)
+    {
+        List<String> dirtyColumnNames = new ArrayList<>(mDataColumnNames.length);
+        List<Row> updatedRows = new ArrayList<>();
+        int rowsAffected = 0;
+
+        mStorage.beginTransaction();
+        try
+        {
+            for(Row row : rows)
+            {
+                if(row.getId() == null)
+                {
+                    throw new IllegalArgumentException("all {@code rows} must have "
+                            +"{@code non-null} ids.");
+                }
+
+                dirtyColumnNames.clear();
+                for(String columnName : mDataColumnNames)
+                {
+                    if(row.hasColumn(columnName) && row.getColumn(columnName).isDirty())
+                    {
+                        dirtyColumnNames.add(columnName);
+                    }
+                }
+                if(dirtyColumnNames.isEmpty())
+                {
+                    continue;
+                }
+
+                StorageStatement statement = getStatement(mTable.getUpdateQuery(
+                        dirtyColumnNames.toArray(new String[dirtyColumnNames.size()])));
+                for(int i = 0; i < dirtyColumnNames.size(); ++i)
+                {
+                    RowCodec.bind(statement, i+1, row.getColumn(dirtyColumnNames.get(i)));
+                }
+                statement.bindLong(dirtyColumnNames.size()+1, row.getId());
+                rowsAffected += statement.executeUpdateDelete();
+                updatedRows.add(row);
+            }
+            mStorage.setTransactionSuccessful();
+        }
+        finally
+        {
+            mStorage.endTransaction();
+            mTable.bumpVersion();
+        }
+
+        if(!mStorage.inTransaction())
+        {
+            for(Row row : updatedRows)
+            {
+                row.clearDirty();
+            }
+        }
+        return rowsAffected;
+    }
+
+    /**
+     * deletes the rows with the passed {@code ids} in a single transaction, in
+     *   chunks of at most {@link Dao#DELETE_CHUNK_SIZE} ids.
+     *
+     * @param  ids ids of the rows to delete.
+     *
+     * @return number of rows affected.
+     */
+    public synchronized int delete(long ... ids)
+    {
+        if(ids.length == 0)
+        {
+            return 0;
+        }
+
+        int rowsAffected = 0;
+        mStorage.beginTransaction();
+        try
+        {
+            int offset = 0;
+            while(offset < ids.length)
+            {
+                int chunkSize = Math.min(ids.length-offset, Dao.DELETE_CHUNK_SIZE);
+                StorageStatement statement = getStatement(mTable.getDeleteQuery(chunkSize));
+                for(int i = 0; i < chunkSize; ++i)
+                {
+                    statement.bindLong(i+1, ids[offset+i]);
+                }
+                rowsAffected += statement.executeUpdateDelete();
+                offset += chunkSize;
+            }
+            mStorage.setTransactionSuccessful();
+        }
+        finally
+        {
+            mStorage.endTransaction();
+            mTable.bumpVersion();
+        }
+        return rowsAffected;
+    }
+
+    /**
+     * closes the statements compiled by this instance; the {@code Storage} is
+     *   left open.
+     */
+    public synchronized void close()
+    {
+        for(StorageStatement statement : mStatements.values())
+        {
+            statement.close();
+        }
+        mStatements.clear();
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * returns the compiled statement for {@code sql}, compiling it if this is
+     *   the first time it is used.
+     */
+    private StorageStatement getStatement(String sql)
+    {
+        StorageStatement statement = mStatements.get(sql);
+        if(statement == null)
+        {
+            statement = mStorage.compileStatement(sql);
+            mStatements.put(sql, statement);
+        }
+        return statement;
+    }
+}
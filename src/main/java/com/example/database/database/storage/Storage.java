@@ -0,0 +1,78 @@
+package com.example.database.database.storage;
+
+/**
+ * connection to a SQLite database, independent of the engine that runs it.
+ *   {@code Table}, {@code Row} and {@code Column} only generate and hold
+ *   SQLite data, so they work the same on every implementation; {@link
+ *   RowStore} reads and writes their rows through this interface.
+ *
+ * the implementations are {@link AndroidStorage}, over the framework's
+ *   {@code SQLiteDatabase}, which is what the application uses, and {@link
+ *   JdbcStorage}, over a SQLite JDBC driver, for batch jobs and benchmarks
+ *   that run on a plain JVM.
+ *
+ * transactions work like those of {@code SQLiteDatabase}: they may be nested,
+ *   and the outermost one commits only if it and every nested one were marked
+ *   successful. errors are reported with unchecked exceptions; {@link
+ *   StorageException} or, on Android, {@code android.database.SQLException}.
+ */
+public interface Storage
+{
+    /**
+     * runs the single SQL statement {@code sql}, which returns no rows.
+     *
+     * @param  sql statement to run, e.g. a CREATE TABLE query.
+     */
+    public void execute(String sql);
+
+    /**
+     * compiles {@code sql} into a statement that can be bound and run
+     *   repeatedly.
+     *
+     * @param  sql statement to compile; an INSERT, UPDATE or DELETE query.
+     *
+     * @return the compiled statement; it must be closed once it is no longer
+     *   needed.
+     */
+    public StorageStatement compileStatement(String sql);
+
+    /**
+     * runs the query {@code sql}.
+     *
+     * @param  sql query to run.
+     * @param  selectionArgs arguments bound to the placeholders of the query,
+     *   as strings; may be {@code null}.
+     *
+     * @return cursor over the rows returned by the query; it must always be
+     *   closed.
+     */
+    public RowCursor query(String sql, String[] selectionArgs);
+
+    /**
+     * begins a transaction, which may be nested in another one.
+     */
+    public void beginTransaction();
+
+    /**
+     * marks the current transaction as successful; no more statements should
+     *   be run in it before {@link #endTransaction()}.
+     */
+    public void setTransactionSuccessful();
+
+    /**
+     * ends the current transaction. the outermost transaction commits if it
+     *   and every transaction nested in it were marked successful, and rolls
+     *   back otherwise.
+     */
+    public void endTransaction();
+
+    /**
+     * returns true if a transaction is in progress.
+     */
+    public boolean inTransaction();
+
+    /**
+     * closes the connection.
+     */
+    public void close();
+}
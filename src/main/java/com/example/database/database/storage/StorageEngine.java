@@ -0,0 +1,18 @@
+package com.example.database.database.storage;
+
+/**
+ * opens {@code Storage} connections to database files with one engine; see
+ *   {@link AndroidStorage#ENGINE} and {@link JdbcStorage#ENGINE}.
+ */
+public interface StorageEngine
+{
+    /**
+     * opens the database file at {@code path}, creating it if it doesn't
+     *   exist.
+     *
+     * @param  path path of the database file.
+     *
+     * @return connection to the database.
+     */
+    public Storage open(String path);
+}
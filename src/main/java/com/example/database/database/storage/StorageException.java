@@ -0,0 +1,15 @@
+package com.example.database.database.storage;
+
+/**
+ * thrown by {@code Storage} implementations whose engine reports errors with
+ *   checked exceptions, e.g. {@code JdbcStorage}.
+ */
+public class StorageException extends RuntimeException
+{
+    private static final long serialVersionUID = 1L;
+
+    public StorageException(String message, Throwable cause)
+    {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.database.database.storage;
+
+/**
+ * compiled SQL statement of a {@code Storage}, with "?" placeholders that are
+ *   bound before each run. bindings are kept between runs until they are
+ *   replaced or cleared.
+ */
+public interface StorageStatement
+{
+    /**
+     * binds NULL to the {@code index}th placeholder; indexes start at 1.
+     */
+    public void bindNull(int index);
+
+    public void bindLong(int index, long value);
+
+    public void bindDouble(int index, double value);
+
+    public void bindString(int index, String value);
+
+    public void bindBlob(int index, byte[] value);
+
+    /**
+     * binds NULL to every placeholder.
+     */
+    public void clearBindings();
+
+    /**
+     * runs an INSERT statement.
+     *
+     * @return rowid of the inserted row.
+     */
+    public long executeInsert();
+
+    /**
+     * runs an UPDATE or DELETE statement.
+     *
+     * @return number of rows affected.
+     */
+    public int executeUpdateDelete();
+
+    /**
+     * releases the statement.
+     */
+    public void close();
+}
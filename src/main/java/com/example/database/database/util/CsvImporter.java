@@ -0,0 +1,528 @@
+package com.example.database.database.util;
+
+import android.content.Context;
+import android.provider.BaseColumns;
+import android.util.Log;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.Dao;
+import com.example.database.database.core.Column;
+import com.example.database.database.core.DBWords.JavaType;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * imports the rows of a CSV stream into a {@code Table}, streaming them from
+ *   the stream into the database without holding more than one row in memory.
+ *
+ * the first record of the stream is a header naming the column of the table
+ *   each field goes to; it must name every column of the table besides _ID.
+ *   fields under other names, e.g. _ID, are ignored. each field is parsed
+ *   according to the {@code JavaType} of its column: booleans are "1", "0",
+ *   "true" or "false", and bytes are written in hexadecimal. an empty field
+ *   is imported as an empty string, never as {@code null}.
+ *
+ * rows are committed in chunks, each in its own transaction. the indexes and
+ *   full-text search table of the table are dropped while the rows are
+ *   imported, and rebuilt at the end, even if the import fails or is
+ *   cancelled; the chunks committed until then are kept. a record that can't
+ *   be parsed rolls back the whole chunk it is part of.
+ */
+public class CsvImporter
+{
+    public static final String TAG = CsvImporter.class.getSimpleName();
+
+    /**
+     * default number of rows committed in each transaction.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+
+    /**
+     * charset of the imported streams.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * context of the application.
+     */
+    private final Context mContext;
+
+    /**
+     * table the rows are imported into.
+     */
+    private final Table mTable;
+
+    /**
+     * number of rows committed in each transaction.
+     */
+    private int mChunkSize;
+
+    /**
+     * notified after each committed chunk; may be {@code null}.
+     */
+    private OnImportProgressListener mListener;
+
+    /**
+     * true once {@link #cancel()} has been called.
+     */
+    private volatile boolean mCancelled;
+
+    /////////////////
+    // constructor //
+    /////////////////
+
+    /**
+     * instantiates a {@code CsvImporter}.
+     *
+     * @param  context {@code context} of the application.
+     * @param  table table to import the rows into.
+     */
+    public CsvImporter(Context context, Table table)
+    {
+        mContext = context.getApplicationContext();
+        mTable = table;
+        mChunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * interface with callbacks. invoked on the importing thread after each
+     *   chunk of rows has been committed.
+     */
+    public interface OnImportProgressListener
+    {
+        /**
+         * invoked after a chunk of rows has been committed.
+         *
+         * @param  rowCount number of rows imported so far.
+         * @param  rowsPerSecond average number of rows imported per second so
+         *   far.
+         */
+        public void onImportProgress(long rowCount, long rowsPerSecond);
+    }
+
+    /**
+     * sets the number of rows committed in each transaction. larger chunks
+     *   are faster, but hold the database's write lock for longer.
+     *
+     * @param  chunkSize number of rows per transaction.
+     *
+     * @return this instance, so calls can be chained.
+     */
+    public CsvImporter setChunkSize(int chunkSize)
+    {
+        if(chunkSize < 1)
+        {
+            throw new IllegalArgumentException("chunk size must be positive");
+        }
+        mChunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * sets the listener notified after each committed chunk.
+     *
+     * @param  listener listener to notify; may be {@code null}.
+     *
+     * @return this instance, so calls can be chained.
+     */
+    public CsvImporter setOnImportProgressListener(OnImportProgressListener listener)
+    {
+        mListener = listener;
+        return this;
+    }
+
+    /**
+     * requests the running import to stop. it stops after the row being
+     *   parsed, commits the rows of the current chunk, and rebuilds the
+     *   indexes. may be called from any thread.
+     */
+    public void cancel()
+    {
+        mCancelled = true;
+    }
+
+    /**
+     * returns true if {@link #cancel()} has been called.
+     */
+    public boolean isCancelled()
+    {
+        return mCancelled;
+    }
+
+    /**
+     * imports the rows of the CSV stream {@code in}, encoded in UTF-8, into
+     *   the table. blocks until all rows are imported, so it must not be
+     *   called on the main thread; e.g. use {@code
+     *   ThreadManager.runOnWorkerThread}. {@code in} is not closed.
+     *
+     * @param  in stream to read the rows from.
+     *
+     * @return number of rows imported.
+     *
+     * @throws IOException if {@code in} can't be read, or a field can't be
+     *   parsed. the chunk being imported is rolled back; the chunks committed
+     *   before it are kept.
+     */
+    public long importFrom(InputStream in) throws IOException
+    {
+        CsvReader reader = new CsvReader(new InputStreamReader(in, UTF_8));
+        if(!reader.nextRecord())
+        {
+            return 0;
+        }
+        RecordParser parser = new RecordParser(reader);
+
+        Dao<Table> dao = DBAccess.getDao(mContext, mTable);
+        long rowCount = 0;
+        long start = System.nanoTime();
+
+        dao.dropIndexes();
+        try
+        {
+            while(!parser.isDone() && !mCancelled)
+            {
+                parser.startChunk();
+                try
+                {
+                    rowCount += dao.bulkInsert(parser);
+                }
+                catch(RecordException e)
+                {
+                    throw e.mError;
+                }
+
+                if(mListener != null)
+                {
+                    long elapsedNanos = Math.max(System.nanoTime()-start, 1);
+                    mListener.onImportProgress(rowCount,
+                            rowCount*1000000000L/elapsedNanos);
+                }
+            }
+        }
+        finally
+        {
+            dao.createIndexes();
+            dao.invalidate();
+        }
+
+        Log.i(TAG, "imported "+rowCount+" rows into "+mTable.getName()+" in "
+                +(System.nanoTime()-start)/1000000+" ms"
+                +((mCancelled) ? " before being cancelled" : ""));
+        return rowCount;
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * parses the records of a {@code CsvReader} into a single reused {@code
+     *   Row}, and returns it up to {@code mChunkSize} times per chunk.
+     */
+    private class RecordParser implements Iterable<Row>, Iterator<Row>
+    {
+        private final CsvReader mReader;
+
+        /**
+         * row the records are parsed into.
+         */
+        private final Row mRow;
+
+        /**
+         * column of {@code mRow} each field goes to; {@code null} for fields
+         *   that are ignored.
+         */
+        private final Column[] mFieldColumns;
+
+        /**
+         * number of rows returned in the current chunk.
+         */
+        private int mChunkRowCount;
+
+        /**
+         * true if the next record has been read, but not returned yet.
+         */
+        private boolean mHasNext;
+
+        /**
+         * true once the end of the stream has been reached.
+         */
+        private boolean mDone;
+
+        RecordParser(CsvReader reader) throws IOException
+        {
+            mReader = reader;
+            mRow = mTable.makeRow();
+            mFieldColumns = new Column[reader.getFieldCount()];
+
+            int mappedCount = 0;
+            for(int i = 0; i < mFieldColumns.length; ++i)
+            {
+                String name = reader.getField(i).toString().trim();
+                if(!name.equals(BaseColumns._ID) && mTable.getColumnFactory(name) != null)
+                {
+                    mFieldColumns[i] = mRow.getColumn(name);
+                    ++mappedCount;
+                }
+            }
+            if(mappedCount != mTable.getDataColumnNames().length)
+            {
+                throw new IOException("header must name every column of "
+                        +mTable.getName()+" besides "+BaseColumns._ID);
+            }
+        }
+
+        boolean isDone()
+        {
+            return mDone;
+        }
+
+        void startChunk()
+        {
+            mChunkRowCount = 0;
+        }
+
+        @Override
+        public Iterator<Row> iterator()
+        {
+            return this;
+        }
+
+        /**
+         * reads and parses the next record of the chunk.
+         *
+         * @throws RecordException if the record can't be read or parsed; it is
+         *   thrown out of the transaction of the chunk, which rolls it back.
+         */
+        @Override
+        public boolean hasNext()
+        {
+            if(mHasNext)
+            {
+                return true;
+            }
+            if(mChunkRowCount == mChunkSize || isDone() || mCancelled)
+            {
+                return false;
+            }
+            try
+            {
+                if(!mReader.nextRecord())
+                {
+                    mDone = true;
+                    return false;
+                }
+                parseRecord();
+            }
+            catch(IOException e)
+            {
+                mDone = true;
+                throw new RecordException(e);
+            }
+            mHasNext = true;
+            return true;
+        }
+
+        @Override
+        public Row next()
+        {
+            if(!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            mHasNext = false;
+            ++mChunkRowCount;
+            return mRow;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * parses the fields of the current record into {@code mRow}.
+         */
+        private void parseRecord() throws IOException
+        {
+            if(mReader.getFieldCount() != mFieldColumns.length)
+            {
+                throw new IOException("line "+mReader.getLineNumber()+": expected "
+                        +mFieldColumns.length+" fields, found "
+                        +mReader.getFieldCount());
+            }
+            for(int i = 0; i < mFieldColumns.length; ++i)
+            {
+                if(mFieldColumns[i] != null)
+                {
+                    try
+                    {
+                        parseField(mReader.getField(i), mFieldColumns[i]);
+                    }
+                    catch(NumberFormatException e)
+                    {
+                        throw new IOException("line "+mReader.getLineNumber()
+                                +": invalid "+mFieldColumns[i].getJavaType()
+                                +" value for "+mFieldColumns[i].getName()+": \""
+                                +mReader.getField(i)+"\"");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * carries an {@code IOException} out of {@link RecordParser#hasNext()},
+     *   which can't throw checked exceptions.
+     */
+    private static class RecordException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        final IOException mError;
+
+        RecordException(IOException error)
+        {
+            super(error);
+            mError = error;
+        }
+    }
+
+    /**
+     * parses {@code field} according to the {@code JavaType} of {@code
+     *   column}, and sets it as the value of {@code column}.
+     *
+     * @throws NumberFormatException if {@code field} can't be parsed.
+     */
+    private static void parseField(CharSequence field, Column column)
+    {
+        switch(column.getJavaType())
+        {
+
+            case BOOLEAN:
+                column.setValue(parseBoolean(field));
+                break;
+
+            case BYTES:
+                column.setValue(parseHex(field));
+                break;
+
+            case DOUBLE:
+                column.setValue(Double.parseDouble(field.toString()));
+                break;
+
+            case FLOAT:
+                column.setValue(Float.parseFloat(field.toString()));
+                break;
+
+            case INT:
+                column.setValue((int) parseLong(field, Integer.MIN_VALUE,
+                        Integer.MAX_VALUE));
+                break;
+
+            case LONG:
+                column.setValue(parseLong(field, Long.MIN_VALUE, Long.MAX_VALUE));
+                break;
+
+            case SHORT:
+                column.setValue((short) parseLong(field, Short.MIN_VALUE,
+                        Short.MAX_VALUE));
+                break;
+
+            case STRING:
+                column.setValue(field.toString());
+                break;
+        }
+    }
+
+    private static boolean parseBoolean(CharSequence field)
+    {
+        String value = field.toString();
+        if(value.equals("1") || value.equalsIgnoreCase("true"))
+        {
+            return true;
+        }
+        if(value.equals("0") || value.equalsIgnoreCase("false"))
+        {
+            return false;
+        }
+        throw new NumberFormatException();
+    }
+
+    /**
+     * parses a decimal integer directly out of {@code field}, without
+     *   allocating a string for it.
+     */
+    private static long parseLong(CharSequence field, long min, long max)
+    {
+        int length = field.length();
+        int i = 0;
+        boolean negative = false;
+        if(length > 0 && (field.charAt(0) == '-' || field.charAt(0) == '+'))
+        {
+            negative = field.charAt(0) == '-';
+            ++i;
+        }
+        if(i == length)
+        {
+            throw new NumberFormatException();
+        }
+
+        // accumulate negatively, since the range of negative longs is larger
+        long value = 0;
+        for(; i < length; ++i)
+        {
+            int digit = field.charAt(i)-'0';
+            if(digit < 0 || digit > 9 || value < (Long.MIN_VALUE+digit)/10)
+            {
+                throw new NumberFormatException();
+            }
+            value = value*10-digit;
+        }
+        if(!negative)
+        {
+            if(value == Long.MIN_VALUE)
+            {
+                throw new NumberFormatException();
+            }
+            value = -value;
+        }
+        if(value < min || value > max)
+        {
+            throw new NumberFormatException();
+        }
+        return value;
+    }
+
+    private static byte[] parseHex(CharSequence field)
+    {
+        if(field.length()%2 != 0)
+        {
+            throw new NumberFormatException();
+        }
+        byte[] bytes = new byte[field.length()/2];
+        for(int i = 0; i < bytes.length; ++i)
+        {
+            int high = Character.digit(field.charAt(i*2), 16);
+            int low = Character.digit(field.charAt(i*2+1), 16);
+            if(high < 0 || low < 0)
+            {
+                throw new NumberFormatException();
+            }
+            bytes[i] = (byte) ((high << 4)|low);
+        }
+        return bytes;
+    }
+}
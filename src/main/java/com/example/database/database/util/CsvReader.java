@@ -0,0 +1,240 @@
+package com.example.database.database.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * reads the records of a CSV stream one at a time. fields are separated by
+ *   commas, and may be quoted with double quotes; a quoted field may contain
+ *   commas, line breaks, and double quotes written as two double quotes.
+ *   records are separated by LF or CRLF line breaks; blank lines are skipped.
+ *
+ * the characters are read into a fixed buffer, and the fields of a record are
+ *   parsed into {@code StringBuilder} instances that are reused for every
+ *   record, so reading a record allocates nothing once the builders have
+ *   grown to the size of the longest fields.
+ */
+final class CsvReader
+{
+    /**
+     * number of characters read from the stream at a time.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * stream the records are read from.
+     */
+    private final Reader mIn;
+
+    /**
+     * characters read from {@code mIn} that have not all been parsed yet.
+     */
+    private final char[] mBuffer;
+
+    /**
+     * index of the next character in {@code mBuffer} to parse.
+     */
+    private int mPosition;
+
+    /**
+     * number of valid characters in {@code mBuffer}.
+     */
+    private int mLimit;
+
+    /**
+     * fields of the current record; only the first {@code mFieldCount} are
+     *   part of it. builders beyond those are kept to be reused.
+     */
+    private final List<StringBuilder> mFields;
+
+    /**
+     * number of fields in the current record.
+     */
+    private int mFieldCount;
+
+    /**
+     * number of the line the current record ends on, starting at 1.
+     */
+    private int mLineNumber;
+
+    //////////////////
+    // constructors //
+    //////////////////
+
+    CsvReader(Reader in)
+    {
+        mIn = in;
+        mBuffer = new char[BUFFER_SIZE];
+        mFields = new ArrayList<>();
+    }
+
+    ///////////////////////
+    // package interface //
+    ///////////////////////
+
+    /**
+     * reads the next record.
+     *
+     * @return true if a record was read; false if the end of the stream was
+     *   reached.
+     *
+     * @throws IOException if the stream can't be read, or ends inside a
+     *   quoted field.
+     */
+    boolean nextRecord() throws IOException
+    {
+        do
+        {
+            if(!readRecord())
+            {
+                return false;
+            }
+        }
+        while(mFieldCount == 1 && mFields.get(0).length() == 0);
+        return true;
+    }
+
+    /**
+     * returns the number of fields in the current record.
+     */
+    int getFieldCount()
+    {
+        return mFieldCount;
+    }
+
+    /**
+     * returns the {@code index}th field of the current record. the returned
+     *   instance is reused by the next record.
+     */
+    CharSequence getField(int index)
+    {
+        if(index >= mFieldCount)
+        {
+            throw new IndexOutOfBoundsException("record on line "+mLineNumber
+                    +" has "+mFieldCount+" fields");
+        }
+        return mFields.get(index);
+    }
+
+    /**
+     * returns the number of the line the current record ends on.
+     */
+    int getLineNumber()
+    {
+        return mLineNumber;
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * reads the next record, which may be blank; see {@link #nextRecord()}.
+     */
+    private boolean readRecord() throws IOException
+    {
+        mFieldCount = 0;
+        if(mPosition == mLimit && !fill())
+        {
+            return false;
+        }
+
+        StringBuilder field = nextField();
+        boolean quoted = false;
+        while(true)
+        {
+            if(mPosition == mLimit && !fill())
+            {
+                if(quoted)
+                {
+                    throw new IOException("line "+mLineNumber
+                            +": stream ends inside a quoted field");
+                }
+                ++mLineNumber;
+                return true;
+            }
+
+            char c = mBuffer[mPosition++];
+            if(quoted)
+            {
+                if(c == '"')
+                {
+                    // two double quotes inside a quoted field are one double
+                    // quote; a single one ends the quoted part
+                    if((mPosition < mLimit || fill()) && mBuffer[mPosition] == '"')
+                    {
+                        field.append('"');
+                        ++mPosition;
+                    }
+                    else
+                    {
+                        quoted = false;
+                    }
+                }
+                else
+                {
+                    if(c == '\n')
+                    {
+                        ++mLineNumber;
+                    }
+                    field.append(c);
+                }
+            }
+            else if(c == ',')
+            {
+                field = nextField();
+            }
+            else if(c == '\n')
+            {
+                ++mLineNumber;
+                return true;
+            }
+            else if(c == '"' && field.length() == 0)
+            {
+                quoted = true;
+            }
+            else if(c != '\r')
+            {
+                field.append(c);
+            }
+        }
+    }
+
+    /**
+     * returns a cleared builder for the next field of the current record.
+     */
+    private StringBuilder nextField()
+    {
+        if(mFieldCount == mFields.size())
+        {
+            mFields.add(new StringBuilder());
+        }
+        StringBuilder field = mFields.get(mFieldCount++);
+        field.setLength(0);
+        return field;
+    }
+
+    /**
+     * reads more characters into {@code mBuffer}; returns false if the end of
+     *   the stream was reached.
+     */
+    private boolean fill() throws IOException
+    {
+        int read;
+        do
+        {
+            read = mIn.read(mBuffer, 0, mBuffer.length);
+        }
+        while(read == 0);
+        if(read < 0)
+        {
+            mPosition = mLimit = 0;
+            return false;
+        }
+        mPosition = 0;
+        mLimit = read;
+        return true;
+    }
+}
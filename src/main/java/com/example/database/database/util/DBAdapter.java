@@ -5,14 +5,26 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
 
+import com.example.database.database.DBAccess;
+import com.example.database.database.core.Column;
 import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+import com.example.database.object.ThreadManager;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * subclass of the {@code BaseAdapter} class that uses a {@code PipeRowLoader}
  *   instance to interface with the database. this can be used by {@code
  *   AdapterViews}.
+ *
+ * an adapter that observes a table through {@link #observeTable} applies the
+ *   rows inserted, updated and deleted in the table directly to its list,
+ *   instead of reloading every row from the database.
  */
 public abstract class DBAdapter extends BaseAdapter
 {
@@ -26,6 +38,30 @@ public abstract class DBAdapter extends BaseAdapter
      */
     private PipeRowLoader mRowLoader;
 
+    /**
+     * table whose changes are applied to {@code mData}; {@code null} if no
+     *   table is observed.
+     */
+    private Table mObservedTable;
+
+    /**
+     * listener registered with {@code DBAccess} while a table is observed.
+     */
+    private final MyOnTableChangedListener mChangeListener =
+            new MyOnTableChangedListener();
+
+    /**
+     * true while {@code mRowLoader} is loading rows into {@code mData}; false
+     *   otherwise.
+     */
+    private boolean mIsLoading;
+
+    /**
+     * number of rows being loaded into {@code mData}, as counted before the
+     *   load started; -1 if it is not known.
+     */
+    private long mExpectedCount = -1;
+
     /////////////////
     // constructor //
     /////////////////
@@ -45,6 +81,25 @@ public abstract class DBAdapter extends BaseAdapter
                 new MyRowLoaderObserver());
     }
 
+    /**
+     * instantiates a {@code DBAdapter} object that loads its rows from the
+     *   database one page at a time.
+     *
+     * @param  context context of the application
+     * @param  querable used to query the database one page at a time.
+     *   determines what is in this adapter; what gets displayed by observing
+     *   {@code AdapterViews}.
+     * @param  pageSize maximum number of rows to load per query.
+     */
+    public DBAdapter(Context context, PipeRowLoader.PagedQueryable querable,
+                     int pageSize)
+    {
+        super();
+        mData = new ArrayList<>();
+        mRowLoader = new PipeRowLoader(context, querable, pageSize,
+                new MyRowLoaderObserver());
+    }
+
     //////////////////////
     // public interface //
     //////////////////////
@@ -55,6 +110,42 @@ public abstract class DBAdapter extends BaseAdapter
         return mData.size();
     }
 
+    /**
+     * returns the number of rows this adapter will have once the rows being
+     *   loaded have arrived, as counted by the {@code Countable} set through
+     *   {@link #setCountable}; returns {@link #getCount()} if the rows are not
+     *   being loaded, or were not counted.
+     *
+     * @return number of rows this adapter is expected to have.
+     */
+    public long getExpectedCount()
+    {
+        return (mIsLoading && mExpectedCount >= 0) ? mExpectedCount : getCount();
+    }
+
+    /**
+     * returns true while rows are being loaded into this adapter, from the
+     *   request to load them until the last one has arrived on the main
+     *   thread.
+     */
+    public boolean isLoading()
+    {
+        return mIsLoading;
+    }
+
+    /**
+     * sets the {@code Countable} used to count the rows before each load, so
+     *   that the final number of rows is known from {@link
+     *   #getExpectedCount()} before the rows arrive.
+     *
+     * @param  countable used to count the rows, e.g. with a COUNT(*) query;
+     *   {@code null} to stop counting them.
+     */
+    public void setCountable(PipeRowLoader.Countable countable)
+    {
+        mRowLoader.setCountable(countable);
+    }
+
     @Override
     public Row getItem(int position)
     {
@@ -76,10 +167,241 @@ public abstract class DBAdapter extends BaseAdapter
         mRowLoader.loadRows();
     }
 
+    /**
+     * applies the changes committed to {@code table} directly to this adapter
+     *   from now on. the adapter's rows must be all the rows of {@code table},
+     *   ordered by ascending _ID, as loaded by {@code DBAccess.getRowsPage}
+     *   sorted by _ID; inserted rows are placed by their ids, and updated rows
+     *   replace the rows with the same ids.
+     *
+     * changes that arrive while rows are being loaded, and changes that can't
+     *   be described as row changes, fall back to reloading every row.
+     *
+     * @param  table table to observe.
+     */
+    public void observeTable(Table table)
+    {
+        stopObservingTable();
+        mObservedTable = table;
+        DBAccess.addOnTableChangedListener(mChangeListener);
+    }
+
+    /**
+     * stops applying changes of the table passed to {@link #observeTable}.
+     */
+    public void stopObservingTable()
+    {
+        DBAccess.removeOnTableChangedListener(mChangeListener);
+        mObservedTable = null;
+    }
+
     ///////////////////////
     // private interface //
     ///////////////////////
 
+    /**
+     * returns the position of the row with the passed {@code id} in {@code
+     *   mData}; if there is none, returns {@code (-(insertion point) - 1)}.
+     */
+    private int indexOfId(long id)
+    {
+        int low = 0;
+        int high = mData.size()-1;
+        while(low <= high)
+        {
+            int mid = (low+high) >>> 1;
+            long midId = mData.get(mid).getId();
+            if(midId < id)
+            {
+                low = mid+1;
+            }
+            else if(midId > id)
+            {
+                high = mid-1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -(low+1);
+    }
+
+    /**
+     * returns true if changes to {@code table} can be applied to {@code mData}
+     *   directly; otherwise, reloads every row, and returns false.
+     */
+    private boolean canApplyChanges(Table table)
+    {
+        if(table != mObservedTable)
+        {
+            return false;
+        }
+        if(mIsLoading)
+        {
+            // the rows being loaded may or may not include the change; load
+            // them again once the current load finishes
+            mRowLoader.loadRows();
+            return false;
+        }
+        return true;
+    }
+
+    private void applyInserted(Table table, Row[] rows)
+    {
+        if(!canApplyChanges(table))
+        {
+            return;
+        }
+        for(Row row : rows)
+        {
+            int position = indexOfId(row.getId());
+            if(position >= 0)
+            {
+                mData.set(position, row);
+            }
+            else
+            {
+                mData.add(-(position+1), row);
+            }
+        }
+        DBAdapter.super.notifyDataSetChanged();
+    }
+
+    private void applyUpdated(Table table, Row[] rows)
+    {
+        if(!canApplyChanges(table))
+        {
+            return;
+        }
+        for(Row row : rows)
+        {
+            int position = indexOfId(row.getId());
+            if(position >= 0)
+            {
+                mData.set(position, row.isPartial()
+                        ? merge(mData.get(position), row)
+                        : row);
+            }
+        }
+        DBAdapter.super.notifyDataSetChanged();
+    }
+
+    /**
+     * returns a copy of {@code current} with the values of the columns that
+     *   {@code updated} has; {@code updated} may be partial, e.g. a row loaded
+     *   with a projection and then updated, and only has the columns that were
+     *   selected.
+     */
+    private Row merge(Row current, Row updated)
+    {
+        Map<String, Column> columns = new LinkedHashMap<>(
+                current.getColumns().size()*4/3+1);
+        for(Map.Entry<String, Column> entry : current.getColumns().entrySet())
+        {
+            String columnName = entry.getKey();
+            Column column = mObservedTable.getColumnFactory(columnName).makeColumn();
+            column.setValue(updated.hasColumn(columnName)
+                    ? updated.getColumn(columnName)
+                    : entry.getValue());
+            column.clearDirty();
+            columns.put(columnName, column);
+        }
+        return new Row(columns, current.isPartial() ? mObservedTable : null);
+    }
+
+    private void applyDeleted(Table table, long[] ids)
+    {
+        if(!canApplyChanges(table))
+        {
+            return;
+        }
+        Set<Long> deletedIds = new HashSet<>(ids.length*4/3+1);
+        for(long id : ids)
+        {
+            deletedIds.add(id);
+        }
+
+        // compact the list in a single pass, instead of shifting the rows
+        // after every removed row
+        int kept = 0;
+        for(int i = 0; i < mData.size(); ++i)
+        {
+            Row row = mData.get(i);
+            if(!deletedIds.contains(row.getId()))
+            {
+                mData.set(kept++, row);
+            }
+        }
+        while(mData.size() > kept)
+        {
+            mData.remove(mData.size()-1);
+        }
+        DBAdapter.super.notifyDataSetChanged();
+    }
+
+    /**
+     * receives changes on the thread that committed them, and applies them on
+     *   the main thread, where {@code mData} is accessed.
+     */
+    private class MyOnTableChangedListener implements DBAccess.OnTableChangedListener
+    {
+        @Override
+        public void onRowsInserted(final Table table, final Row[] rows)
+        {
+            ThreadManager.runOnMainThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    applyInserted(table, rows);
+                }
+            });
+        }
+
+        @Override
+        public void onRowsUpdated(final Table table, final Row[] rows)
+        {
+            ThreadManager.runOnMainThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    applyUpdated(table, rows);
+                }
+            });
+        }
+
+        @Override
+        public void onRowsDeleted(final Table table, final long[] ids)
+        {
+            ThreadManager.runOnMainThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    applyDeleted(table, ids);
+                }
+            });
+        }
+
+        @Override
+        public void onTableInvalidated(final Table table)
+        {
+            ThreadManager.runOnMainThread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if(table == mObservedTable)
+                    {
+                        notifyDataSetChanged();
+                    }
+                }
+            });
+        }
+    }
+
     private class MyRowLoaderObserver implements PipeRowLoader.RowLoadEventListener
     {
         private int mRowIndex;
@@ -88,6 +410,18 @@ public abstract class DBAdapter extends BaseAdapter
         public void onLoadStart()
         {
             mRowIndex = 0;
+            mIsLoading = true;
+            mExpectedCount = -1;
+        }
+
+        @Override
+        public void onRowCountKnown(long count)
+        {
+            mExpectedCount = count;
+
+            // make room for every row up front, instead of growing the list
+            // repeatedly as the rows arrive
+            mData.ensureCapacity((int) Math.min(count, Integer.MAX_VALUE));
         }
 
         @Override
@@ -114,6 +448,7 @@ public abstract class DBAdapter extends BaseAdapter
             {
                 mData.remove(mRowIndex);
             }
+            mIsLoading = false;
 
             DBAdapter.super.notifyDataSetChanged();
         }
@@ -27,6 +27,18 @@ public class PipeRowLoader
      */
     private final Queryable mQueryable;
 
+    /**
+     * implementation of the {@code PagedQueryable} interface used to query the
+     *   database one page at a time; {@code null} if this instance loads the
+     *   rows with {@code mQueryable} instead.
+     */
+    private final PagedQueryable mPagedQueryable;
+
+    /**
+     * maximum number of rows requested from {@code mPagedQueryable} at a time.
+     */
+    private final int mPageSize;
+
     /**
      * implementation of the {@code RowLoadEventListener} interface. methods of
      *   the instance will be invoked as this object loads rows from the
@@ -34,6 +46,12 @@ public class PipeRowLoader
      */
     private final RowLoadEventListener mCallback;
 
+    /**
+     * used to count the rows before they are loaded; {@code null} if they are
+     *   not counted.
+     */
+    private volatile Countable mCountable;
+
     /**
      * true if this instance is currently loading rows from the database; false
      *   otherwise.
@@ -67,6 +85,34 @@ public class PipeRowLoader
     {
         mContext = context;
         mQueryable = queryable;
+        mPagedQueryable = null;
+        mPageSize = 0;
+        mCallback = callback;
+
+        mIsRunning = false;
+        mReloadCursorOnLoad = false;
+    }
+
+    /**
+     * instantiates a {@code PipeRowLoader} instance that loads rows from the
+     *   database one page at a time. each page is a short query of its own,
+     *   so no single query has to walk the whole table.
+     *
+     * @param  context {@code context} of the application.
+     * @param  pagedQueryable implementation of the {@code PagedQueryable}
+     *   interface used to load pages of rows from the database.
+     * @param  pageSize maximum number of rows to request per page.
+     * @param  callback implementation of the {@code RowLoadEventListener}
+     *   interface. methods of the instance will be invoked as rows are loaded
+     *   from the database.
+     */
+    public PipeRowLoader(Context context, PagedQueryable pagedQueryable,
+                         int pageSize, RowLoadEventListener callback)
+    {
+        mContext = context;
+        mQueryable = null;
+        mPagedQueryable = pagedQueryable;
+        mPageSize = pageSize;
         mCallback = callback;
 
         mIsRunning = false;
@@ -88,6 +134,14 @@ public class PipeRowLoader
          */
         public void onLoadStart();
 
+        /**
+         * invoked before the first row of a load, with the number of rows
+         *   that are about to be loaded as counted by the {@code Countable}
+         *   set through {@link PipeRowLoader#setCountable}; never invoked if
+         *   none is set.
+         */
+        public void onRowCountKnown(long count);
+
         /**
          * invoked as rows are loaded from the database.
          */
@@ -116,6 +170,55 @@ public class PipeRowLoader
         public void query(DBAccess.OnRowLoadedListener listener);
     }
 
+    /**
+     * interface with callbacks. used by the {@code PipeRowLoader} to query the
+     *   database one page at a time when requested.
+     */
+    public interface PagedQueryable
+    {
+        /**
+         * method invoked by the {@code PipeRowLoader} object to load a page of
+         *   rows from the database, e.g. through {@code
+         *   DBAccess.getRowsPage}. the passed {@code listener} must be passed
+         *   into the database query method of {@code DBAccess}.
+         *
+         * @param  after last row of the previous page; {@code null} when the
+         *   first page is requested.
+         * @param  limit maximum number of rows in the page.
+         * @param  listener object to be passed to the database query method.
+         *
+         * @return the rows of the page. a page with fewer than {@code limit}
+         *   rows is the last one.
+         */
+        public Row[] queryPage(Row after, int limit,
+                               DBAccess.OnRowLoadedListener listener);
+    }
+
+    /**
+     * interface with callbacks. used by the {@code PipeRowLoader} to count the
+     *   rows it is about to load, e.g. through {@code DBAccess.countRows},
+     *   which is much cheaper than loading them.
+     */
+    public interface Countable
+    {
+        /**
+         * returns the number of rows that the queries of the {@code
+         *   PipeRowLoader} will load.
+         */
+        public long count();
+    }
+
+    /**
+     * sets the {@code Countable} used to count the rows before each load.
+     *
+     * @param  countable used to count the rows; {@code null} to stop counting
+     *   them.
+     */
+    public void setCountable(Countable countable)
+    {
+        mCountable = countable;
+    }
+
     /**
      * used to request the {@code PipeRowLoader} instance to load rows from the
      *   database. when this method is invoked while rows are currently being
@@ -147,7 +250,28 @@ public class PipeRowLoader
         @Override
         public void run()
         {
-            mQueryable.query(new OnRowLoadedRunnable());
+            Countable countable = mCountable;
+            if(countable != null)
+            {
+                final long count = countable.count();
+                ThreadManager.runOnMainThread(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        mCallback.onRowCountKnown(count);
+                    }
+                });
+            }
+
+            if(mPagedQueryable != null)
+            {
+                loadPages();
+            }
+            else
+            {
+                mQueryable.query(new OnRowLoadedRunnable());
+            }
             ThreadManager.runOnMainThread(new OnLoadFinishRunnable());
             mIsRunning = false;
             if(mReloadCursorOnLoad)
@@ -155,6 +279,22 @@ public class PipeRowLoader
                 loadRows();
             }
         }
+
+        private void loadPages()
+        {
+            OnRowLoadedRunnable listener = new OnRowLoadedRunnable();
+            Row after = null;
+            Row[] page;
+            do
+            {
+                page = mPagedQueryable.queryPage(after, mPageSize, listener);
+                if(page.length > 0)
+                {
+                    after = page[page.length-1];
+                }
+            }
+            while(page.length == mPageSize);
+        }
     }
 
     private class OnRowLoadedRunnable implements Runnable, DBAccess.OnRowLoadedListener, Cloneable
@@ -0,0 +1,646 @@
+package com.example.database.database.util;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.core.Column;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+import com.example.database.object.ThreadManager;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * exports every row of a {@code Table} to a file. rows are streamed from the
+ *   query cursor into a fixed buffer that is written to a {@code FileChannel}
+ *   whenever it fills up, so memory use stays the same no matter how many
+ *   rows the table has.
+ *
+ * the file is written in one of two formats:
+ *
+ * {@link Format#CSV}: a header naming the columns of the table, followed by a
+ *   record for each row, in the format read by {@code CsvImporter}. CSV has
+ *   no way to tell a {@code null} string from an empty one, so both are
+ *   written as an empty field and imported as an empty string; use
+ *   {@link Format#BINARY} where the two must stay apart.
+ *
+ * {@link Format#BINARY}: the magic number {@link #BINARY_MAGIC}, the format
+ *   version, the number of columns, and the name and {@code JavaType} name of
+ *   each column, followed by each row prefixed with a 1 byte and terminated by
+ *   a single 0 byte. values are big-endian; booleans are one byte, and byte
+ *   arrays and UTF-8 strings are prefixed with their length, which is -1 for
+ *   {@code null}.
+ *
+ * the rows are written to a temporary file next to the destination, which
+ *   replaces the destination once all rows are written, so a failed or
+ *   cancelled export never leaves a partial file behind.
+ */
+public class TableExporter
+{
+    public static final String TAG = TableExporter.class.getSimpleName();
+
+    /**
+     * first 4 bytes of files written in the binary format.
+     */
+    public static final int BINARY_MAGIC = 0x54424c58;
+
+    /**
+     * version of the binary format written by this class.
+     */
+    public static final int BINARY_VERSION = 1;
+
+    /**
+     * size of the buffer the rows are written into, in bytes.
+     */
+    private static final int BUFFER_SIZE = 64*1024;
+
+    /**
+     * charset of strings written to the file.
+     */
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * format of an exported file.
+     */
+    public enum Format
+    {
+        CSV,
+        BINARY
+    }
+
+    /**
+     * context of the application.
+     */
+    private final Context mContext;
+
+    /**
+     * table the rows are exported from.
+     */
+    private final Table mTable;
+
+    /**
+     * format the rows are written in.
+     */
+    private final Format mFormat;
+
+    /**
+     * notified every time the buffer is written to the file; may be {@code
+     *   null}.
+     */
+    private OnExportProgressListener mListener;
+
+    /**
+     * true once {@link #cancel()} has been called.
+     */
+    private volatile boolean mCancelled;
+
+    /////////////////
+    // constructor //
+    /////////////////
+
+    /**
+     * instantiates a {@code TableExporter}.
+     *
+     * @param  context {@code context} of the application.
+     * @param  table table to export the rows of.
+     * @param  format format to write the rows in.
+     */
+    public TableExporter(Context context, Table table, Format format)
+    {
+        mContext = context.getApplicationContext();
+        mTable = table;
+        mFormat = format;
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * interface with callbacks. invoked on the exporting thread every time the
+     *   buffer is written to the file.
+     */
+    public interface OnExportProgressListener
+    {
+        /**
+         * invoked after a part of the file has been written.
+         *
+         * @param  bytesWritten number of bytes written to the file so far.
+         * @param  bytesPerSecond average number of bytes written per second so
+         *   far.
+         */
+        public void onExportProgress(long bytesWritten, long bytesPerSecond);
+    }
+
+    /**
+     * interface with callbacks. invoked on the main thread once an export
+     *   started by {@link #exportAsync} ends.
+     */
+    public interface OnExportCompleteListener
+    {
+        /**
+         * invoked once the export ends.
+         *
+         * @param  bytesWritten size of the exported file; -1 if the export
+         *   failed or was cancelled.
+         * @param  error error that made the export fail; {@code null} if it
+         *   succeeded or was cancelled.
+         */
+        public void onExportComplete(long bytesWritten, IOException error);
+    }
+
+    /**
+     * sets the listener notified as the file is written.
+     *
+     * @param  listener listener to notify; may be {@code null}.
+     *
+     * @return this instance, so calls can be chained.
+     */
+    public TableExporter setOnExportProgressListener(OnExportProgressListener listener)
+    {
+        mListener = listener;
+        return this;
+    }
+
+    /**
+     * requests the running export to stop; the destination is left as it
+     *   was. may be called from any thread.
+     */
+    public void cancel()
+    {
+        mCancelled = true;
+    }
+
+    /**
+     * exports every row of the table to {@code file}. blocks until all rows
+     *   are written, so it must not be called on the main thread; see {@link
+     *   #exportAsync}.
+     *
+     * @param  file file to write the rows to; it is replaced if it exists.
+     *
+     * @return size of the written file, in bytes; -1 if the export was
+     *   cancelled.
+     *
+     * @throws IOException if the file can't be written.
+     */
+    public long exportTo(File file) throws IOException
+    {
+        File tempFile = new File(file.getPath()+".tmp");
+        long start = System.nanoTime();
+        ChannelOutput out = new ChannelOutput(
+                new FileOutputStream(tempFile).getChannel(), start);
+        boolean exported = false;
+        try
+        {
+            String[] columnNames = mTable.getColumnNames();
+            writeHeader(out, columnNames);
+            DBAccess.getDao(mContext, mTable).queryAll(
+                    new RowWriter(out, columnNames));
+            if(mFormat == Format.BINARY)
+            {
+                out.putByte(0);
+            }
+            out.flush();
+            out.mChannel.force(false);
+            exported = true;
+        }
+        catch(WriteFailedException e)
+        {
+            throw e.getCause();
+        }
+        catch(CancelledException e)
+        {
+            Log.i(TAG, "export of "+mTable.getName()+" cancelled");
+        }
+        finally
+        {
+            out.mChannel.close();
+            if(!exported)
+            {
+                tempFile.delete();
+            }
+        }
+
+        if(!exported)
+        {
+            return -1;
+        }
+        if(!tempFile.renameTo(file))
+        {
+            tempFile.delete();
+            throw new IOException("failed to replace "+file);
+        }
+
+        Log.i(TAG, "exported "+mTable.getName()+" to "+file+": "+out.mBytesWritten
+                +" bytes in "+(System.nanoTime()-start)/1000000+" ms");
+        return out.mBytesWritten;
+    }
+
+    /**
+     * exports every row of the table to {@code file} on a worker thread of
+     *   {@code ThreadManager}. see {@link #exportTo}.
+     *
+     * @param  file file to write the rows to; it is replaced if it exists.
+     * @param  listener invoked on the main thread once the export ends; may be
+     *   {@code null}.
+     */
+    public void exportAsync(final File file, final OnExportCompleteListener listener)
+    {
+        ThreadManager.runOnWorkerThread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long bytesWritten;
+                IOException error;
+                try
+                {
+                    bytesWritten = exportTo(file);
+                    error = null;
+                }
+                catch(IOException e)
+                {
+                    Log.e(TAG, "failed to export "+mTable.getName()+" to "+file, e);
+                    bytesWritten = -1;
+                    error = e;
+                }
+
+                if(listener != null)
+                {
+                    final long result = bytesWritten;
+                    final IOException resultError = error;
+                    ThreadManager.runOnMainThread(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            listener.onExportComplete(result, resultError);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private void writeHeader(ChannelOutput out, String[] columnNames) throws IOException
+    {
+        if(mFormat == Format.CSV)
+        {
+            for(int i = 0; i < columnNames.length; ++i)
+            {
+                if(i > 0)
+                {
+                    out.putByte(',');
+                }
+                out.putCsvString(columnNames[i]);
+            }
+            out.putByte('\n');
+        }
+        else
+        {
+            out.putInt(BINARY_MAGIC);
+            out.putInt(BINARY_VERSION);
+            out.putInt(columnNames.length);
+            for(String columnName : columnNames)
+            {
+                out.putString(columnName);
+                out.putString(mTable.getColumnFactory(columnName).getJavaType().name());
+            }
+        }
+    }
+
+    /**
+     * writes each row to the {@code ChannelOutput} as it is loaded. errors
+     *   are wrapped in unchecked exceptions, which end the query.
+     */
+    private class RowWriter implements DBAccess.OnRowLoadedListener
+    {
+        private final ChannelOutput mOut;
+        private final String[] mColumnNames;
+
+        RowWriter(ChannelOutput out, String[] columnNames)
+        {
+            mOut = out;
+            mColumnNames = columnNames;
+        }
+
+        @Override
+        public void onRowLoaded(Row row)
+        {
+            if(mCancelled)
+            {
+                throw new CancelledException();
+            }
+            try
+            {
+                if(mFormat == Format.CSV)
+                {
+                    writeCsvRow(row);
+                }
+                else
+                {
+                    writeBinaryRow(row);
+                }
+            }
+            catch(IOException e)
+            {
+                throw new WriteFailedException(e);
+            }
+        }
+
+        private void writeCsvRow(Row row) throws IOException
+        {
+            for(int i = 0; i < mColumnNames.length; ++i)
+            {
+                if(i > 0)
+                {
+                    mOut.putByte(',');
+                }
+                Column column = row.getColumn(mColumnNames[i]);
+                switch(column.getJavaType())
+                {
+
+                    case BOOLEAN:
+                        mOut.putByte(column.getBoolean() ? '1' : '0');
+                        break;
+
+                    case BYTES:
+                        mOut.putHex(column.getBytes());
+                        break;
+
+                    case DOUBLE:
+                        mOut.putAscii(String.valueOf(column.getDouble()));
+                        break;
+
+                    case FLOAT:
+                        mOut.putAscii(String.valueOf(column.getFloat()));
+                        break;
+
+                    case INT:
+                        mOut.putAscii(String.valueOf(column.getInt()));
+                        break;
+
+                    case LONG:
+                        mOut.putAscii(String.valueOf(column.getLong()));
+                        break;
+
+                    case SHORT:
+                        mOut.putAscii(String.valueOf(column.getShort()));
+                        break;
+
+                    case STRING:
+                        mOut.putCsvString(column.getString());
+                        break;
+                }
+            }
+            mOut.putByte('\n');
+        }
+
+        private void writeBinaryRow(Row row) throws IOException
+        {
+            mOut.putByte(1);
+            for(String columnName : mColumnNames)
+            {
+                Column column = row.getColumn(columnName);
+                switch(column.getJavaType())
+                {
+
+                    case BOOLEAN:
+                        mOut.putByte(column.getBoolean() ? 1 : 0);
+                        break;
+
+                    case BYTES:
+                        mOut.putBytes(column.getBytes());
+                        break;
+
+                    case DOUBLE:
+                        mOut.putLong(Double.doubleToRawLongBits(column.getDouble()));
+                        break;
+
+                    case FLOAT:
+                        mOut.putInt(Float.floatToRawIntBits(column.getFloat()));
+                        break;
+
+                    case INT:
+                        mOut.putInt(column.getInt());
+                        break;
+
+                    case LONG:
+                        mOut.putLong(column.getLong());
+                        break;
+
+                    case SHORT:
+                        mOut.putShort(column.getShort());
+                        break;
+
+                    case STRING:
+                        mOut.putString(column.getString());
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * fixed buffer that is written to a {@code FileChannel} whenever it fills
+     *   up.
+     */
+    private class ChannelOutput
+    {
+        final FileChannel mChannel;
+        final ByteBuffer mBuffer;
+        final long mStart;
+        long mBytesWritten;
+
+        ChannelOutput(FileChannel channel, long start)
+        {
+            mChannel = channel;
+            mBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            mStart = start;
+        }
+
+        void putByte(int value) throws IOException
+        {
+            ensureRemaining(1);
+            mBuffer.put((byte) value);
+        }
+
+        void putShort(short value) throws IOException
+        {
+            ensureRemaining(2);
+            mBuffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException
+        {
+            ensureRemaining(4);
+            mBuffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException
+        {
+            ensureRemaining(8);
+            mBuffer.putLong(value);
+        }
+
+        /**
+         * writes the length of {@code value}, or -1 if it is {@code null},
+         *   followed by its bytes.
+         */
+        void putBytes(byte[] value) throws IOException
+        {
+            putInt((value == null) ? -1 : value.length);
+            if(value != null)
+            {
+                putRaw(value);
+            }
+        }
+
+        /**
+         * writes {@code value} encoded in UTF-8 as by {@link #putBytes}.
+         */
+        void putString(String value) throws IOException
+        {
+            putBytes((value == null) ? null : value.getBytes(UTF_8));
+        }
+
+        /**
+         * writes the characters of {@code value}, which are all ASCII.
+         */
+        void putAscii(String value) throws IOException
+        {
+            ensureRemaining(value.length());
+            for(int i = 0; i < value.length(); ++i)
+            {
+                mBuffer.put((byte) value.charAt(i));
+            }
+        }
+
+        /**
+         * writes {@code value} as a CSV field, quoted if it contains commas,
+         *   double quotes or line breaks; {@code null} is written as an empty
+         *   field, the same as an empty string, so it reads back as one.
+         */
+        void putCsvString(String value) throws IOException
+        {
+            if(value == null)
+            {
+                return;
+            }
+            boolean quote = false;
+            for(int i = 0; i < value.length() && !quote; ++i)
+            {
+                char c = value.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if(quote)
+            {
+                value = "\""+value.replace("\"", "\"\"")+"\"";
+            }
+            putRaw(value.getBytes(UTF_8));
+        }
+
+        /**
+         * writes {@code value} as hexadecimal digits.
+         */
+        void putHex(byte[] value) throws IOException
+        {
+            if(value == null)
+            {
+                return;
+            }
+            for(byte b : value)
+            {
+                ensureRemaining(2);
+                mBuffer.put((byte) Character.forDigit((b >> 4) & 0xf, 16));
+                mBuffer.put((byte) Character.forDigit(b & 0xf, 16));
+            }
+        }
+
+        /**
+         * writes {@code bytes} as they are, in as many parts as needed.
+         */
+        void putRaw(byte[] bytes) throws IOException
+        {
+            int offset = 0;
+            while(offset < bytes.length)
+            {
+                if(!mBuffer.hasRemaining())
+                {
+                    flush();
+                }
+                int length = Math.min(bytes.length-offset, mBuffer.remaining());
+                mBuffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * writes everything in the buffer to the channel, and reports the
+         *   progress.
+         */
+        void flush() throws IOException
+        {
+            mBuffer.flip();
+            while(mBuffer.hasRemaining())
+            {
+                mBytesWritten += mChannel.write(mBuffer);
+            }
+            mBuffer.clear();
+
+            if(mListener != null)
+            {
+                long elapsedNanos = Math.max(System.nanoTime()-mStart, 1);
+                mListener.onExportProgress(mBytesWritten,
+                        mBytesWritten*1000000000L/elapsedNanos);
+            }
+        }
+
+        private void ensureRemaining(int count) throws IOException
+        {
+            if(mBuffer.remaining() < count)
+            {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * thrown out of {@code RowWriter} to end the query when the export is
+     *   cancelled.
+     */
+    private static class CancelledException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * thrown out of {@code RowWriter} to end the query when the file can't be
+     *   written.
+     */
+    private static class WriteFailedException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+
+        WriteFailedException(IOException cause)
+        {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause()
+        {
+            return (IOException) super.getCause();
+        }
+    }
+}
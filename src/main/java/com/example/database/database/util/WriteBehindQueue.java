@@ -0,0 +1,476 @@
+package com.example.database.database.util;
+
+import android.content.Context;
+import android.os.Process;
+import android.util.Log;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.Dao;
+import com.example.database.database.core.Column;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+import com.example.database.object.ThreadManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * queues inserts, updates and deletes of rows of a single {@code Table}, and
+ *   writes them to the database on a dedicated writer thread, so that callers,
+ *   e.g. the main thread, never wait for disk I/O. the writer thread drains
+ *   all the writes that are queued at a time and commits them together in a
+ *   single transaction; repeated updates of the same row within that group
+ *   are merged into one. if the group fails, its writes are retried one at a
+ *   time, each in its own transaction, so that only the writes that fail
+ *   themselves are dropped.
+ *
+ * every instance has its own writer thread, which runs until {@link #close}
+ *   is called; instances must be closed once they are no longer needed, e.g.
+ *   when the activity that created them is destroyed.
+ */
+public class WriteBehindQueue
+{
+    public static final String TAG = WriteBehindQueue.class.getSimpleName();
+
+    /**
+     * maximum number of queued writes committed in a single transaction.
+     */
+    public static final int MAX_GROUP_SIZE = 1000;
+
+    /**
+     * context of the application.
+     */
+    private final Context mContext;
+
+    /**
+     * table the writes are made to.
+     */
+    private final Table mTable;
+
+    /**
+     * writes waiting to be committed by the writer thread.
+     */
+    private final BlockingQueue<Write> mQueue;
+
+    /**
+     * thread that drains {@code mQueue} and commits the writes.
+     */
+    private final Thread mWriterThread;
+
+    /**
+     * whether {@link #close} has been called; writes are no longer accepted.
+     */
+    private boolean mClosed;
+
+    /////////////////
+    // constructor //
+    /////////////////
+
+    /**
+     * instantiates a {@code WriteBehindQueue}, and starts its writer thread.
+     *
+     * @param  context {@code context} of the application.
+     * @param  table table to write the queued rows to.
+     */
+    public WriteBehindQueue(Context context, Table table)
+    {
+        mContext = context.getApplicationContext();
+        mTable = table;
+        mQueue = new LinkedBlockingQueue<>();
+        mWriterThread = new Thread(new WriterRunnable(),
+                TAG+"-"+table.getName());
+        mWriterThread.setDaemon(true);
+        mWriterThread.start();
+    }
+
+    //////////////////////
+    // public interface //
+    //////////////////////
+
+    /**
+     * interface with callbacks. invoked on the main thread once a queued write
+     *   has been committed to the database, or has failed.
+     */
+    public interface OnWriteCompleteListener
+    {
+        /**
+         * invoked once the write has been committed, or has failed.
+         *
+         * @param committed true if the write was committed; false if it failed.
+         */
+        public void onWriteComplete(boolean committed);
+    }
+
+    /**
+     * queues {@code row} to be inserted into the table.
+     *
+     * @param row row to insert.
+     * @param listener invoked once the row has been inserted; may be {@code
+     *   null}.
+     */
+    public void insert(Row row, OnWriteCompleteListener listener)
+    {
+        enqueue(new Write(Write.INSERT, row, null, listener));
+    }
+
+    /**
+     * queues the dirty columns of {@code row} to be written to the row in the
+     *   table with the same id.
+     *
+     * @param row row to update; it must have a {@code non-null} id.
+     * @param listener invoked once the row has been updated; may be {@code
+     *   null}.
+     */
+    public void update(Row row, OnWriteCompleteListener listener)
+    {
+        if(row.getId() == null)
+        {
+            throw new IllegalArgumentException("{@code row} must have a "
+                    +"{@code non-null} id.");
+        }
+        enqueue(new Write(Write.UPDATE, row, null, listener));
+    }
+
+    /**
+     * queues the rows with the passed {@code ids} to be deleted from the table.
+     *
+     * @param ids ids of the rows to delete.
+     * @param listener invoked once the rows have been deleted; may be {@code
+     *   null}.
+     */
+    public void delete(long[] ids, OnWriteCompleteListener listener)
+    {
+        enqueue(new Write(Write.DELETE, null, ids, listener));
+    }
+
+    /**
+     * blocks until every write queued before this call has been committed or
+     *   has failed. waits for disk I/O, so it must not be called on the main
+     *   thread.
+     */
+    public void flush()
+    {
+        CountDownLatch barrier = new CountDownLatch(1);
+        enqueue(new Write(barrier));
+        try
+        {
+            barrier.await();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * stops accepting writes, and lets the writer thread commit the writes
+     *   that are already queued, and then end. returns right away, so it may
+     *   be called on the main thread; later writes throw {@code
+     *   IllegalStateException}.
+     *
+     * @param onClosed invoked on the writer thread once the queued writes
+     *   have been committed or have failed, e.g. to shut the database down;
+     *   may be {@code null}.
+     */
+    public synchronized void close(Runnable onClosed)
+    {
+        enqueue(new Write(onClosed));
+        mClosed = true;
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * adds {@code write} to the queue, unless the queue has been closed; the
+     *   writer thread ends after the close, so no write may follow it.
+     */
+    private synchronized void enqueue(Write write)
+    {
+        if(mClosed)
+        {
+            throw new IllegalStateException(TAG+" has been closed");
+        }
+        mQueue.add(write);
+    }
+
+    /**
+     * a single queued write.
+     */
+    private static class Write
+    {
+        static final int INSERT = 0;
+        static final int UPDATE = 1;
+        static final int DELETE = 2;
+        static final int BARRIER = 3;
+        static final int CLOSE = 4;
+
+        final int mType;
+        final Row mRow;
+        final long[] mIds;
+        final OnWriteCompleteListener mListener;
+        final CountDownLatch mBarrier;
+        final Runnable mOnClosed;
+
+        Write(int type, Row row, long[] ids, OnWriteCompleteListener listener)
+        {
+            mType = type;
+            mRow = row;
+            mIds = ids;
+            mListener = listener;
+            mBarrier = null;
+            mOnClosed = null;
+        }
+
+        Write(CountDownLatch barrier)
+        {
+            mType = BARRIER;
+            mRow = null;
+            mIds = null;
+            mListener = null;
+            mBarrier = barrier;
+            mOnClosed = null;
+        }
+
+        Write(Runnable onClosed)
+        {
+            mType = CLOSE;
+            mRow = null;
+            mIds = null;
+            mListener = null;
+            mBarrier = null;
+            mOnClosed = onClosed;
+        }
+    }
+
+    private class WriterRunnable implements Runnable
+    {
+        @Override
+        public void run()
+        {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+
+            List<Write> group = new ArrayList<>();
+            while(true)
+            {
+                try
+                {
+                    group.add(mQueue.take());
+                }
+                catch(InterruptedException e)
+                {
+                    return;
+                }
+                mQueue.drainTo(group, MAX_GROUP_SIZE-1);
+
+                if(!tryCommit(group) && group.size() > 1)
+                {
+                    // one bad write shouldn't drop the others of its group
+                    Log.w(TAG, "retrying the "+group.size()+" writes of the failed "
+                            +"group one at a time");
+                    for(Write write : group)
+                    {
+                        tryCommit(Collections.singletonList(write));
+                    }
+                }
+
+                // nothing is queued after a close
+                Write last = group.get(group.size()-1);
+                if(last.mType == Write.CLOSE)
+                {
+                    if(last.mOnClosed != null)
+                    {
+                        last.mOnClosed.run();
+                    }
+                    return;
+                }
+                group.clear();
+            }
+        }
+
+        /**
+         * commits {@code group}, and notifies its listeners once it has been
+         *   committed; returns true if it was. if it fails, the listeners are
+         *   only notified if the group is a single write, which is not
+         *   retried.
+         */
+        private boolean tryCommit(List<Write> group)
+        {
+            try
+            {
+                commit(group);
+            }
+            catch(RuntimeException e)
+            {
+                Log.e(TAG, "failed to commit "+group.size()+" writes", e);
+                if(group.size() == 1)
+                {
+                    notifyListeners(group, false);
+                }
+                return false;
+            }
+            notifyListeners(group, true);
+            return true;
+        }
+
+        /**
+         * writes every write in {@code group} in a single transaction. updates
+         *   of the same row are merged, and updates of rows that are deleted in
+         *   the same group are dropped.
+         */
+        private void commit(List<Write> group)
+        {
+            final List<Row> inserts = new ArrayList<>();
+            final Map<Long, Row> updates = new LinkedHashMap<>();
+            final Set<Long> deletes = new LinkedHashSet<>();
+
+            for(Write write : group)
+            {
+                switch(write.mType)
+                {
+
+                    case Write.INSERT:
+                        inserts.add(write.mRow);
+                        break;
+
+                    case Write.UPDATE:
+                        Long id = write.mRow.getId();
+                        Row pending = updates.get(id);
+                        if(pending == null)
+                        {
+                            updates.put(id, write.mRow);
+                        }
+                        else
+                        {
+                            updates.put(id, merge(pending, write.mRow));
+                        }
+                        break;
+
+                    case Write.DELETE:
+                        for(long deletedId : write.mIds)
+                        {
+                            updates.remove(deletedId);
+                            deletes.add(deletedId);
+                        }
+                        break;
+                }
+            }
+
+            if(inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty())
+            {
+                return;
+            }
+
+            final Dao<Table> dao = DBAccess.getDao(mContext, mTable);
+            dao.runInTransaction(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if(!inserts.isEmpty())
+                    {
+                        dao.insert(inserts);
+                    }
+                    if(!updates.isEmpty())
+                    {
+                        dao.update(updates.values());
+                    }
+                    if(!deletes.isEmpty())
+                    {
+                        long[] ids = new long[deletes.size()];
+                        int i = 0;
+                        for(Long deletedId : deletes)
+                        {
+                            ids[i++] = deletedId;
+                        }
+                        dao.delete(ids);
+                    }
+                }
+            });
+        }
+
+        /**
+         * returns a row holding the result of the update {@code pending},
+         *   followed by the update {@code later}: a new row with the columns of
+         *   both, where the dirty columns of {@code later} replace those of
+         *   {@code pending}. the queued rows belong to the callers, and may
+         *   still be in use, e.g. by the UI, so neither is modified; {@code
+         *   pending} itself is returned if both updates are of the same
+         *   object.
+         */
+        private Row merge(Row pending, Row later)
+        {
+            if(pending == later)
+            {
+                return pending;
+            }
+
+            Map<String, Column> mergedColumns = new LinkedHashMap<>(
+                    (pending.getColumns().size()+later.getColumns().size())*4/3+1);
+            for(Map.Entry<String, Column> entry : pending.getColumns().entrySet())
+            {
+                mergedColumns.put(entry.getKey(), copy(entry.getKey(), entry.getValue()));
+            }
+            for(Map.Entry<String, Column> entry : later.getColumns().entrySet())
+            {
+                if(entry.getValue().isDirty() || !mergedColumns.containsKey(entry.getKey()))
+                {
+                    mergedColumns.put(entry.getKey(), copy(entry.getKey(), entry.getValue()));
+                }
+            }
+            return new Row(mergedColumns, (mergedColumns.size() < mTable.getColumnNames().length)
+                    ? mTable
+                    : null);
+        }
+
+        /**
+         * returns a new column of the table named {@code columnName}, with the
+         *   value and dirty state of {@code source}.
+         */
+        private Column copy(String columnName, Column source)
+        {
+            Column column = mTable.getColumnFactory(columnName).makeColumn();
+            column.setValue(source);
+            if(!source.isDirty())
+            {
+                column.clearDirty();
+            }
+            return column;
+        }
+
+        /**
+         * invokes the listeners of the writes in {@code group} on the main
+         *   thread, and releases any threads waiting on barriers in the group.
+         */
+        private void notifyListeners(List<Write> group, final boolean committed)
+        {
+            for(final Write write : group)
+            {
+                if(write.mBarrier != null)
+                {
+                    write.mBarrier.countDown();
+                }
+                else if(write.mListener != null)
+                {
+                    ThreadManager.runOnMainThread(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            write.mListener.onWriteComplete(committed);
+                        }
+                    });
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.database;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.core.DBWords;
+import com.example.database.database.core.Row;
+import com.example.database.database.util.DBAdapter;
+import com.example.database.database.util.PipeRowLoader;
+import com.example.database.domain.Name;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.Scheduler;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * end-to-end benchmark of loading the names table into a {@code DBAdapter}
+ *   through {@code PipeRowLoader}, on the host JVM. Robolectric stands in for
+ *   the device: {@code DBAccess} runs against its SQLite, and its main looper
+ *   is paused, so this test plays the main thread and handles the messages
+ *   posted to it one at a time.
+ *
+ * for each table size, and for both the streamed and the paged query used by
+ *   the application, reports the time until the first row reaches the
+ *   adapter, the time until the load finishes, and the number of messages
+ *   handled by the main thread. results are printed and written to {@value
+ *   #RESULTS_PATH} as JSON.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LoadBenchmark
+{
+    /** file the results are written to, relative to the module. */
+    private static final String RESULTS_PATH = "build/benchmarks/load.json";
+
+    /** sizes of the names table that loads are measured at. */
+    private static final int[] TABLE_SIZES = {1000, 10000, 100000};
+
+    /** number of rows requested per page by the paged load; as in the app. */
+    private static final int PAGE_SIZE = 200;
+
+    private Context mContext;
+
+    @Before
+    public void setUp()
+    {
+        mContext = RuntimeEnvironment.application;
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+
+        // every load must go to the database
+        DBAccess.setQueryCacheSize(0);
+    }
+
+    @After
+    public void tearDown()
+    {
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+        DBAccess.setQueryCacheSize(DBAccess.DEFAULT_QUERY_CACHE_SIZE);
+    }
+
+    @Test
+    public void benchmarkLoads() throws IOException
+    {
+        ShadowLooper.pauseMainLooper();
+
+        // the first load loads and compiles everything, so it is not measured
+        insertNames(0, TABLE_SIZES[0]);
+        load(makeStreamedAdapter(), TABLE_SIZES[0], "warmup");
+
+        List<String> results = new ArrayList<>();
+        int tableSize = TABLE_SIZES[0];
+        for(int targetSize : TABLE_SIZES)
+        {
+            insertNames(tableSize, targetSize);
+            tableSize = targetSize;
+
+            results.add(load(makeStreamedAdapter(), tableSize, "streamed"));
+            results.add(load(makePagedAdapter(), tableSize, "paged"));
+        }
+
+        StringBuilder json = new StringBuilder("[\n");
+        for(int i = 0; i < results.size(); ++i)
+        {
+            json.append("  ").append(results.get(i))
+                    .append((i < results.size()-1) ? ",\n" : "\n");
+        }
+        json.append("]\n");
+
+        System.out.print(json);
+        File resultsFile = new File(RESULTS_PATH);
+        resultsFile.getParentFile().mkdirs();
+        Writer out = new FileWriter(resultsFile);
+        try
+        {
+            out.write(json.toString());
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * loads every row into {@code adapter}, handling the messages posted to
+     *   the main thread until the load has finished.
+     *
+     * @return the measurements of the load, as a JSON object.
+     */
+    private String load(DBAdapter adapter, int rowCount, String mode)
+    {
+        Scheduler mainThread = Robolectric.getForegroundThreadScheduler();
+        long firstRowNanos = -1;
+        int messageCount = 0;
+
+        long start = System.nanoTime();
+        adapter.notifyDataSetChanged();
+        while(adapter.isLoading())
+        {
+            if(mainThread.runOneTask())
+            {
+                ++messageCount;
+                if(firstRowNanos < 0 && adapter.getCount() > 0)
+                {
+                    firstRowNanos = System.nanoTime()-start;
+                }
+            }
+            else
+            {
+                // waiting for the worker thread to post the next message
+                Thread.yield();
+            }
+        }
+        long elapsedNanos = System.nanoTime()-start;
+        assertEquals(rowCount, adapter.getCount());
+
+        return String.format(Locale.US, "{\"rows\": %d, \"mode\": \"%s\", "
+                +"\"timeToFirstRowMs\": %.3f, \"fullLoadMs\": %.3f, "
+                +"\"mainThreadMessages\": %d}", rowCount, mode, firstRowNanos/1e6,
+                elapsedNanos/1e6, messageCount);
+    }
+
+    /**
+     * makes an adapter that loads every row with a single streamed query,
+     *   through {@code DBAccess.getAllNames}.
+     */
+    private DBAdapter makeStreamedAdapter()
+    {
+        return countRows(new BenchmarkAdapter(mContext, new PipeRowLoader.Queryable()
+        {
+            @Override
+            public void query(DBAccess.OnRowLoadedListener listener)
+            {
+                DBAccess.getAllNames(mContext, listener);
+            }
+        }));
+    }
+
+    /**
+     * makes an adapter that loads the rows one page at a time, through {@code
+     *   DBAccess.getNamesPage}, like the application does.
+     */
+    private DBAdapter makePagedAdapter()
+    {
+        return countRows(new BenchmarkAdapter(mContext, new PipeRowLoader.PagedQueryable()
+        {
+            @Override
+            public Row[] queryPage(Row after, int limit,
+                                   DBAccess.OnRowLoadedListener listener)
+            {
+                return DBAccess.getNamesPage(mContext, after, limit,
+                        DBWords.Query.ASC, listener);
+            }
+        }, PAGE_SIZE));
+    }
+
+    /**
+     * makes {@code adapter} count the rows before loading them, like the
+     *   application does.
+     */
+    private DBAdapter countRows(DBAdapter adapter)
+    {
+        adapter.setCountable(new PipeRowLoader.Countable()
+        {
+            @Override
+            public long count()
+            {
+                return DBAccess.countNames(mContext);
+            }
+        });
+        return adapter;
+    }
+
+    /**
+     * inserts names until the table has {@code targetSize} rows.
+     */
+    private void insertNames(int tableSize, int targetSize)
+    {
+        if(targetSize <= tableSize)
+        {
+            return;
+        }
+        List<Name> names = new ArrayList<>(targetSize-tableSize);
+        for(int i = tableSize; i < targetSize; ++i)
+        {
+            names.add(new Name("First"+i, "Last"+i));
+        }
+        DBAccess.insertNames(mContext, names);
+    }
+
+    /**
+     * adapter without views; only its rows are of interest.
+     */
+    private static class BenchmarkAdapter extends DBAdapter
+    {
+        BenchmarkAdapter(Context context, PipeRowLoader.Queryable queryable)
+        {
+            super(context, queryable);
+        }
+
+        BenchmarkAdapter(Context context, PipeRowLoader.PagedQueryable queryable,
+                         int pageSize)
+        {
+            super(context, queryable, pageSize);
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent)
+        {
+            return convertView;
+        }
+    }
+}
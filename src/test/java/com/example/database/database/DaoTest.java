@@ -0,0 +1,347 @@
+package com.example.database.database;
+
+import android.content.Context;
+
+import com.example.database.BuildConfig;
+import com.example.database.database.core.DBWords.Query;
+import com.example.database.database.core.NamesTable;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * tests of {@code Dao} against the names table, on Robolectric's SQLite.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DaoTest
+{
+    private Context mContext;
+    private Dao<NamesTable> mNames;
+
+    /** changes published to {@link #mListener}, in order. */
+    private final List<String> mChanges = new ArrayList<>();
+
+    private final DBAccess.OnTableChangedListener mListener =
+            new DBAccess.OnTableChangedListener()
+    {
+        @Override
+        public void onRowsInserted(Table table, Row[] rows)
+        {
+            mChanges.add("inserted "+rows.length);
+        }
+
+        @Override
+        public void onRowsUpdated(Table table, Row[] rows)
+        {
+            mChanges.add("updated "+rows.length);
+        }
+
+        @Override
+        public void onRowsDeleted(Table table, long[] ids)
+        {
+            mChanges.add("deleted "+ids.length);
+        }
+
+        @Override
+        public void onTableInvalidated(Table table)
+        {
+            mChanges.add("invalidated");
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        mContext = RuntimeEnvironment.application;
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+        mNames = DBAccess.getDao(mContext, NamesTable.sInstance);
+        DBAccess.addOnTableChangedListener(mListener);
+    }
+
+    @After
+    public void tearDown()
+    {
+        DBAccess.removeOnTableChangedListener(mListener);
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+    }
+
+    @Test
+    public void groupedWritesArePublishedOnceCommitted()
+    {
+        mNames.runInTransaction(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                long[] ids = mNames.insert(Arrays.asList(makeName("Ada", "Lovelace"),
+                        makeName("Alan", "Turing")));
+
+                Row row = makeName("Grace", "Hopper");
+                row.setId(ids[0]);
+                mNames.update(Collections.singletonList(row));
+
+                // nested groups commit with the outermost one
+                final long deletedId = ids[1];
+                mNames.runInTransaction(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        mNames.delete(deletedId);
+                    }
+                });
+
+                assertEquals(Collections.<String>emptyList(), mChanges);
+            }
+        });
+
+        assertEquals(Arrays.asList("inserted 2", "updated 1", "deleted 1"), mChanges);
+        assertEquals(1, mNames.count());
+    }
+
+    @Test
+    public void rolledBackWritesAreNotPublished()
+    {
+        try
+        {
+            mNames.runInTransaction(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    mNames.insert(Collections.singletonList(makeName("Ada", "Lovelace")));
+                    throw new IllegalStateException("roll back");
+                }
+            });
+            fail("the exception of the group should be rethrown");
+        }
+        catch(IllegalStateException e)
+        {
+            assertEquals("roll back", e.getMessage());
+        }
+
+        assertEquals(Collections.<String>emptyList(), mChanges);
+        assertEquals(0, mNames.count());
+
+        // the dropped changes don't leak into the next write of the thread
+        mNames.insert(Collections.singletonList(makeName("Alan", "Turing")));
+        assertEquals(Collections.singletonList("inserted 1"), mChanges);
+    }
+
+    @Test
+    public void projectedRowsCanBeUpdated()
+    {
+        mNames.insert(Collections.singletonList(makeName("Ada", "Lovelace")));
+
+        final List<Row> projectedRows = new ArrayList<>();
+        mNames.queryAll(new String[]{NamesTable.Entry.LAST_NAME},
+                new DBAccess.OnRowLoadedListener()
+        {
+            @Override
+            public void onRowLoaded(Row r)
+            {
+                projectedRows.add(r);
+            }
+        });
+        Row row = projectedRows.get(0);
+        assertTrue(row.isPartial());
+
+        row.getColumn(NamesTable.Entry.LAST_NAME).setValue("Byron");
+        assertEquals(1, mNames.update(Collections.singletonList(row)));
+
+        final List<Row> rows = new ArrayList<>();
+        mNames.queryAll(new DBAccess.OnRowLoadedListener()
+        {
+            @Override
+            public void onRowLoaded(Row r)
+            {
+                rows.add(r);
+            }
+        });
+        assertEquals("Ada", rows.get(0).getColumn(NamesTable.Entry.FIRST_NAME).getString());
+        assertEquals("Byron", rows.get(0).getColumn(NamesTable.Entry.LAST_NAME).getString());
+    }
+
+    @Test
+    public void updatedRowsStayDirtyUntilCommitted()
+    {
+        long[] ids = mNames.insert(Collections.singletonList(makeName("Ada", "Lovelace")));
+        final Row row = makeName("Grace", "Hopper");
+        row.setId(ids[0]);
+
+        try
+        {
+            mNames.runInTransaction(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    mNames.update(Collections.singletonList(row));
+                    throw new IllegalStateException("roll back");
+                }
+            });
+            fail("the exception of the group should be rethrown");
+        }
+        catch(IllegalStateException e)
+        {
+            assertEquals("roll back", e.getMessage());
+        }
+        assertTrue(row.getColumn(NamesTable.Entry.FIRST_NAME).isDirty());
+
+        // rows produced on the fly can only be iterated once
+        final Iterator<Row> iterator = Collections.singletonList(row).iterator();
+        assertEquals(1, mNames.update(new Iterable<Row>()
+        {
+            @Override
+            public Iterator<Row> iterator()
+            {
+                return iterator;
+            }
+        }));
+        assertFalse(row.getColumn(NamesTable.Entry.FIRST_NAME).isDirty());
+        assertFalse(row.getColumn(NamesTable.Entry.LAST_NAME).isDirty());
+    }
+
+    @Test
+    public void indexesDroppedByAnInterruptedLoadAreRecreatedOnOpen()
+    {
+        mNames.insert(Collections.singletonList(makeName("Ada", "Lovelace")));
+
+        // the process dies before the load calls createIndexes
+        mNames.dropIndexes();
+        DBAccess.shutdown();
+
+        mNames = DBAccess.getDao(mContext, NamesTable.sInstance);
+        assertEquals(1, mNames.search("lov", 10, null).length);
+    }
+
+    @Test
+    public void callsIntoDBAccessWaitForAShutdownInProgress() throws Exception
+    {
+        mNames.insert(Collections.singletonList(makeName("Ada", "Lovelace")));
+
+        // the writer stays in flight until it is released, so the shutdown
+        // waits for it
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                mNames.runInTransaction(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        entered.countDown();
+                        awaitQuietly(released);
+                    }
+                });
+            }
+        });
+        Thread shutter = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                DBAccess.shutdown();
+            }
+        });
+        final Row[][] page = new Row[1][];
+        final Throwable[] error = new Throwable[1];
+        Thread reader = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    page[0] = DBAccess.getNamesPage(mContext, null, 10, Query.ASC, null);
+                }
+                catch(Throwable t)
+                {
+                    error[0] = t;
+                }
+            }
+        });
+
+        writer.start();
+        try
+        {
+            entered.await();
+            shutter.start();
+            awaitWaiting(shutter);
+            reader.start();
+            awaitWaiting(reader);
+        }
+        finally
+        {
+            released.countDown();
+        }
+        writer.join();
+        shutter.join();
+        reader.join();
+
+        assertEquals(null, error[0]);
+        assertEquals(1, page[0].length);
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * waits until {@code thread} is blocked waiting for a notification.
+     */
+    private static void awaitWaiting(Thread thread) throws InterruptedException
+    {
+        while(thread.getState() != Thread.State.WAITING)
+        {
+            assertTrue(thread.isAlive());
+            Thread.sleep(1);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try
+        {
+            latch.await();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Row makeName(String firstName, String lastName)
+    {
+        Row row = NamesTable.sInstance.makeRow();
+        row.getColumn(NamesTable.Entry.FIRST_NAME).setValue(firstName);
+        row.getColumn(NamesTable.Entry.LAST_NAME).setValue(lastName);
+        return row;
+    }
+}
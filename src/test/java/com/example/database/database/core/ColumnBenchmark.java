@@ -0,0 +1,299 @@
+package com.example.database.database.core;
+
+import com.example.database.database.core.DBWords.JavaType;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * measures the encode and decode paths of {@code Column} for every {@code
+ *   JavaType}, on the host JVM: making a column with {@link
+ *   ColumnFactory#makeColumn()}, setting its value, getting its value, and
+ *   making and setting a column together, which is what decoding a cell of a
+ *   cursor does. run with {@code ./gradlew test}; prints ops/s and bytes
+ *   allocated per op for each path.
+ */
+public class ColumnBenchmark
+{
+    /**
+     * number of distinct values cycled through, so that values aren't
+     *   constant.
+     */
+    private static final int VALUE_COUNT = 16;
+
+    /**
+     * columns made by the benchmarks; kept so they escape.
+     */
+    private static final Column[] sColumns = new Column[VALUE_COUNT];
+
+    private static final String[] STRINGS = new String[VALUE_COUNT];
+    private static final byte[][] BYTES = new byte[VALUE_COUNT][];
+    static
+    {
+        for(int i = 0; i < VALUE_COUNT; ++i)
+        {
+            STRINGS[i] = "FirstName"+i;
+            BYTES[i] = STRINGS[i].getBytes();
+        }
+    }
+
+    @Test
+    public void benchmarkColumns()
+    {
+        List<MicroBenchmark.Result> results = new ArrayList<>();
+        for(JavaType type : JavaType.values())
+        {
+            final ColumnFactory factory = new ColumnFactory("Value", type);
+            final Codec codec = codecFor(type);
+
+            // operations work on a different column every iteration, and keep
+            // the columns they make, so the JIT can neither hoist reads out of
+            // the loops nor optimize allocations away
+            final Column[] columns = new Column[VALUE_COUNT];
+            for(int i = 0; i < VALUE_COUNT; ++i)
+            {
+                columns[i] = factory.makeColumn();
+                codec.set(columns[i], i);
+                assertEquals(codec.get(columns[i]), codec.get(makeColumn(factory, codec, i)));
+            }
+
+            results.add(MicroBenchmark.measure(type.name()+" makeColumn",
+                    new MicroBenchmark.Operation()
+                    {
+                        @Override
+                        public long run(long iterations)
+                        {
+                            for(long i = 0; i < iterations; ++i)
+                            {
+                                sColumns[(int) i&(VALUE_COUNT-1)] = factory.makeColumn();
+                            }
+                            return sColumns[0].getSize();
+                        }
+                    }));
+
+            results.add(MicroBenchmark.measure(type.name()+" setValue",
+                    new MicroBenchmark.Operation()
+                    {
+                        @Override
+                        public long run(long iterations)
+                        {
+                            for(long i = 0; i < iterations; ++i)
+                            {
+                                codec.set(columns[(int) i&(VALUE_COUNT-1)], (int) i);
+                            }
+                            return columns[0].getSize();
+                        }
+                    }));
+
+            results.add(MicroBenchmark.measure(type.name()+" get",
+                    new MicroBenchmark.Operation()
+                    {
+                        @Override
+                        public long run(long iterations)
+                        {
+                            long sink = 0;
+                            for(long i = 0; i < iterations; ++i)
+                            {
+                                sink += codec.get(columns[(int) i&(VALUE_COUNT-1)]);
+                            }
+                            return sink;
+                        }
+                    }));
+
+            results.add(MicroBenchmark.measure(type.name()+" makeColumn+setValue",
+                    new MicroBenchmark.Operation()
+                    {
+                        @Override
+                        public long run(long iterations)
+                        {
+                            for(long i = 0; i < iterations; ++i)
+                            {
+                                sColumns[(int) i&(VALUE_COUNT-1)] =
+                                        makeColumn(factory, codec, (int) i);
+                            }
+                            return sColumns[0].getSize();
+                        }
+                    }));
+        }
+
+        System.out.println("Column benchmark ("+System.getProperty("java.vm.name")+" "
+                +System.getProperty("java.version")+")");
+        for(MicroBenchmark.Result result : results)
+        {
+            System.out.println(result);
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * sets and gets the value of a column of one {@code JavaType}.
+     */
+    private interface Codec
+    {
+        /**
+         * sets the value of {@code column} to a value derived from {@code i}.
+         */
+        void set(Column column, int i);
+
+        /**
+         * gets the value of {@code column}, as a number.
+         */
+        long get(Column column);
+    }
+
+    /**
+     * makes a column with {@code factory}, and sets its value from {@code i};
+     *   like decoding a cell of a cursor.
+     */
+    private static Column makeColumn(ColumnFactory factory, Codec codec, int i)
+    {
+        Column column = factory.makeColumn();
+        codec.set(column, i);
+        return column;
+    }
+
+    private static Codec codecFor(JavaType type)
+    {
+        switch(type)
+        {
+
+            case BOOLEAN:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue((i&1) == 0);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return column.getBoolean() ? 1 : 0;
+                    }
+                };
+
+            case BYTES:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue(BYTES[i&(VALUE_COUNT-1)]);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return column.getBytes().length;
+                    }
+                };
+
+            case DOUBLE:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue(i*0.5);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return Double.doubleToRawLongBits(column.getDouble());
+                    }
+                };
+
+            case FLOAT:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue(i*0.5f);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return Float.floatToRawIntBits(column.getFloat());
+                    }
+                };
+
+            case INT:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue(i);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return column.getInt();
+                    }
+                };
+
+            case LONG:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue(i*31L);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return column.getLong();
+                    }
+                };
+
+            case SHORT:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue((short) i);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return column.getShort();
+                    }
+                };
+
+            case STRING:
+                return new Codec()
+                {
+                    @Override
+                    public void set(Column column, int i)
+                    {
+                        column.setValue(STRINGS[i&(VALUE_COUNT-1)]);
+                    }
+
+                    @Override
+                    public long get(Column column)
+                    {
+                        return column.getString().length();
+                    }
+                };
+
+            default:
+                throw new IllegalArgumentException("no benchmark for "+type+" columns");
+        }
+    }
+}
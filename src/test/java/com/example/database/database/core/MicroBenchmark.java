@@ -0,0 +1,168 @@
+package com.example.database.database.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * minimal harness for microbenchmarks that run on a plain JVM. an operation
+ *   is calibrated until a batch of iterations takes long enough to time
+ *   reliably, warmed up so the JIT compiles it, and then measured over
+ *   several rounds. reports the median number of operations per second and
+ *   the number of bytes allocated per operation.
+ *
+ * bytes are counted with the allocation counter of HotSpot's {@code
+ *   ThreadMXBean}; they are reported as unknown on JVMs that don't have it.
+ *   results of each operation are folded into a volatile field, so the JIT
+ *   can't discard the work being measured.
+ */
+final class MicroBenchmark
+{
+    /**
+     * minimum time taken by the batch of iterations found by calibration.
+     */
+    private static final long CALIBRATION_NANOS = 10000000L;
+
+    /**
+     * time spent running the operation before measuring it.
+     */
+    private static final long WARMUP_NANOS = 500000000L;
+
+    /**
+     * number of measured rounds.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * number of calibrated batches of iterations in each measured round.
+     */
+    private static final int BATCHES_PER_ROUND = 20;
+
+    /**
+     * sink for the results of operations.
+     */
+    static volatile long sSink;
+
+    private MicroBenchmark()
+    {
+    }
+
+    /**
+     * operation being measured.
+     */
+    interface Operation
+    {
+        /**
+         * runs the operation {@code iterations} times.
+         *
+         * @return a value computed from the results of every iteration.
+         */
+        long run(long iterations);
+    }
+
+    /**
+     * measurements of an operation.
+     */
+    static final class Result
+    {
+        final String mName;
+        final double mOpsPerSecond;
+
+        /**
+         * bytes allocated per operation; negative if unknown.
+         */
+        final double mBytesPerOp;
+
+        Result(String name, double opsPerSecond, double bytesPerOp)
+        {
+            mName = name;
+            mOpsPerSecond = opsPerSecond;
+            mBytesPerOp = bytesPerOp;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.US, "%-36s %,16.0f ops/s %10s B/op", mName,
+                    mOpsPerSecond, (mBytesPerOp < 0)
+                            ? "?"
+                            : String.format(Locale.US, "%.1f", mBytesPerOp));
+        }
+    }
+
+    /**
+     * calibrates, warms up and measures {@code operation}.
+     *
+     * @param  name name of the operation in the result.
+     * @param  operation operation to measure.
+     *
+     * @return the measurements of the operation.
+     */
+    static Result measure(String name, Operation operation)
+    {
+        long iterations = 1;
+        while(time(operation, iterations) < CALIBRATION_NANOS)
+        {
+            iterations *= 2;
+        }
+
+        long warmupEnd = System.nanoTime()+WARMUP_NANOS;
+        while(System.nanoTime() < warmupEnd)
+        {
+            sSink += operation.run(iterations);
+        }
+
+        long roundIterations = iterations*BATCHES_PER_ROUND;
+        double[] opsPerSecond = new double[ROUNDS];
+        long allocatedBytes = 0;
+        for(int i = 0; i < ROUNDS; ++i)
+        {
+            long bytesBefore = allocatedBytes();
+            long elapsedNanos = time(operation, roundIterations);
+            long bytesAfter = allocatedBytes();
+
+            opsPerSecond[i] = roundIterations*1e9/Math.max(elapsedNanos, 1);
+            allocatedBytes = (bytesBefore < 0 || allocatedBytes < 0)
+                    ? -1
+                    : allocatedBytes+bytesAfter-bytesBefore;
+        }
+        Arrays.sort(opsPerSecond);
+
+        return new Result(name, opsPerSecond[ROUNDS/2], (allocatedBytes < 0)
+                ? -1
+                : (double) allocatedBytes/(roundIterations*ROUNDS));
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static long time(Operation operation, long iterations)
+    {
+        long start = System.nanoTime();
+        sSink += operation.run(iterations);
+        return System.nanoTime()-start;
+    }
+
+    /**
+     * returns the number of bytes allocated by the calling thread so far, or
+     *   -1 if the JVM doesn't count them.
+     */
+    private static long allocatedBytes()
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if(threads instanceof com.sun.management.ThreadMXBean)
+        {
+            com.sun.management.ThreadMXBean hotSpotThreads =
+                    (com.sun.management.ThreadMXBean) threads;
+            if(hotSpotThreads.isThreadAllocatedMemorySupported()
+                    && hotSpotThreads.isThreadAllocatedMemoryEnabled())
+            {
+                return hotSpotThreads.getThreadAllocatedBytes(
+                        Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
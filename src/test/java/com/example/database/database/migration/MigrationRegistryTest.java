@@ -0,0 +1,262 @@
+package com.example.database.database.migration;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.database.BuildConfig;
+import com.example.database.database.core.NamesTable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * tests of {@code MigrationRegistry} and the steps of {@code Migrations}, on
+ *   a database of their own, on Robolectric's SQLite.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class MigrationRegistryTest
+{
+    private File mFile;
+    private SQLiteDatabase mDb;
+
+    /** progress reported to {@link #mListener}, in order. */
+    private final List<String> mProgress = new ArrayList<>();
+
+    private final MigrationRegistry.OnProgressListener mListener =
+            new MigrationRegistry.OnProgressListener()
+    {
+        @Override
+        public void onMigrationProgress(Migration migration, long done, long total)
+        {
+            mProgress.add(migration.getVersion()+": "+done+"/"+total);
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        mFile = RuntimeEnvironment.application.getDatabasePath("MigrationTest.db");
+        mFile.getParentFile().mkdirs();
+        SQLiteDatabase.deleteDatabase(mFile);
+        mDb = SQLiteDatabase.openOrCreateDatabase(mFile, null);
+    }
+
+    @After
+    public void tearDown()
+    {
+        mDb.close();
+        SQLiteDatabase.deleteDatabase(mFile);
+    }
+
+    @Test
+    public void scheduledStepsRunInOrderAndReportProgress()
+    {
+        MigrationRegistry registry = new MigrationRegistry()
+                .register(Migrations.execSQL(3, "create B", "CREATE TABLE B(x)"))
+                .register(Migrations.execSQL(2, "create A", "CREATE TABLE A(x)"));
+        registry.setOnProgressListener(mListener);
+
+        schedule(registry, 1, 3);
+        assertEquals(2, pendingCount());
+
+        assertEquals(2, registry.runPending(mDb));
+        assertEquals(Arrays.asList("2: 0/1", "2: 1/1", "3: 0/1", "3: 1/1"), mProgress);
+        assertEquals(0, pendingCount());
+        assertEquals(2, DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +"sqlite_master WHERE type = 'table' AND name IN ('A', 'B')", null));
+
+        // finished steps are not run again
+        assertEquals(0, registry.runPending(mDb));
+    }
+
+    @Test
+    public void schedulingWithoutAStepForEveryVersionFails()
+    {
+        MigrationRegistry registry = new MigrationRegistry()
+                .register(Migrations.execSQL(2, "create A", "CREATE TABLE A(x)"));
+        try
+        {
+            schedule(registry, 1, 3);
+            fail("a missing step should fail the upgrade");
+        }
+        catch(IllegalStateException e)
+        {
+            assertEquals("no migration is registered to upgrade to version 3",
+                    e.getMessage());
+        }
+
+        // the whole upgrade is rolled back, bookkeeping table included
+        assertEquals(0, DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +"sqlite_master WHERE name = ?",
+                new String[]{MigrationRegistry.PENDING_TABLE_NAME}));
+    }
+
+    @Test
+    public void failedStepIsRolledBackAndStaysPending()
+    {
+        MigrationRegistry registry = new MigrationRegistry()
+                .register(Migrations.execSQL(2, "create A", "CREATE TABLE A(x)",
+                        "INSERT INTO Missing VALUES(1)"));
+        schedule(registry, 1, 2);
+        try
+        {
+            registry.runPending(mDb);
+            fail("the failing step should be rethrown");
+        }
+        catch(RuntimeException e)
+        {
+            // expected
+        }
+        assertEquals(1, pendingCount());
+        assertEquals(0, DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +"sqlite_master WHERE name = 'A'", null));
+    }
+
+    @Test
+    public void copyAndSwapCopiesInChunks()
+    {
+        createOldNamesTable(5);
+        MigrationRegistry registry = new MigrationRegistry()
+                .register(Migrations.copyAndSwap(2, NamesTable.sInstance, 2));
+        registry.setOnProgressListener(mListener);
+        schedule(registry, 1, 2);
+
+        assertEquals(1, registry.runPending(mDb));
+        assertEquals(Arrays.asList("2: 0/5", "2: 2/5", "2: 4/5", "2: 5/5"), mProgress);
+        assertSwapped(5);
+    }
+
+    @Test
+    public void interruptedCopyAndSwapResumesFromItsCheckpoint()
+    {
+        createOldNamesTable(5);
+        MigrationRegistry registry = new MigrationRegistry()
+                .register(Migrations.copyAndSwap(2, NamesTable.sInstance, 2));
+        schedule(registry, 1, 2);
+
+        // the process dies once the first chunk is committed
+        registry.setOnProgressListener(new MigrationRegistry.OnProgressListener()
+        {
+            @Override
+            public void onMigrationProgress(Migration migration, long done, long total)
+            {
+                if(done == 2)
+                {
+                    throw new IllegalStateException("killed");
+                }
+            }
+        });
+        try
+        {
+            registry.runPending(mDb);
+            fail("the interruption should be rethrown");
+        }
+        catch(IllegalStateException e)
+        {
+            assertEquals("killed", e.getMessage());
+        }
+        assertEquals(2, DatabaseUtils.longForQuery(mDb, "SELECT Checkpoint FROM "
+                +MigrationRegistry.PENDING_TABLE_NAME+" WHERE Version = 2", null));
+
+        registry.setOnProgressListener(mListener);
+        assertEquals(1, registry.runPending(mDb));
+        assertEquals(Arrays.asList("2: 2/5", "2: 4/5", "2: 5/5"), mProgress);
+        assertSwapped(5);
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * schedules the steps from {@code oldVersion} to {@code newVersion} in a
+     *   transaction, like {@code SQLiteOpenHelper.onUpgrade} does.
+     */
+    private void schedule(MigrationRegistry registry, int oldVersion, int newVersion)
+    {
+        mDb.beginTransaction();
+        try
+        {
+            registry.schedule(mDb, oldVersion, newVersion);
+            mDb.setTransactionSuccessful();
+        }
+        finally
+        {
+            mDb.endTransaction();
+        }
+    }
+
+    private long pendingCount()
+    {
+        return DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +MigrationRegistry.PENDING_TABLE_NAME, null);
+    }
+
+    /**
+     * creates the names table with an extra column that the declaration of
+     *   {@code NamesTable} no longer has, without indexes or a search table,
+     *   and fills it with {@code rowCount} rows.
+     */
+    private void createOldNamesTable(int rowCount)
+    {
+        mDb.execSQL("CREATE TABLE "+NamesTable.Entry.TABLE_NAME+"("
+                +NamesTable.Entry._ID+" INTEGER PRIMARY KEY AUTOINCREMENT,"
+                +NamesTable.Entry.FIRST_NAME+" TEXT,"
+                +NamesTable.Entry.LAST_NAME+" TEXT,"
+                +"Nickname TEXT)");
+        for(int i = 1; i <= rowCount; ++i)
+        {
+            mDb.execSQL("INSERT INTO "+NamesTable.Entry.TABLE_NAME+" VALUES(?,?,?,?)",
+                    new Object[]{i, "First"+i, "Last"+i, "Nick"+i});
+        }
+    }
+
+    /**
+     * checks that the names table has been replaced by a copy with the
+     *   declared columns, every row, and its indexes and search table.
+     */
+    private void assertSwapped(int rowCount)
+    {
+        assertEquals(0, pendingCount());
+
+        Cursor cursor = mDb.rawQuery("SELECT * FROM "+NamesTable.Entry.TABLE_NAME
+                +" ORDER BY "+NamesTable.Entry._ID, null);
+        try
+        {
+            assertEquals(Arrays.asList(NamesTable.sInstance.getColumnNames()),
+                    Arrays.asList(cursor.getColumnNames()));
+            assertEquals(rowCount, cursor.getCount());
+            cursor.moveToLast();
+            assertEquals("Last"+rowCount, cursor.getString(
+                    cursor.getColumnIndexOrThrow(NamesTable.Entry.LAST_NAME)));
+        }
+        finally
+        {
+            cursor.close();
+        }
+
+        assertEquals(0, DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +"sqlite_master WHERE name = '"+NamesTable.Entry.TABLE_NAME+"Copy'", null));
+        assertEquals(1, DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +"sqlite_master WHERE type = 'index' AND name = ?",
+                new String[]{NamesTable.Entry.INDEX_LAST_NAME_FIRST_NAME}));
+        assertEquals(1, DatabaseUtils.longForQuery(mDb, "SELECT COUNT(*) FROM "
+                +NamesTable.sInstance.getSearchTableName()+" WHERE "
+                +NamesTable.sInstance.getSearchTableName()+" MATCH 'last1'", null));
+    }
+}
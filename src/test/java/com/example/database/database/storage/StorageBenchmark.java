@@ -0,0 +1,115 @@
+package com.example.database.database.storage;
+
+import com.example.database.database.DBAccess;
+import com.example.database.database.core.NamesTable;
+import com.example.database.database.core.Row;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * runs the names table through {@code RowStore} on {@code JdbcStorage}, on
+ *   the host JVM: creates the table, then inserts, loads, updates and deletes
+ *   its rows, checking the results and printing how many rows per second each
+ *   operation processed.
+ */
+public class StorageBenchmark
+{
+    /** number of rows written and read by each operation. */
+    private static final int ROW_COUNT = 10000;
+
+    private File mFile;
+    private Storage mStorage;
+    private RowStore<NamesTable> mNames;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        mFile = File.createTempFile("storage", ".db");
+        mStorage = JdbcStorage.ENGINE.open(mFile.getPath());
+        mNames = new RowStore<>(mStorage, NamesTable.sInstance);
+        mNames.create();
+    }
+
+    @After
+    public void tearDown()
+    {
+        mNames.close();
+        mStorage.close();
+        mFile.delete();
+    }
+
+    @Test
+    public void benchmarkRowStore()
+    {
+        List<Row> rows = new ArrayList<>(ROW_COUNT);
+        for(int i = 0; i < ROW_COUNT; ++i)
+        {
+            Row row = NamesTable.sInstance.makeRow();
+            row.getColumn(NamesTable.Entry.FIRST_NAME).setValue("First"+i);
+            row.getColumn(NamesTable.Entry.LAST_NAME).setValue("Last"+i);
+            rows.add(row);
+        }
+
+        long start = System.nanoTime();
+        long[] ids = mNames.insert(rows);
+        report("insert", start);
+        assertEquals(ROW_COUNT, ids.length);
+        assertEquals(ROW_COUNT, mNames.count());
+        assertEquals(ids[0], (long) rows.get(0).getId());
+
+        final List<Row> loadedRows = new ArrayList<>(ROW_COUNT);
+        start = System.nanoTime();
+        int loadedCount = mNames.queryAll(new DBAccess.OnRowLoadedListener()
+        {
+            @Override
+            public void onRowLoaded(Row r)
+            {
+                loadedRows.add(r);
+            }
+        });
+        report("queryAll", start);
+        assertEquals(ROW_COUNT, loadedCount);
+        assertEquals("Last1",
+                loadedRows.get(1).getColumn(NamesTable.Entry.LAST_NAME).getString());
+
+        for(Row row : loadedRows)
+        {
+            row.getColumn(NamesTable.Entry.FIRST_NAME).setValue(
+                    row.getColumn(NamesTable.Entry.FIRST_NAME).getString()+"!");
+        }
+        start = System.nanoTime();
+        assertEquals(ROW_COUNT, mNames.update(loadedRows));
+        report("update", start);
+
+        start = System.nanoTime();
+        assertEquals(ROW_COUNT, mNames.delete(ids));
+        report("delete", start);
+        assertEquals(0, mNames.count());
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * prints how many rows per second {@code operation} processed since
+     *   {@code start}.
+     */
+    private static void report(String operation, long start)
+    {
+        long elapsedNanos = System.nanoTime()-start;
+        System.out.println(String.format(Locale.US, "%-10s %8d rows %10.3f ms %,12d rows/s",
+                operation, ROW_COUNT, elapsedNanos/1e6,
+                ROW_COUNT*1000000000L/Math.max(elapsedNanos, 1)));
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.database.database.util;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.database.BuildConfig;
+import com.example.database.database.DBAccess;
+import com.example.database.database.Dao;
+import com.example.database.database.core.NamesTable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * tests of {@code CsvImporter} importing into the names table, on
+ *   Robolectric's SQLite.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CsvImporterTest
+{
+    private static final String HEADER = NamesTable.Entry.FIRST_NAME+","
+            +NamesTable.Entry.LAST_NAME+"\n";
+
+    private Context mContext;
+    private CsvImporter mImporter;
+
+    @Before
+    public void setUp()
+    {
+        mContext = RuntimeEnvironment.application;
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+        mImporter = new CsvImporter(mContext, NamesTable.sInstance).setChunkSize(2);
+    }
+
+    @After
+    public void tearDown()
+    {
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+    }
+
+    @Test
+    public void rowsAreImportedAndIndexesRebuilt() throws IOException
+    {
+        assertEquals(5, mImporter.importFrom(csv(HEADER
+                +"Ada,Lovelace\nAlan,Turing\n\"Grace \"\"Amazing\"\"\",Hopper\n"
+                +"Edsger,Dijkstra\r\nBarbara,Liskov")));
+
+        Dao<NamesTable> names = DBAccess.getDao(mContext, NamesTable.sInstance);
+        assertEquals(5, names.count());
+        assertEquals(2, names.search("l", 10, null).length);
+        assertIndexesExist();
+    }
+
+    @Test
+    public void recordThatFailsToParseRollsBackItsChunk()
+    {
+        try
+        {
+            mImporter.importFrom(csv(HEADER
+                    +"Ada,Lovelace\nAlan,Turing\nGrace,Hopper\nEdsger\nBarbara,Liskov\n"));
+            fail("the record with a missing field should fail the import");
+        }
+        catch(IOException e)
+        {
+            assertEquals("line 5: expected 2 fields, found 1", e.getMessage());
+        }
+
+        // the first chunk is kept; Grace Hopper was in the failing one
+        Dao<NamesTable> names = DBAccess.getDao(mContext, NamesTable.sInstance);
+        assertEquals(2, names.count());
+        assertEquals(1, names.search("tur", 10, null).length);
+        assertEquals(0, names.search("hop", 10, null).length);
+        assertIndexesExist();
+    }
+
+    @Test
+    public void cancelStopsAfterTheCurrentChunk() throws IOException
+    {
+        mImporter.setOnImportProgressListener(new CsvImporter.OnImportProgressListener()
+        {
+            @Override
+            public void onImportProgress(long rowCount, long rowsPerSecond)
+            {
+                mImporter.cancel();
+            }
+        });
+
+        assertEquals(2, mImporter.importFrom(csv(HEADER
+                +"Ada,Lovelace\nAlan,Turing\nGrace,Hopper\nEdsger,Dijkstra\n")));
+        assertTrue(mImporter.isCancelled());
+
+        Dao<NamesTable> names = DBAccess.getDao(mContext, NamesTable.sInstance);
+        assertEquals(2, names.count());
+        assertEquals(1, names.search("lov", 10, null).length);
+        assertIndexesExist();
+    }
+
+    @Test
+    public void headerMustNameEveryColumn()
+    {
+        try
+        {
+            mImporter.importFrom(csv(NamesTable.Entry.FIRST_NAME+"\nAda\n"));
+            fail("a header without every column should fail the import");
+        }
+        catch(IOException e)
+        {
+            assertTrue(e.getMessage().startsWith("header must name every column"));
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static InputStream csv(String text)
+    {
+        return new ByteArrayInputStream(text.getBytes(Charset.forName("UTF-8")));
+    }
+
+    /**
+     * checks that the indexes of the names table, dropped while rows are
+     *   imported, exist again.
+     */
+    private void assertIndexesExist()
+    {
+        DBAccess.shutdown();
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(
+                mContext.getDatabasePath(DBAccess.DATABASE_NAME).getPath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try
+        {
+            assertEquals(1, DatabaseUtils.longForQuery(db,
+                    "SELECT COUNT(*) FROM sqlite_master WHERE type = 'index' AND name = ?",
+                    new String[]{NamesTable.Entry.INDEX_LAST_NAME_FIRST_NAME}));
+        }
+        finally
+        {
+            db.close();
+        }
+    }
+}
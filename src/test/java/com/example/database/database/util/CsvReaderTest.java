@@ -0,0 +1,146 @@
+package com.example.database.database.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * tests of {@code CsvReader}, on the host JVM.
+ */
+public class CsvReaderTest
+{
+    /** number of characters {@code CsvReader} reads from the stream at a time. */
+    private static final int BUFFER_SIZE = 8192;
+
+    @Test
+    public void fieldsAreSplitOnCommas()
+    {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b", ""), Arrays.asList("", "c", "d")),
+                readAll("a,b,\n,c,d\n"));
+    }
+
+    @Test
+    public void quotedFieldsKeepCommasLineBreaksAndEscapedQuotes()
+    {
+        assertEquals(Arrays.asList(Arrays.asList("a,b", "say \"hi\"", "two\nlines", "")),
+                readAll("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"\"\n"));
+    }
+
+    @Test
+    public void crlfLineBreaksAreAccepted()
+    {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d")),
+                readAll("a,b\r\nc,d\r\n"));
+    }
+
+    @Test
+    public void blankLinesAreSkipped() throws IOException
+    {
+        CsvReader reader = new CsvReader(new StringReader("\na\n\r\n\nb"));
+        assertEquals(true, reader.nextRecord());
+        assertEquals("a", reader.getField(0).toString());
+        assertEquals(2, reader.getLineNumber());
+        assertEquals(true, reader.nextRecord());
+        assertEquals("b", reader.getField(0).toString());
+        assertEquals(5, reader.getLineNumber());
+        assertEquals(false, reader.nextRecord());
+    }
+
+    @Test
+    public void escapedQuoteStraddlingARefillIsOneQuote()
+    {
+        // the first quote of the pair is the last character of the buffer
+        String first = pad(BUFFER_SIZE-4);
+        assertEquals(Arrays.asList(Arrays.asList(first, "x\"y"), Arrays.asList("z")),
+                readAll(first+",\"x\"\"y\"\nz\n", BUFFER_SIZE-1));
+    }
+
+    @Test
+    public void closingQuoteAtTheEndOfTheBufferEndsTheField()
+    {
+        String first = pad(BUFFER_SIZE-4);
+        assertEquals(Arrays.asList(Arrays.asList(first, "x", "y")),
+                readAll(first+",\"x\",y\n", BUFFER_SIZE-1));
+    }
+
+    @Test
+    public void lastRecordNeedsNoLineBreak()
+    {
+        assertEquals(Arrays.asList(Arrays.asList("a"), Arrays.asList("b", "\"c\"")),
+                readAll("a\nb,\"\"\"c\"\"\""));
+    }
+
+    @Test
+    public void streamEndingInsideAQuotedFieldFails()
+    {
+        CsvReader reader = new CsvReader(new StringReader("a\n\"b,c"));
+        try
+        {
+            reader.nextRecord();
+            reader.nextRecord();
+            fail("an unterminated quoted field should fail");
+        }
+        catch(IOException e)
+        {
+            assertTrue(e.getMessage().endsWith("stream ends inside a quoted field"));
+        }
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    private static List<List<String>> readAll(String csv)
+    {
+        return readAll(csv, -1);
+    }
+
+    /**
+     * returns the fields of every record of {@code csv}. if {@code
+     *   quoteIndex} isn't -1, first checks that the character at that index
+     *   of {@code csv}, which the test expects to straddle a refill of the
+     *   buffer, is a quote.
+     */
+    private static List<List<String>> readAll(String csv, int quoteIndex)
+    {
+        if(quoteIndex != -1)
+        {
+            assertEquals('"', csv.charAt(quoteIndex));
+        }
+
+        List<List<String>> records = new ArrayList<>();
+        try
+        {
+            CsvReader reader = new CsvReader(new StringReader(csv));
+            while(reader.nextRecord())
+            {
+                List<String> fields = new ArrayList<>();
+                for(int i = 0; i < reader.getFieldCount(); ++i)
+                {
+                    fields.add(reader.getField(i).toString());
+                }
+                records.add(fields);
+            }
+        }
+        catch(IOException e)
+        {
+            throw new AssertionError(e);
+        }
+        return records;
+    }
+
+    private static String pad(int length)
+    {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'p');
+        return new String(chars);
+    }
+}
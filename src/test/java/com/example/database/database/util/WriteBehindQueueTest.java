@@ -0,0 +1,205 @@
+package com.example.database.database.util;
+
+import android.content.Context;
+
+import com.example.database.BuildConfig;
+import com.example.database.database.DBAccess;
+import com.example.database.database.Dao;
+import com.example.database.database.core.Column;
+import com.example.database.database.core.NamesTable;
+import com.example.database.database.core.Row;
+import com.example.database.database.core.Table;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * tests of {@code WriteBehindQueue} writing to the names table, on
+ *   Robolectric's SQLite.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class WriteBehindQueueTest
+{
+    private Context mContext;
+    private Dao<NamesTable> mNames;
+    private WriteBehindQueue mQueue;
+
+    /**
+     * released to let the writer thread go on once it has been parked by
+     *   {@link #parkWriter()}.
+     */
+    private volatile CountDownLatch mReleased;
+
+    /**
+     * counted down once the writer thread has been parked.
+     */
+    private final CountDownLatch mParked = new CountDownLatch(1);
+
+    /**
+     * parks the writer thread once it has committed the first insert, so that
+     *   the writes queued meanwhile are drained as a single group.
+     */
+    private final DBAccess.OnTableChangedListener mParker =
+            new DBAccess.OnTableChangedListener()
+    {
+        @Override
+        public void onRowsInserted(Table table, Row[] rows)
+        {
+            CountDownLatch released = mReleased;
+            if(released != null)
+            {
+                mParked.countDown();
+                try
+                {
+                    released.await();
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onRowsUpdated(Table table, Row[] rows) {}
+
+        @Override
+        public void onRowsDeleted(Table table, long[] ids) {}
+
+        @Override
+        public void onTableInvalidated(Table table) {}
+    };
+
+    @Before
+    public void setUp()
+    {
+        mContext = RuntimeEnvironment.application;
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+        mNames = DBAccess.getDao(mContext, NamesTable.sInstance);
+        mQueue = new WriteBehindQueue(mContext, NamesTable.sInstance);
+        DBAccess.addOnTableChangedListener(mParker);
+    }
+
+    @After
+    public void tearDown()
+    {
+        release();
+        mQueue.close(null);
+        DBAccess.removeOnTableChangedListener(mParker);
+        DBAccess.shutdown();
+        mContext.deleteDatabase(DBAccess.DATABASE_NAME);
+    }
+
+    @Test
+    public void aFailingWriteOnlyDropsItself() throws InterruptedException
+    {
+        parkWriter();
+        mQueue.insert(makeName("Alan", "Turing"), null);
+        mQueue.insert(makePartialName("Hopper"), null);
+        mQueue.insert(makeName("Edsger", "Dijkstra"), null);
+        release();
+        mQueue.flush();
+
+        // the parked insert, and the two valid inserts of the failed group
+        assertEquals(3, mNames.count());
+    }
+
+    @Test
+    public void mergedUpdatesLeaveTheQueuedRowsAlone() throws InterruptedException
+    {
+        long id = mNames.insert(Collections.singletonList(makeName("Ada", "Lovelace")))[0];
+
+        Row first = makeName("Augusta", "Lovelace");
+        first.setId(id);
+        first.getColumn(NamesTable.Entry.LAST_NAME).clearDirty();
+        Row second = makeName("Ada", "Byron");
+        second.setId(id);
+        second.getColumn(NamesTable.Entry.FIRST_NAME).clearDirty();
+
+        parkWriter();
+        mQueue.update(first, null);
+        mQueue.update(second, null);
+        release();
+        mQueue.flush();
+
+        assertEquals("Lovelace", first.getColumn(NamesTable.Entry.LAST_NAME).getString());
+        assertEquals("Ada", second.getColumn(NamesTable.Entry.FIRST_NAME).getString());
+
+        final List<Row> rows = new ArrayList<>();
+        mNames.queryAll(new DBAccess.OnRowLoadedListener()
+        {
+            @Override
+            public void onRowLoaded(Row r)
+            {
+                if(r.getColumn(NamesTable.Entry.FIRST_NAME).getString().equals("Augusta"))
+                {
+                    rows.add(r);
+                }
+            }
+        });
+        assertEquals(1, rows.size());
+        assertEquals("Byron", rows.get(0).getColumn(NamesTable.Entry.LAST_NAME).getString());
+    }
+
+    ///////////////////////
+    // private interface //
+    ///////////////////////
+
+    /**
+     * queues an insert, and waits until the writer thread is parked by {@code
+     *   mParker} after committing it.
+     */
+    private void parkWriter() throws InterruptedException
+    {
+        mReleased = new CountDownLatch(1);
+        mQueue.insert(makeName("Parked", "Writer"), null);
+        mParked.await();
+    }
+
+    private void release()
+    {
+        CountDownLatch released = mReleased;
+        mReleased = null;
+        if(released != null)
+        {
+            released.countDown();
+        }
+    }
+
+    private static Row makeName(String firstName, String lastName)
+    {
+        Row row = NamesTable.sInstance.makeRow();
+        row.getColumn(NamesTable.Entry.FIRST_NAME).setValue(firstName);
+        row.getColumn(NamesTable.Entry.LAST_NAME).setValue(lastName);
+        return row;
+    }
+
+    /**
+     * returns a row without a first name, which can't be inserted.
+     */
+    private static Row makePartialName(String lastName)
+    {
+        Map<String, Column> columns = new LinkedHashMap<>();
+        Column column = NamesTable.sInstance.getColumnFactory(NamesTable.Entry.LAST_NAME)
+                .makeColumn();
+        column.setValue(lastName);
+        columns.put(NamesTable.Entry.LAST_NAME, column);
+        return new Row(columns, NamesTable.sInstance);
+    }
+}